@@ -0,0 +1,81 @@
+package org.javesi.benchmark;
+
+import org.javesi.component.Component;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Component types used by the benchmarks.
+ */
+public final class BenchmarkComponents
+{
+    public final static int MAX_TYPES = 16;
+
+    private final static Class<?>[] TYPES = new Class<?>[]{
+        C0.class, C1.class, C2.class, C3.class, C4.class, C5.class, C6.class, C7.class,
+        C8.class, C9.class, C10.class, C11.class, C12.class, C13.class, C14.class, C15.class
+    };
+
+    private BenchmarkComponents()
+    {
+
+    }
+
+    public static Class<? extends Component> type(int index)
+    {
+        return (Class<? extends Component>) TYPES[index];
+    }
+
+    /**
+     * Returns the first <code>count</code> component types.
+     */
+    public static Set<Class<? extends Component>> types(int count)
+    {
+        if (count > MAX_TYPES)
+        {
+            throw new IllegalArgumentException("There are only " + MAX_TYPES + " component types");
+        }
+
+        Set<Class<? extends Component>> types = new LinkedHashSet<Class<? extends Component>>();
+        for (int i = 0; i < count; i++)
+        {
+            types.add(type(i));
+        }
+        return types;
+    }
+
+    public static Component create(int index)
+    {
+        try
+        {
+            return type(index).newInstance();
+        }
+        catch (Exception e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class Data implements Component
+    {
+        public int value;
+    }
+
+    public static final class C0 extends Data { }
+    public static final class C1 extends Data { }
+    public static final class C2 extends Data { }
+    public static final class C3 extends Data { }
+    public static final class C4 extends Data { }
+    public static final class C5 extends Data { }
+    public static final class C6 extends Data { }
+    public static final class C7 extends Data { }
+    public static final class C8 extends Data { }
+    public static final class C9 extends Data { }
+    public static final class C10 extends Data { }
+    public static final class C11 extends Data { }
+    public static final class C12 extends Data { }
+    public static final class C13 extends Data { }
+    public static final class C14 extends Data { }
+    public static final class C15 extends Data { }
+}
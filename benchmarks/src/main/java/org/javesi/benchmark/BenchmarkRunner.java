@@ -0,0 +1,26 @@
+package org.javesi.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks matching the given pattern ( default all ) with the GC profiler which reports the allocation
+ * rate and the allocated bytes per operation ( <code>gc.alloc.rate.norm</code> ).
+ * <p>
+ *     The same can be achieved with <code>java -jar target/benchmarks.jar -prof gc</code>.
+ * </p>
+ */
+public class BenchmarkRunner
+{
+    public static void main(String[] args) throws Exception
+    {
+        Options options = new OptionsBuilder()
+            .include(args.length > 0 ? args[0] : "org.javesi.benchmark.*")
+            .addProfiler(GCProfiler.class)
+            .build();
+
+        new Runner(options).run();
+    }
+}
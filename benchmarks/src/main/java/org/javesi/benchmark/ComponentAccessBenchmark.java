@@ -0,0 +1,98 @@
+package org.javesi.benchmark;
+
+import org.javesi.Entity;
+import org.javesi.component.Component;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures component access on a single entity. The benchmarks walk over all entities so that the access pattern is
+ * not just hitting the same cache lines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ComponentAccessBenchmark
+    extends WorldState
+{
+    private int next;
+    private int nextType;
+    private Component[] prototypes;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        buildWorld();
+
+        prototypes = new Component[componentTypes];
+        for (int type = 0; type < componentTypes; type++)
+        {
+            prototypes[type] = BenchmarkComponents.create(type);
+        }
+    }
+
+    private Entity nextEntity()
+    {
+        int index = next;
+        next = (index + 1) % entities.length;
+        return entities[index];
+    }
+
+    private int nextType()
+    {
+        int type = nextType;
+        nextType = (type + 1) % componentTypes;
+        return type;
+    }
+
+    @Benchmark
+    public Component getComponent()
+    {
+        return system.getComponent(nextEntity(), BenchmarkComponents.type(nextType()));
+    }
+
+    @Benchmark
+    public boolean hasComponent()
+    {
+        return system.hasComponent(nextEntity(), BenchmarkComponents.type(nextType()));
+    }
+
+    /**
+     * Replaces an existing component.
+     */
+    @Benchmark
+    public void addComponent()
+    {
+        system.addComponent(nextEntity(), prototypes[nextType()]);
+    }
+
+    @Benchmark
+    public void removeAndAddComponent()
+    {
+        Entity entity = nextEntity();
+        int type = nextType();
+        system.removeComponent(entity, BenchmarkComponents.type(type));
+        system.addComponent(entity, prototypes[type]);
+    }
+
+    @Benchmark
+    public List<? extends Component> getAllComponentsOnEntity()
+    {
+        return system.getAllComponentsOnEntity(nextEntity());
+    }
+}
@@ -0,0 +1,78 @@
+package org.javesi.benchmark;
+
+import org.javesi.EntitySystem;
+import org.javesi.job.Job;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures short jobs submitted by many threads at once through
+ * {@link org.javesi.EntitySystemInterface#execute(org.javesi.job.Job)}. Change the number of threads with
+ * <code>-t</code>.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class ContendedExecuteBenchmark
+{
+    @State(Scope.Benchmark)
+    public static class World
+        extends WorldState
+    {
+        @Setup(Level.Trial)
+        public void setup() throws Exception
+        {
+            buildWorld();
+        }
+    }
+
+    /**
+     * Per thread job touching a different entity on every execution.
+     */
+    @State(Scope.Thread)
+    public static class UpdateJob
+        implements Job
+    {
+        private World world;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setup(World world)
+        {
+            this.world = world;
+            next = (int) (Thread.currentThread().getId() % world.entities.length);
+        }
+
+        @Override
+        public void execute(EntitySystem state) throws Exception
+        {
+            int index = next;
+            next = (index + 1) % world.entities.length;
+
+            BenchmarkComponents.Data data = (BenchmarkComponents.Data) state.getComponent(world.entities[index],
+                BenchmarkComponents.type(index % world.componentTypes));
+            data.value++;
+        }
+    }
+
+    @Benchmark
+    public void execute(World world, UpdateJob job) throws Exception
+    {
+        world.entitySystemInterface.execute(job);
+    }
+}
@@ -0,0 +1,65 @@
+package org.javesi.benchmark;
+
+import org.javesi.Entity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures entity churn: every operation kills the oldest entity and replaces it with a new one, so the world size
+ * stays constant.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EntityLifecycleBenchmark
+    extends WorldState
+{
+    private int oldest;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        buildWorld();
+    }
+
+    @Benchmark
+    public Entity createAndKill()
+    {
+        int index = oldest;
+        system.killEntity(entities[index]);
+        Entity entity = system.createEntity();
+        entities[index] = entity;
+        oldest = (index + 1) % entities.length;
+        return entity;
+    }
+
+    @Benchmark
+    public void createAndKillWithComponents(Blackhole blackhole)
+    {
+        int index = oldest;
+        system.killEntity(entities[index]);
+        Entity entity = system.createEntity();
+        for (int type = 0; type < componentTypes; type++)
+        {
+            system.addComponent(entity, BenchmarkComponents.create(type));
+        }
+        entities[index] = entity;
+        oldest = (index + 1) % entities.length;
+        blackhole.consume(entity);
+    }
+}
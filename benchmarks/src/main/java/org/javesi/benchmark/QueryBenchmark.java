@@ -0,0 +1,75 @@
+package org.javesi.benchmark;
+
+import org.javesi.Entity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures multi component queries. Every entity has the first component type, the other types are present on
+ * <code>selectivity</code> of the entities each.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QueryBenchmark
+    extends WorldState
+{
+    @Param({"0.01", "0.1", "0.5", "1.0"})
+    public double selectivity;
+
+    private int stride;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        stride = (int) Math.round(1 / selectivity);
+        buildWorld();
+    }
+
+    @Override
+    protected boolean hasComponent(int entityNumber, int type)
+    {
+        return type == 0 || entityNumber % stride == 0;
+    }
+
+    @Benchmark
+    public int findWithTwoComponents()
+    {
+        return system.findEntitiesWithComponents(BenchmarkComponents.type(0), BenchmarkComponents.type(1)).size();
+    }
+
+    @Benchmark
+    public int findWithFourComponents()
+    {
+        return system.findEntitiesWithComponents(BenchmarkComponents.type(0), BenchmarkComponents.type(1),
+            BenchmarkComponents.type(2), BenchmarkComponents.type(3)).size();
+    }
+
+    @Benchmark
+    public void findAndIterate(Blackhole blackhole)
+    {
+        Set<Entity> result = system.findEntitiesWithComponents(BenchmarkComponents.type(0),
+            BenchmarkComponents.type(1));
+        for (Entity entity : result)
+        {
+            blackhole.consume(entity);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.javesi.benchmark;
+
+import org.javesi.Entity;
+import org.javesi.EntitySystem;
+import org.javesi.EntitySystemBuilder;
+import org.javesi.EntitySystemInterface;
+import org.javesi.job.Job;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Base for benchmark states. Builds a world of <code>entityCount</code> entities that each have
+ * <code>componentTypes</code> components.
+ * <p>
+ *     The entity system is captured from a job and then used directly by the benchmark thread, like
+ *     {@link org.javesi.test.TestEntitySystem} does, so that single threaded benchmarks do not measure the world lock.
+ * </p>
+ */
+@State(Scope.Thread)
+public abstract class WorldState
+{
+    @Param({"1000", "100000"})
+    public int entityCount;
+
+    @Param({"4", "16"})
+    public int componentTypes;
+
+    public EntitySystemInterface entitySystemInterface;
+    public EntitySystem system;
+    public Entity[] entities;
+
+    protected void buildWorld() throws Exception
+    {
+        entitySystemInterface = new EntitySystemBuilder()
+            .withComponentClasses(BenchmarkComponents.types(componentTypes))
+            .build();
+
+        entitySystemInterface.execute(new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                system = state;
+            }
+        });
+
+        entities = new Entity[entityCount];
+        for (int i = 0; i < entityCount; i++)
+        {
+            Entity entity = system.createEntity();
+            for (int type = 0; type < componentTypes; type++)
+            {
+                if (hasComponent(i, type))
+                {
+                    system.addComponent(entity, BenchmarkComponents.create(type));
+                }
+            }
+            entities[i] = entity;
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the entity with the given number should have a component of the given type.
+     * Default is all entities having all types.
+     */
+    protected boolean hasComponent(int entityNumber, int type)
+    {
+        return true;
+    }
+}
@@ -0,0 +1,20 @@
+package org.javesi.benchmark.workload;
+
+/**
+ * How the systems of a {@link Scenario} access their components.
+ */
+public enum AccessPattern
+{
+    /**
+     * Reads all components of the first type of the system.
+     */
+    READ,
+    /**
+     * Increments a field of all components of the first type of the system.
+     */
+    WRITE,
+    /**
+     * Queries the entities having all types of the system and reads their components.
+     */
+    QUERY
+}
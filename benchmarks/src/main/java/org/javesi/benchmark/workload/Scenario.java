@@ -0,0 +1,297 @@
+package org.javesi.benchmark.workload;
+
+import org.javesi.EntitySystemBuilder;
+import org.javesi.benchmark.BenchmarkComponents;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Declarative description of a synthetic workload run by the {@link WorkloadDriver}.
+ * <p>
+ *     Every scenario setting can be given as <code>key=value</code>, with the key being the setting name, e.g.
+ *     <code>entities=100000 mix=1,1,0.5,0.1 churn=0.01 systems=8 access=QUERY threads=4</code>. Settings starting
+ *     with <code>builder.</code> configure the {@link EntitySystemBuilder}, e.g.
+ *     <code>builder.componentMapConcurrencyLevel=4</code>.
+ * </p>
+ */
+public final class Scenario
+{
+    private int entities = 10000;
+    /** for each component type, the fraction of the entities that has it */
+    private double[] mix = {1, 1, 0.5, 0.5, 0.1};
+    /** fraction of the entities that is killed and replaced per tick */
+    private double churn = 0.001;
+    private int systems = 4;
+    private int typesPerSystem = 2;
+    private AccessPattern access = AccessPattern.WRITE;
+    private int threads = 2;
+    private int warmupSeconds = 5;
+    private int seconds = 10;
+    private long seed = 42;
+
+    /** entity system settings, same defaults as the builder */
+    private int entityMapCapacity = 64;
+    private float entityMapLoadFactor = 0.75f;
+    private int componentMapCapacity = 16;
+    private float componentMapLoadFactor = 0.75f;
+    private int componentMapConcurrencyLevel = 16;
+    private float compactionFillRatio = 0f;
+
+    /**
+     * Creates a scenario from the given settings, using the defaults for all others.
+     *
+     * @throws IllegalArgumentException if a setting is unknown or invalid.
+     */
+    public static Scenario fromProperties(Properties properties)
+    {
+        Scenario scenario = new Scenario();
+        for (Map.Entry<Object, Object> e : properties.entrySet())
+        {
+            scenario.set((String) e.getKey(), ((String) e.getValue()).trim());
+        }
+        return scenario;
+    }
+
+    private void set(String key, String value)
+    {
+        try
+        {
+            switch (key)
+            {
+                case "entities":
+                    withEntities(Integer.parseInt(value));
+                    break;
+                case "mix":
+                    String[] parts = value.split(",");
+                    double[] densities = new double[parts.length];
+                    for (int i = 0; i < parts.length; i++)
+                    {
+                        densities[i] = Double.parseDouble(parts[i].trim());
+                    }
+                    withMix(densities);
+                    break;
+                case "churn":
+                    withChurn(Double.parseDouble(value));
+                    break;
+                case "systems":
+                    withSystems(Integer.parseInt(value));
+                    break;
+                case "typesPerSystem":
+                    withTypesPerSystem(Integer.parseInt(value));
+                    break;
+                case "access":
+                    withAccess(AccessPattern.valueOf(value.toUpperCase()));
+                    break;
+                case "threads":
+                    withThreads(Integer.parseInt(value));
+                    break;
+                case "warmupSeconds":
+                    withWarmupSeconds(Integer.parseInt(value));
+                    break;
+                case "seconds":
+                    withSeconds(Integer.parseInt(value));
+                    break;
+                case "seed":
+                    withSeed(Long.parseLong(value));
+                    break;
+                case "builder.entityMapCapacity":
+                    entityMapCapacity = Integer.parseInt(value);
+                    break;
+                case "builder.entityMapLoadFactor":
+                    entityMapLoadFactor = Float.parseFloat(value);
+                    break;
+                case "builder.componentMapCapacity":
+                    componentMapCapacity = Integer.parseInt(value);
+                    break;
+                case "builder.componentMapLoadFactor":
+                    componentMapLoadFactor = Float.parseFloat(value);
+                    break;
+                case "builder.componentMapConcurrencyLevel":
+                    componentMapConcurrencyLevel = Integer.parseInt(value);
+                    break;
+                case "builder.compactionFillRatio":
+                    compactionFillRatio = Float.parseFloat(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown scenario setting '" + key + "'");
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Invalid value '" + value + "' for " + key, e);
+        }
+    }
+
+    public Scenario withEntities(int entities)
+    {
+        this.entities = positive("entities", entities);
+        return this;
+    }
+
+    public Scenario withMix(double... mix)
+    {
+        if (mix.length == 0 || mix.length > BenchmarkComponents.MAX_TYPES)
+        {
+            throw new IllegalArgumentException("The mix must contain 1 to " + BenchmarkComponents.MAX_TYPES +
+                " component types");
+        }
+        this.mix = mix.clone();
+        return this;
+    }
+
+    public Scenario withChurn(double churn)
+    {
+        if (churn < 0 || churn > 1)
+        {
+            throw new IllegalArgumentException("Churn must be between 0 and 1");
+        }
+        this.churn = churn;
+        return this;
+    }
+
+    public Scenario withSystems(int systems)
+    {
+        this.systems = positive("systems", systems);
+        return this;
+    }
+
+    public Scenario withTypesPerSystem(int typesPerSystem)
+    {
+        this.typesPerSystem = positive("typesPerSystem", typesPerSystem);
+        return this;
+    }
+
+    public Scenario withAccess(AccessPattern access)
+    {
+        this.access = access;
+        return this;
+    }
+
+    public Scenario withThreads(int threads)
+    {
+        this.threads = positive("threads", threads);
+        return this;
+    }
+
+    public Scenario withWarmupSeconds(int warmupSeconds)
+    {
+        this.warmupSeconds = warmupSeconds;
+        return this;
+    }
+
+    public Scenario withSeconds(int seconds)
+    {
+        this.seconds = positive("seconds", seconds);
+        return this;
+    }
+
+    public Scenario withSeed(long seed)
+    {
+        this.seed = seed;
+        return this;
+    }
+
+    private static int positive(String name, int value)
+    {
+        if (value < 1)
+        {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+        return value;
+    }
+
+    /**
+     * Returns a builder for the entity system of this scenario.
+     */
+    public EntitySystemBuilder builder()
+    {
+        return new EntitySystemBuilder()
+            .withComponentClasses(BenchmarkComponents.types(mix.length))
+            .withEntityMapCapacity(entityMapCapacity)
+            .withEntityMapLoadFactor(entityMapLoadFactor)
+            .withComponentMapCapacity(componentMapCapacity)
+            .withComponentMapLoadFactor(componentMapLoadFactor)
+            .withComponentMapConcurrencyLevel(componentMapConcurrencyLevel)
+            .withCompactionFillRatio(compactionFillRatio);
+    }
+
+    /**
+     * Returns the component type indexes accessed by the given system.
+     */
+    int[] typesOf(int system)
+    {
+        int count = Math.min(typesPerSystem, mix.length);
+        int[] types = new int[count];
+        for (int i = 0; i < count; i++)
+        {
+            types[i] = (system + i) % mix.length;
+        }
+        return types;
+    }
+
+    public int getEntities()
+    {
+        return entities;
+    }
+
+    public double[] getMix()
+    {
+        return mix.clone();
+    }
+
+    public double getChurn()
+    {
+        return churn;
+    }
+
+    public int getSystems()
+    {
+        return systems;
+    }
+
+    public int getTypesPerSystem()
+    {
+        return typesPerSystem;
+    }
+
+    public AccessPattern getAccess()
+    {
+        return access;
+    }
+
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    public int getWarmupSeconds()
+    {
+        return warmupSeconds;
+    }
+
+    public int getSeconds()
+    {
+        return seconds;
+    }
+
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "entities=" + entities + " mix=" + Arrays.toString(mix) + " churn=" + churn + " systems=" + systems +
+            " typesPerSystem=" + typesPerSystem + " access=" + access + " threads=" + threads + " warmupSeconds=" +
+            warmupSeconds + " seconds=" + seconds + " seed=" + seed +
+            " builder.entityMapCapacity=" + entityMapCapacity +
+            " builder.entityMapLoadFactor=" + entityMapLoadFactor +
+            " builder.componentMapCapacity=" + componentMapCapacity +
+            " builder.componentMapLoadFactor=" + componentMapLoadFactor +
+            " builder.componentMapConcurrencyLevel=" + componentMapConcurrencyLevel +
+            " builder.compactionFillRatio=" + compactionFillRatio;
+    }
+}
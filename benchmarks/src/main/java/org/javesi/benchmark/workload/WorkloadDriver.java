@@ -0,0 +1,354 @@
+package org.javesi.benchmark.workload;
+
+import org.javesi.Entity;
+import org.javesi.EntitySystem;
+import org.javesi.EntitySystemInterface;
+import org.javesi.benchmark.BenchmarkComponents;
+import org.javesi.component.Component;
+import org.javesi.job.Job;
+import org.javesi.metrics.LatencyHistogram;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives an entity system with the synthetic workload of a {@link Scenario} and reports its throughput, job latencies,
+ * allocation rate and GC time. Unlike the JMH benchmarks, it measures whole ticks of several systems and entity churn
+ * submitted by several threads through {@link EntitySystemInterface#execute(Job)}, so that configurations can be
+ * compared on realistic mixes.
+ * <p>
+ *     Every submitting thread runs ticks in a loop. A tick executes one job per system, followed by a job killing and
+ *     replacing the churned entities. Run it with
+ * </p>
+ * <pre>
+ *     java -cp target/benchmarks.jar org.javesi.benchmark.workload.WorkloadDriver [scenario.properties] [key=value ...]
+ * </pre>
+ *
+ * @see Scenario for the settings
+ */
+public final class WorkloadDriver
+{
+    private final Scenario scenario;
+    private final double[] mix;
+    private final EntitySystemInterface world;
+
+    /** job latencies of the current measurement, only recorded by the thread holding the world lock */
+    private volatile LatencyHistogram latencies;
+    private final AtomicLong ticks = new AtomicLong();
+    private volatile boolean running;
+
+    // world state, only accessed within jobs
+    private final Random random;
+    private Entity[] entities;
+    private double churnCarry;
+    private long sink;
+
+    public WorkloadDriver(Scenario scenario)
+    {
+        this.scenario = scenario;
+        this.mix = scenario.getMix();
+        this.random = new Random(scenario.getSeed());
+        this.world = scenario.builder().build();
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Properties properties = new Properties();
+        for (String arg : args)
+        {
+            int pos = arg.indexOf('=');
+            if (pos < 0)
+            {
+                load(properties, arg);
+            }
+            else
+            {
+                properties.setProperty(arg.substring(0, pos), arg.substring(pos + 1));
+            }
+        }
+
+        WorkloadReport report = new WorkloadDriver(Scenario.fromProperties(properties)).run();
+        System.out.println(report);
+    }
+
+    private static void load(Properties properties, String file) throws IOException
+    {
+        InputStream in = new FileInputStream(file);
+        try
+        {
+            properties.load(in);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Populates the world, runs the warmup and the measurement and stops the submitting threads.
+     */
+    public WorkloadReport run() throws Exception
+    {
+        world.execute(new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                entities = new Entity[scenario.getEntities()];
+                for (int i = 0; i < entities.length; i++)
+                {
+                    entities[i] = createEntity(state);
+                }
+            }
+        });
+
+        running = true;
+        Thread[] threads = new Thread[scenario.getThreads()];
+        final Throwable[] failure = new Throwable[1];
+        for (int i = 0; i < threads.length; i++)
+        {
+            threads[i] = new Thread(new Submitter(failure), "workload-" + i);
+            threads[i].start();
+        }
+
+        Thread.sleep(scenario.getWarmupSeconds() * 1000L);
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        long allocatedBefore = allocatedBytes(threadBean, threads);
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        long ticksBefore = ticks.get();
+        latencies = new LatencyHistogram();
+        long start = System.nanoTime();
+
+        Thread.sleep(scenario.getSeconds() * 1000L);
+
+        long nanos = System.nanoTime() - start;
+        long tickCount = ticks.get() - ticksBefore;
+        long allocatedAfter = allocatedBytes(threadBean, threads);
+        long gcCountAfter = gcCount();
+        long gcMillisAfter = gcMillis();
+        LatencyHistogram measured = latencies;
+
+        running = false;
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        if (failure[0] != null)
+        {
+            throw new IllegalStateException("Workload failed", failure[0]);
+        }
+
+        final int[] finalEntityCount = new int[1];
+        world.execute(new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                finalEntityCount[0] = state.entities().size();
+            }
+        });
+
+        return new WorkloadReport(scenario, tickCount, nanos, measured.snapshot(),
+            allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore, gcCountAfter - gcCountBefore,
+            gcMillisAfter - gcMillisBefore, finalEntityCount[0]);
+    }
+
+    private Entity createEntity(EntitySystem state)
+    {
+        Entity entity = state.createEntity();
+        for (int type = 0; type < mix.length; type++)
+        {
+            if (random.nextDouble() < mix[type])
+            {
+                state.addComponent(entity, BenchmarkComponents.create(type));
+            }
+        }
+        return entity;
+    }
+
+    private void record(long submitted)
+    {
+        LatencyHistogram histogram = latencies;
+        if (histogram != null)
+        {
+            histogram.record(System.nanoTime() - submitted);
+        }
+    }
+
+    /**
+     * Returns the bytes allocated by the given threads so far or <code>-1</code> if the JVM does not count them.
+     */
+    private static long allocatedBytes(ThreadMXBean threadBean, Thread[] threads)
+    {
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean))
+        {
+            return -1;
+        }
+
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threadBean;
+        long bytes = 0;
+        for (Thread thread : threads)
+        {
+            long threadBytes = allocations.getThreadAllocatedBytes(thread.getId());
+            if (threadBytes < 0)
+            {
+                return -1;
+            }
+            bytes += threadBytes;
+        }
+        return bytes;
+    }
+
+    private static long gcCount()
+    {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis()
+    {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * Submits ticks until the driver stops. Every submitter has its own job instances.
+     */
+    private class Submitter
+        implements Runnable
+    {
+        private final Throwable[] failure;
+        private final SystemJob[] systems;
+        private final ChurnJob churn = new ChurnJob();
+
+        Submitter(Throwable[] failure)
+        {
+            this.failure = failure;
+            systems = new SystemJob[scenario.getSystems()];
+            for (int i = 0; i < systems.length; i++)
+            {
+                systems[i] = new SystemJob(scenario.typesOf(i));
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                while (running)
+                {
+                    for (SystemJob system : systems)
+                    {
+                        system.submitted = System.nanoTime();
+                        world.execute(system);
+                    }
+                    if (scenario.getChurn() > 0)
+                    {
+                        churn.submitted = System.nanoTime();
+                        world.execute(churn);
+                    }
+                    ticks.incrementAndGet();
+                }
+            }
+            catch (Throwable t)
+            {
+                synchronized (failure)
+                {
+                    failure[0] = t;
+                }
+                running = false;
+            }
+        }
+    }
+
+    /**
+     * Accesses the components of the types of one system according to the access pattern of the scenario.
+     */
+    private class SystemJob
+        implements Job
+    {
+        private final Class<? extends Component>[] types;
+        long submitted;
+
+        SystemJob(int[] typeIndexes)
+        {
+            types = new Class[typeIndexes.length];
+            for (int i = 0; i < typeIndexes.length; i++)
+            {
+                types[i] = BenchmarkComponents.type(typeIndexes[i]);
+            }
+        }
+
+        @Override
+        public void execute(EntitySystem state) throws Exception
+        {
+            long sum = 0;
+            switch (scenario.getAccess())
+            {
+                case READ:
+                    for (Component component : state.getAllComponentsOfType(types[0]))
+                    {
+                        sum += ((BenchmarkComponents.Data) component).value;
+                    }
+                    break;
+                case WRITE:
+                    for (Component component : state.getAllComponentsOfType(types[0]))
+                    {
+                        sum += ++((BenchmarkComponents.Data) component).value;
+                    }
+                    break;
+                default:
+                    for (Entity entity : state.findEntitiesWithComponents(types))
+                    {
+                        sum += ((BenchmarkComponents.Data) state.getComponent(entity, types[0])).value;
+                    }
+                    break;
+            }
+            sink += sum;
+            record(submitted);
+        }
+    }
+
+    /**
+     * Kills randomly chosen entities and replaces them with new ones.
+     */
+    private class ChurnJob
+        implements Job
+    {
+        long submitted;
+
+        @Override
+        public void execute(EntitySystem state) throws Exception
+        {
+            churnCarry += entities.length * scenario.getChurn();
+            int count = (int) churnCarry;
+            churnCarry -= count;
+
+            for (int i = 0; i < count; i++)
+            {
+                int index = random.nextInt(entities.length);
+                state.killEntity(entities[index]);
+                entities[index] = createEntity(state);
+            }
+            record(submitted);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.javesi.benchmark.workload;
+
+import org.javesi.metrics.HistogramSnapshot;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Results of one {@link WorkloadDriver} run, measured after the warmup.
+ */
+public final class WorkloadReport
+{
+    private final Scenario scenario;
+    private final long ticks;
+    private final long nanos;
+    private final HistogramSnapshot jobLatencies;
+    private final long allocatedBytes;
+    private final long gcCount;
+    private final long gcMillis;
+    private final int finalEntityCount;
+
+    WorkloadReport(Scenario scenario, long ticks, long nanos, HistogramSnapshot jobLatencies, long allocatedBytes,
+                   long gcCount, long gcMillis, int finalEntityCount)
+    {
+        this.scenario = scenario;
+        this.ticks = ticks;
+        this.nanos = nanos;
+        this.jobLatencies = jobLatencies;
+        this.allocatedBytes = allocatedBytes;
+        this.gcCount = gcCount;
+        this.gcMillis = gcMillis;
+        this.finalEntityCount = finalEntityCount;
+    }
+
+    public Scenario getScenario()
+    {
+        return scenario;
+    }
+
+    public long getTicks()
+    {
+        return ticks;
+    }
+
+    public double getTicksPerSecond()
+    {
+        return ticks * 1e9 / nanos;
+    }
+
+    /**
+     * Returns the latencies of all jobs from their submission until they finished, including the wait for the world
+     * lock.
+     */
+    public HistogramSnapshot getJobLatencies()
+    {
+        return jobLatencies;
+    }
+
+    /**
+     * Returns the bytes allocated by the submitting threads, <code>-1</code> if the JVM does not count allocations.
+     */
+    public long getAllocatedBytes()
+    {
+        return allocatedBytes;
+    }
+
+    public double getAllocationRate()
+    {
+        return allocatedBytes < 0 ? -1 : allocatedBytes * 1e9 / nanos / (1024 * 1024);
+    }
+
+    public long getGcCount()
+    {
+        return gcCount;
+    }
+
+    public long getGcMillis()
+    {
+        return gcMillis;
+    }
+
+    public int getFinalEntityCount()
+    {
+        return finalEntityCount;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "-- Workload: " + scenario + "\n" +
+            String.format("ticks          : %d in %.1f s = %.1f ticks/s%n", ticks, nanos / 1e9, getTicksPerSecond()) +
+            String.format("job latency    : p50 = %s, p90 = %s, p99 = %s, p99.9 = %s, max = %s%n",
+                micros(jobLatencies.getPercentile(50)), micros(jobLatencies.getPercentile(90)),
+                micros(jobLatencies.getPercentile(99)), micros(jobLatencies.getPercentile(99.9)),
+                micros(jobLatencies.getMax())) +
+            String.format("allocation     : %.1f MB/s%n", getAllocationRate()) +
+            String.format("gc             : %d collections, %d ms%n", gcCount, gcMillis) +
+            String.format("entities       : %d at the end%n", finalEntityCount);
+    }
+
+    private static String micros(long nanos)
+    {
+        return TimeUnit.NANOSECONDS.toMicros(nanos) + "us";
+    }
+}
@@ -0,0 +1,102 @@
+package org.javesi;
+
+import org.javesi.exception.JavesyRuntimeException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Append-only file holding the encoded components evicted from a {@link TieredComponentStore}. Space of hydrated or
+ * removed components is not reused, {@link #getGarbageBytes()} tracks how much of the file is unused.
+ */
+final class ColdStorageFile
+{
+    private final File file;
+    private final RandomAccessFile raf;
+
+    private long length;
+    private long garbageBytes;
+
+    ColdStorageFile(File directory, String prefix)
+    {
+        try
+        {
+            file = File.createTempFile(prefix, ".cold", directory);
+            file.deleteOnExit();
+            raf = new RandomAccessFile(file, "rw");
+        }
+        catch (IOException e)
+        {
+            throw new JavesyRuntimeException("Error creating cold storage file in " + directory, e);
+        }
+    }
+
+    /**
+     * Appends the given bytes and returns their offset.
+     */
+    long write(byte[] data)
+    {
+        try
+        {
+            long offset = length;
+            raf.seek(offset);
+            raf.write(data);
+            length += data.length;
+            return offset;
+        }
+        catch (IOException e)
+        {
+            throw new JavesyRuntimeException("Error writing cold storage file " + file, e);
+        }
+    }
+
+    byte[] read(long offset, int size)
+    {
+        try
+        {
+            byte[] data = new byte[size];
+            raf.seek(offset);
+            raf.readFully(data);
+            return data;
+        }
+        catch (IOException e)
+        {
+            throw new JavesyRuntimeException("Error reading cold storage file " + file, e);
+        }
+    }
+
+    /**
+     * Marks the given number of bytes as no longer used.
+     */
+    void free(int size)
+    {
+        garbageBytes += size;
+    }
+
+    long getLength()
+    {
+        return length;
+    }
+
+    long getGarbageBytes()
+    {
+        return garbageBytes;
+    }
+
+    void close()
+    {
+        try
+        {
+            raf.close();
+        }
+        catch (IOException e)
+        {
+            throw new JavesyRuntimeException("Error closing cold storage file " + file, e);
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package org.javesi;
+
+import org.javesi.component.Component;
+import org.javesi.status.StoreFootprint;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores the components of one component type.
+ * <p>
+ *     Stores are only changed by the thread holding the world lock. They maintain counters that can be read by other
+ *     threads at any time.
+ * </p>
+ */
+abstract class ComponentStore
+{
+    /** estimated object header size, assuming a 64 bit JVM with compressed oops */
+    final static int OBJECT_HEADER = 12;
+    /** estimated reference size, assuming a 64 bit JVM with compressed oops */
+    final static int REFERENCE = 4;
+
+    final Class<? extends Component> componentType;
+
+    /** estimated shallow size of the component instances */
+    final int componentSize;
+
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger highWaterMark = new AtomicInteger();
+
+    private Map<Entity, Component> entityToComponentMap;
+
+    ComponentStore(Class<? extends Component> componentType)
+    {
+        this.componentType = componentType;
+        this.componentSize = shallowSize(componentType);
+    }
+
+    abstract Component get(Entity entity);
+
+    /**
+     * Returns <code>true</code> if the given entity has a component in this store.
+     */
+    boolean contains(Entity entity)
+    {
+        return get(entity) != null;
+    }
+
+    /**
+     * Adds the given component to the given entity.
+     *
+     * @return the component of the same type the entity had before or <code>null</code>
+     */
+    abstract Component put(Entity entity, Component component);
+
+    /**
+     * Removes the component from the given entity.
+     *
+     * @return the removed component or <code>null</code>
+     */
+    abstract Component remove(Entity entity);
+
+    abstract Set<Entity> entities();
+
+    abstract Collection<Component> components();
+
+    /**
+     * Returns a read-only view mapping the entities to their components, backed by {@link #entities()} and
+     * {@link #get(Entity)}.
+     */
+    Map<Entity, Component> entityToComponentMap()
+    {
+        if (entityToComponentMap == null)
+        {
+            entityToComponentMap = new EntityToComponentMap();
+        }
+        return entityToComponentMap;
+    }
+
+    /**
+     * Returns the estimated memory footprint of this store, based on the maintained counters.
+     */
+    abstract StoreFootprint footprint();
+
+    /**
+     * Returns <code>true</code> if the store has grown and is now filled less than the given ratio.
+     */
+    boolean needsCompaction(float minFillRatio)
+    {
+        return false;
+    }
+
+    /**
+     * Rebuilds the store to fit its current size, ordering the components by entity id where possible.
+     */
+    void compact()
+    {
+    }
+
+    /**
+     * Moves the components of stores indexed by entity index to the new entity indexes after the entity index was
+     * compacted.
+     *
+     * @param newIndexes    new entity index by old entity index, <code>-1</code> for unused old indexes
+     * @param limit         new entity index limit
+     */
+    void reindex(int[] newIndexes, int limit)
+    {
+    }
+
+    /**
+     * Resets the high water mark to the current size after the store was compacted.
+     */
+    void resetHighWaterMark()
+    {
+        highWaterMark.lazySet(size.get());
+    }
+
+    int size()
+    {
+        return size.get();
+    }
+
+    int highWaterMark()
+    {
+        return highWaterMark.get();
+    }
+
+    /**
+     * Updates the counters for a component added to an entity that had no component of that type.
+     */
+    void added()
+    {
+        // single writer: lazySet is enough to publish the new values to readers
+        int newSize = size.get() + 1;
+        size.lazySet(newSize);
+        if (newSize > highWaterMark.get())
+        {
+            highWaterMark.lazySet(newSize);
+        }
+    }
+
+    /**
+     * Updates the counters for a removed component.
+     */
+    void removed()
+    {
+        size.lazySet(size.get() - 1);
+    }
+
+    /**
+     * Estimates the shallow size of instances of the given class by adding up its fields.
+     */
+    static int shallowSize(Class<?> cls)
+    {
+        int size = OBJECT_HEADER;
+        for (Class<?> c = cls; c != null; c = c.getSuperclass())
+        {
+            for (Field field : c.getDeclaredFields())
+            {
+                if (!Modifier.isStatic(field.getModifiers()))
+                {
+                    size += fieldSize(field.getType());
+                }
+            }
+        }
+        return align(size);
+    }
+
+    static int align(long size)
+    {
+        return (int) ((size + 7) & ~7);
+    }
+
+    private static int fieldSize(Class<?> type)
+    {
+        if (type == long.class || type == double.class)
+        {
+            return 8;
+        }
+        else if (type == int.class || type == float.class)
+        {
+            return 4;
+        }
+        else if (type == short.class || type == char.class)
+        {
+            return 2;
+        }
+        else if (type == byte.class || type == boolean.class)
+        {
+            return 1;
+        }
+        return REFERENCE;
+    }
+
+    private class EntityToComponentMap
+        extends AbstractMap<Entity, Component>
+    {
+        private final Set<Map.Entry<Entity, Component>> entrySet = new AbstractSet<Map.Entry<Entity, Component>>()
+        {
+            @Override
+            public Iterator<Map.Entry<Entity, Component>> iterator()
+            {
+                final Iterator<Entity> entities = entities().iterator();
+                return new Iterator<Map.Entry<Entity, Component>>()
+                {
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return entities.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<Entity, Component> next()
+                    {
+                        Entity entity = entities.next();
+                        return new AbstractMap.SimpleImmutableEntry<Entity, Component>(entity, get(entity));
+                    }
+
+                    @Override
+                    public void remove()
+                    {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public int size()
+            {
+                return ComponentStore.this.size();
+            }
+        };
+
+        @Override
+        public Component get(Object key)
+        {
+            return key instanceof Entity ? ComponentStore.this.get((Entity) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key)
+        {
+            return key instanceof Entity && contains((Entity) key);
+        }
+
+        @Override
+        public int size()
+        {
+            return ComponentStore.this.size();
+        }
+
+        @Override
+        public Set<Map.Entry<Entity, Component>> entrySet()
+        {
+            return entrySet;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.javesi;
+
+import org.javesi.component.Component;
+import org.javesi.component.SharedComponent;
+import org.javesi.component.SingletonComponent;
+import org.javesi.component.TagComponent;
+import org.javesi.exception.InvalidComponentTypeException;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * Assigns deterministic indexes to the component types of an entity system. The types are sorted by class name, so the
+ * indexes are the same in every process configured with the same types, regardless of class loading order or identity
+ * hash codes.
+ * <p>
+ *     Index lookup is a single probe into an open addressing table keyed by class identity in the common case.
+ * </p>
+ * <p>
+ *     The index is immutable and validates the component types once. Hosts running many entity systems with the same
+ *     component types should create one index and share it with
+ *     {@link EntitySystemBuilder#withComponentTypeIndex(ComponentTypeIndex)}.
+ * </p>
+ */
+public final class ComponentTypeIndex
+{
+    /** store kinds by type index */
+    final static byte MAP = 0;
+    final static byte SINGLETON = 1;
+    final static byte TAG = 2;
+    final static byte SHARED = 3;
+
+    private final static Comparator<Class<?>> NAME_ORDER = new Comparator<Class<?>>()
+    {
+        @Override
+        public int compare(Class<?> c1, Class<?> c2)
+        {
+            return c1.getName().compareTo(c2.getName());
+        }
+    };
+
+    private final Class<? extends Component>[] types;
+    private final byte[] kinds;
+
+    /** lookup table, twice the size of the number of types rounded up to the next power of two */
+    private final Class<?>[] keys;
+    private final int[] indexes;
+    private final int mask;
+
+    /**
+     * Creates a new index for the given component types.
+     *
+     * @throws InvalidComponentTypeException if a component type is invalid
+     */
+    public ComponentTypeIndex(Collection<Class<? extends Component>> componentTypes)
+    {
+        types = componentTypes.toArray(new Class[componentTypes.size()]);
+        Arrays.sort(types, NAME_ORDER);
+
+        kinds = new byte[types.length];
+        for (int i = 0; i < types.length; i++)
+        {
+            Class<? extends Component> componentType = types[i];
+            if (i > 0 && types[i - 1].getName().equals(componentType.getName()))
+            {
+                throw new InvalidComponentTypeException("Component type " + componentType.getName() +
+                    " is loaded by more than one class loader");
+            }
+
+            boolean isSingleton = SingletonComponent.class.isAssignableFrom(componentType);
+            boolean isTag = TagComponent.class.isAssignableFrom(componentType);
+            boolean isShared = SharedComponent.class.isAssignableFrom(componentType);
+            if ((isSingleton ? 1 : 0) + (isTag ? 1 : 0) + (isShared ? 1 : 0) > 1)
+            {
+                throw new InvalidComponentTypeException(componentType.getName() +
+                    " can only be one of singleton, tag or shared component");
+            }
+            if (isTag)
+            {
+                TagComponentStore.validate(componentType);
+            }
+            kinds[i] = isTag ? TAG : (isShared ? SHARED : (isSingleton ? SINGLETON : MAP));
+        }
+
+        int tableSize = 2;
+        while (tableSize < types.length * 2)
+        {
+            tableSize <<= 1;
+        }
+        keys = new Class[tableSize];
+        indexes = new int[tableSize];
+        mask = tableSize - 1;
+
+        for (int i = 0; i < types.length; i++)
+        {
+            int slot = slot(types[i]);
+            while (keys[slot] != null)
+            {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = types[i];
+            indexes[slot] = i;
+        }
+    }
+
+    private int slot(Class<?> type)
+    {
+        int h = System.identityHashCode(type) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Returns the index of the given component type.
+     *
+     * @throws InvalidComponentTypeException if the type is not known
+     */
+    public int indexOf(Class<? extends Component> componentType)
+    {
+        int slot = slot(componentType);
+        Class<?> key;
+        while ((key = keys[slot]) != null)
+        {
+            if (key == componentType)
+            {
+                return indexes[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        throw new InvalidComponentTypeException(componentType + " is not known by this system");
+    }
+
+    /**
+     * Returns the component type with the given index.
+     */
+    public Class<? extends Component> typeAt(int index)
+    {
+        return types[index];
+    }
+
+    /**
+     * Returns the store kind of the component type with the given index.
+     */
+    byte kindAt(int index)
+    {
+        return kinds[index];
+    }
+
+    public int size()
+    {
+        return types.length;
+    }
+}
@@ -0,0 +1,85 @@
+package org.javesi;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over a range of a dense array snapshot. Knows its exact size and splits in halves, so parallel streams
+ * get balanced work.
+ *
+ * @param <T> element type
+ */
+final class DenseSpliterator<T>
+    implements Spliterator<T>
+{
+    private final Object[] elements;
+    private final int characteristics;
+    private int index;
+    private final int end;
+
+    /**
+     * @param elements          elements, none of them <code>null</code>
+     * @param end               number of elements in the array to cover
+     * @param characteristics   characteristics in addition to SIZED, SUBSIZED, NONNULL and IMMUTABLE
+     */
+    DenseSpliterator(Object[] elements, int end, int characteristics)
+    {
+        this(elements, 0, end, characteristics | SIZED | SUBSIZED | NONNULL | IMMUTABLE);
+    }
+
+    private DenseSpliterator(Object[] elements, int index, int end, int characteristics)
+    {
+        this.elements = elements;
+        this.index = index;
+        this.end = end;
+        this.characteristics = characteristics;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action)
+    {
+        if (index < end)
+        {
+            action.accept((T) elements[index++]);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action)
+    {
+        Object[] elements = this.elements;
+        int end = this.end;
+        for (int i = index; i < end; i++)
+        {
+            action.accept((T) elements[i]);
+        }
+        index = end;
+    }
+
+    @Override
+    public Spliterator<T> trySplit()
+    {
+        int start = index;
+        int middle = (start + end) >>> 1;
+        if (middle <= start)
+        {
+            return null;
+        }
+        index = middle;
+        return new DenseSpliterator<T>(elements, start, middle, characteristics);
+    }
+
+    @Override
+    public long estimateSize()
+    {
+        return end - index;
+    }
+
+    @Override
+    public int characteristics()
+    {
+        return characteristics;
+    }
+}
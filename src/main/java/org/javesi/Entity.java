@@ -1,5 +1,7 @@
 package org.javesi;
 
+import java.util.Comparator;
+
 /**
  * Represents an entity.
  * <p>
@@ -14,6 +16,20 @@ package org.javesi;
  */
 public final class Entity
 {
+    /**
+     * Orders entities by id.
+     */
+    final static Comparator<Entity> ID_ORDER = new Comparator<Entity>()
+    {
+        @Override
+        public int compare(Entity e1, Entity e2)
+        {
+            long id1 = e1.id;
+            long id2 = e2.id;
+            return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+        }
+    };
+
     private final long id;
 
     /** Mutable per entity flag to keep track of entity life time with just the entity reference.
@@ -27,6 +43,16 @@ public final class Entity
      */
     private boolean alive;
 
+    /**
+     * Dense index of the entity within its entity system or <code>-1</code>. Reused after the entity is killed.
+     */
+    private int index = -1;
+
+    /**
+     * Internal name of the entity, maintained by the entity system.
+     */
+    private String name;
+
     Entity(long id)
     {
         this.id = id;
@@ -66,6 +92,26 @@ public final class Entity
         this.alive = alive;
     }
 
+    int getIndex()
+    {
+        return index;
+    }
+
+    void setIndex(int index)
+    {
+        this.index = index;
+    }
+
+    String getName()
+    {
+        return name;
+    }
+
+    void setName(String name)
+    {
+        this.name = name;
+    }
+
     public long getId()
     {
         return id;
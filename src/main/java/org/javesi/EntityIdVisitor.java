@@ -0,0 +1,15 @@
+package org.javesi;
+
+/**
+ * Receives the ids of the entities matching a query, see
+ * {@link EntitySystem#visitEntityIds(EntityIdVisitor, Class[])}.
+ */
+public interface EntityIdVisitor
+{
+    /**
+     * Called for every matching entity.
+     *
+     * @param id    entity id
+     */
+    void visit(long id);
+}
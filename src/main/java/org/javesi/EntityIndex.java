@@ -0,0 +1,136 @@
+package org.javesi;
+
+import java.util.Arrays;
+
+/**
+ * Assigns dense indexes to the living entities of an entity system. The indexes of killed entities are reused.
+ * <p>
+ *     Only changed by the thread holding the world lock.
+ * </p>
+ */
+final class EntityIndex
+{
+    private final static int INITIAL_CAPACITY = 64;
+
+    private Entity[] entities = new Entity[INITIAL_CAPACITY];
+    /** highest index ever assigned + 1 */
+    private int limit;
+
+    private int[] freeIndexes = new int[INITIAL_CAPACITY];
+    private int freeCount;
+
+    /**
+     * Assigns the next free index to the given entity.
+     */
+    void add(Entity entity)
+    {
+        int index;
+        if (freeCount > 0)
+        {
+            index = freeIndexes[--freeCount];
+        }
+        else
+        {
+            index = limit++;
+            if (index == entities.length)
+            {
+                entities = Arrays.copyOf(entities, entities.length * 2);
+            }
+        }
+
+        entities[index] = entity;
+        entity.setIndex(index);
+    }
+
+    /**
+     * Frees the index of the given entity for reuse.
+     */
+    void remove(Entity entity)
+    {
+        int index = entity.getIndex();
+        if (index < 0 || entities[index] != entity)
+        {
+            return;
+        }
+
+        entities[index] = null;
+        entity.setIndex(-1);
+
+        if (freeCount == freeIndexes.length)
+        {
+            freeIndexes = Arrays.copyOf(freeIndexes, freeIndexes.length * 2);
+        }
+        freeIndexes[freeCount++] = index;
+    }
+
+    /**
+     * Returns <code>true</code> if less than the given ratio of the assigned indexes is in use.
+     */
+    boolean needsCompaction(float minFillRatio)
+    {
+        return limit > INITIAL_CAPACITY && limit - freeCount < limit * minFillRatio;
+    }
+
+    /**
+     * Reassigns the indexes of all living entities in entity id order, without gaps.
+     *
+     * @return new index by old index, <code>-1</code> for unused old indexes
+     */
+    int[] compact()
+    {
+        int count = limit - freeCount;
+        Entity[] living = new Entity[count];
+        int n = 0;
+        for (int i = 0; i < limit; i++)
+        {
+            if (entities[i] != null)
+            {
+                living[n++] = entities[i];
+            }
+        }
+        Arrays.sort(living, Entity.ID_ORDER);
+
+        int[] newIndexes = new int[limit];
+        Arrays.fill(newIndexes, -1);
+
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < count)
+        {
+            capacity <<= 1;
+        }
+        entities = new Entity[capacity];
+        for (int i = 0; i < count; i++)
+        {
+            Entity entity = living[i];
+            newIndexes[entity.getIndex()] = i;
+            entity.setIndex(i);
+            entities[i] = entity;
+        }
+
+        limit = count;
+        freeIndexes = new int[INITIAL_CAPACITY];
+        freeCount = 0;
+        return newIndexes;
+    }
+
+    /**
+     * Returns the entity with the given index or <code>null</code>.
+     */
+    Entity get(int index)
+    {
+        return index < limit ? entities[index] : null;
+    }
+
+    /**
+     * Returns the highest index ever assigned + 1.
+     */
+    int limit()
+    {
+        return limit;
+    }
+
+    int capacity()
+    {
+        return entities.length;
+    }
+}
@@ -1,14 +1,25 @@
 package org.javesi;
 
+import org.javesi.change.ChangeListener;
+import org.javesi.codec.ComponentCodec;
 import org.javesi.component.Component;
+import org.javesi.component.SharedComponent;
 import org.javesi.component.SingletonComponent;
-import org.javesi.exception.ComponentHashNotUniqueException;
 import org.javesi.exception.InvalidComponentTypeException;
 import org.javesi.id.EntityIdGenerator;
-import org.javesi.util.HashOrderComparator;
-import org.javesi.util.SingletonSet;
-
+import org.javesi.pool.ComponentPool;
+import org.javesi.pool.ComponentRecycler;
+import org.javesi.prefab.ComponentCopier;
+import org.javesi.prefab.Prefab;
+import org.javesi.relation.RelationType;
+import org.javesi.status.ColdStorageStatistics;
+import org.javesi.status.StoreFootprint;
+import org.javesi.util.LongHashMap;
+import org.javesi.util.TimingWheel;
+
+import java.io.File;
 import java.text.SimpleDateFormat;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -16,12 +27,18 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
 import java.util.TreeMap;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Encapsulates an entity system with a fixed number of known components. The entity system encompasses the knowledge
@@ -41,6 +58,8 @@ public final class EntitySystem
 
     private final static String SEP = System.getProperty("line.separator");
 
+    private final static ChangeListener[] NO_LISTENERS = new ChangeListener[0];
+
     private static org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(EntitySystem.class);
     /**
      * Id generator to be used for this system. Can be changed by calling {@link #setEntityName(Entity, String)} before
@@ -49,99 +68,719 @@ public final class EntitySystem
     private final EntityIdGenerator idGenerator;
     private final int numberOfComponentTypes;
     /**
-     * Array of Maps. Index is the index position in componentTypesInHashOrder, the maps map
-     * all entities having that component type to the component of that type.
+     * Array of component stores. Index is the type index in componentTypes, the stores map
+     * all entities having that component type to the component of that type. Stores are created on first use, so
+     * entries are <code>null</code> for component types that were never used.
+     */
+    private final ComponentStore[] componentStores;
+    /**
+     * Optional component pools, same index as the component stores.
+     */
+    private final ComponentPool[] componentPools;
+    private final Set<Entity> entitySetRO = new EntitySet();
+    /**
+     * Maps entity ids to entities. primary tracker of existing entities, the entity names are kept in the entities.
+     */
+    private final LongHashMap<Entity> entitiesById;
+    /**
+     * Dense indexes of the living entities, used by the tag component stores.
+     */
+    private final EntityIndex entityIndex = new EntityIndex();
+    /**
+     * Entity counters maintained for the status, only changed while holding the world lock.
+     */
+    private final AtomicInteger entityCount = new AtomicInteger();
+    private final AtomicInteger entityHighWaterMark = new AtomicInteger();
+    private final AtomicLong entitiesCreated = new AtomicLong();
+    private final AtomicLong entitiesKilled = new AtomicLong();
+    private final AtomicLong componentsAdded = new AtomicLong();
+    private final AtomicLong componentsRemoved = new AtomicLong();
+    /**
+     * Component types sorted by name, so that type indexes are the same across processes and restarts.
+     */
+    private final ComponentTypeIndex componentTypes;
+    /**
+     * Registered change listeners. Replaced on registration so that iterating over it never needs an iterator.
      */
-    private final ConcurrentMap<Entity, Component> componentStore[];
-    private final Map<Entity, Component> componentStoreRO[];
-    private final Collection<Component> componentValuesRO[];
-    private final SingletonComponentConnection[] singletonConnections;
-    private final Set<Entity> entitySetRO;
+    private ChangeListener[] changeListeners = NO_LISTENERS;
     /**
-     * Maps entities to their names or <code>null</code>. primary tracker of existing entities.
+     * Relation stores by relation type, created on first use.
      */
-    private final ConcurrentMap<Entity, String> entitiesToNames;
-    private Class<? extends Component>[] componentTypesInHashOrder;
+    private final Map<RelationType, RelationStore> relations = new IdentityHashMap<RelationType, RelationStore>();
+    /**
+     * Prefabs resolved on their first instantiation.
+     */
+    private final Map<Prefab, ResolvedPrefab> prefabs = new IdentityHashMap<Prefab, ResolvedPrefab>();
+    /**
+     * Scheduled component removals and entity kills, created on first use.
+     */
+    private TimingWheel<Expiry> expiryWheel;
+    /**
+     * Pending expiries by component type index, the last entry holds the entity kills. Replaced or cancelled expiries
+     * stay in the wheel and are ignored when they are due.
+     */
+    private Map<Entity, Expiry>[] expiries;
+    private long clock;
 
+    /**
+     * Stores filled less than this ratio are compacted automatically at the end of a job, 0 to disable.
+     */
+    private final float compactionFillRatio;
+    /**
+     * Initial configuration of the component map stores, which are created on first use.
+     */
+    private final int componentMapCapacity;
+    private final float componentMapLoadFactor;
+    private final int componentMapConcurrencyLevel;
 
     /**
-     * Constructs a new entity system from a set of component classes with the additional restriction that the
-     * hash codes of all classes must be unique.
+     * Constructs a new entity system from a set of component classes.
      *
-     * @throws org.javesi.exception.ComponentHashNotUniqueException
-     *          if there are non-unique hash codes
+     * @throws InvalidComponentTypeException if a component type is invalid
      */
     public EntitySystem(EntitySystemConfig config)
     {
         this.idGenerator = config.getIdGenerator();
+        this.compactionFillRatio = config.getCompactionFillRatio();
+        this.componentMapCapacity = config.getComponentMapCapacity();
+        this.componentMapLoadFactor = config.getComponentMapLoadFactor();
+        this.componentMapConcurrencyLevel = config.getComponentMapConcurrencyLevel();
 
-        Set<Class<? extends Component>> componentClasses = config.getComponentClasses();
-        numberOfComponentTypes = componentClasses.size();
+        componentTypes = config.getComponentTypeIndex() != null ? config.getComponentTypeIndex() :
+            new ComponentTypeIndex(config.getComponentClasses());
+        numberOfComponentTypes = componentTypes.size();
 
-        componentStore = new ConcurrentMap[numberOfComponentTypes];
-        singletonConnections = new SingletonComponentConnection[numberOfComponentTypes];
-        componentStoreRO = new Map[numberOfComponentTypes];
-        componentValuesRO = new Collection[numberOfComponentTypes];
+        componentStores = new ComponentStore[numberOfComponentTypes];
+        componentPools = new ComponentPool[numberOfComponentTypes];
 
-        entitiesToNames = new ConcurrentHashMap<Entity, String>(config.getEntityMapCapacity(),
-            config.getEntityMapLoadFactor(), config.getEntityMapConcurrencyLevel());
-        ;
-        entitySetRO = Collections.unmodifiableSet(entitiesToNames.keySet());
+        entitiesById = new LongHashMap<Entity>(config.getEntityMapCapacity(), config.getEntityMapLoadFactor());
+    }
 
-        componentTypesInHashOrder = getSortedComponentTypes(componentClasses);
+    /**
+     * Returns the store for the component type with the given index, creating it on first use.
+     */
+    private ComponentStore store(int index)
+    {
+        ComponentStore store = componentStores[index];
+        if (store == null)
+        {
+            Class<? extends Component> componentType = componentTypes.typeAt(index);
+            switch (componentTypes.kindAt(index))
+            {
+                case ComponentTypeIndex.TAG:
+                    store = new TagComponentStore(componentType, entityIndex);
+                    break;
+                case ComponentTypeIndex.SHARED:
+                    store = new SharedComponentStore(componentType, entityIndex);
+                    break;
+                case ComponentTypeIndex.SINGLETON:
+                    store = new SingletonComponentStore(componentType);
+                    break;
+                default:
+                    store = new MapComponentStore(componentType, componentMapCapacity, componentMapLoadFactor,
+                        componentMapConcurrencyLevel);
+                    break;
+            }
+            componentStores[index] = store;
+        }
+        return store;
+    }
 
+    /**
+     * Returns an object representing the current entity system status. Pretty-prints via toString()
+     * <p>
+     *     The status is built from maintained counters, so this is cheap even for big entity systems and can be called
+     *     from any thread without executing a job. The memory footprints are estimates assuming a 64 bit JVM with
+     *     compressed oops.
+     * </p>
+     * @return
+     */
+    public EntitySystem.Status getStatus()
+    {
+        Map<String, Integer> componentMapSizes = new TreeMap<String, Integer>();
+        Map<String, StoreFootprint> storeFootprints = new TreeMap<String, StoreFootprint>();
+        Map<String, ColdStorageStatistics> coldStorage = new TreeMap<String, ColdStorageStatistics>();
 
         for (int i = 0; i < numberOfComponentTypes; i++)
         {
-            Class<? extends Component> componentType = componentTypesInHashOrder[i];
+            ComponentStore store = componentStores[i];
+            String name = componentTypes.typeAt(i).getName();
+            if (store == null)
+            {
+                // not used yet
+                componentMapSizes.put(name, 0);
+                storeFootprints.put(name, new StoreFootprint(name, 0, 0, 0, 0, 0, 0));
+                continue;
+            }
 
-            // initialize map for non-singletons. also acts as signal later
-            if (!SingletonComponent.class.isAssignableFrom(componentType))
+            componentMapSizes.put(name, store.size());
+            storeFootprints.put(name, store.footprint());
+            if (store instanceof TieredComponentStore)
             {
-                ConcurrentHashMap<Entity, Component> newMap = new ConcurrentHashMap<Entity,
-                    Component>(config.getComponentMapCapacity(), config.getComponentMapLoadFactor(),
-                    config.getComponentMapConcurrencyLevel());
-                componentStore[i] = newMap;
+                coldStorage.put(name, ((TieredComponentStore) store).statistics());
+            }
+        }
 
-                Map<Entity, Component> entityComponentMap = Collections.unmodifiableMap(newMap);
-                componentStoreRO[i] = entityComponentMap;
-                componentValuesRO[i] = Collections.unmodifiableCollection(newMap.values());
+        return new Status(entityCount.get(), entitiesCreated.get(), entitiesKilled.get(), componentsAdded.get(),
+            componentsRemoved.get(), componentMapSizes, entityRegistryFootprint(), storeFootprints, coldStorage);
+    }
+
+    /**
+     * Returns the number of living entities. Like the following status methods, it reads a single maintained counter
+     * and can be called from any thread without building the whole {@link #getStatus() status}.
+     */
+    public int getEntityCount()
+    {
+        return entityCount.get();
+    }
+
+    /**
+     * Returns the highest number of entities that lived at the same time.
+     */
+    public int getEntityHighWaterMark()
+    {
+        return entityHighWaterMark.get();
+    }
+
+    /**
+     * Returns the total number of entities created since the entity system was created.
+     */
+    public long getEntitiesCreated()
+    {
+        return entitiesCreated.get();
+    }
+
+    /**
+     * Returns the total number of entities killed since the entity system was created.
+     */
+    public long getEntitiesKilled()
+    {
+        return entitiesKilled.get();
+    }
+
+    /**
+     * Returns the number of components by component type name.
+     */
+    public Map<String, Integer> getComponentCounts()
+    {
+        Map<String, Integer> componentCounts = new TreeMap<String, Integer>();
+        for (int i = 0; i < numberOfComponentTypes; i++)
+        {
+            ComponentStore store = componentStores[i];
+            componentCounts.put(componentTypes.typeAt(i).getName(), store != null ? store.size() : 0);
+        }
+        return componentCounts;
+    }
+
+    /**
+     * Returns the estimated total bytes of the entity registry and all component stores.
+     */
+    public long getEstimatedBytes()
+    {
+        long bytes = entityRegistryFootprint().getEstimatedBytes();
+        for (ComponentStore store : componentStores)
+        {
+            if (store != null)
+            {
+                bytes += store.footprint().getEstimatedBytes();
             }
         }
+        return bytes;
     }
 
+    private StoreFootprint entityRegistryFootprint()
+    {
+        int size = entityCount.get();
+        int capacity = entitiesById.capacity();
+
+        // id map keys and values plus the entity index and its free list
+        long overhead = ComponentStore.align(ComponentStore.OBJECT_HEADER + 4 + capacity * 8L) +
+            ComponentStore.align(ComponentStore.OBJECT_HEADER + 4 + (long) capacity * ComponentStore.REFERENCE) +
+            2 * ComponentStore.align(ComponentStore.OBJECT_HEADER + 4 + (long) entityIndex.capacity() *
+                ComponentStore.REFERENCE);
+        int entitySize = ComponentStore.shallowSize(Entity.class);
+        return new StoreFootprint("entities", size, entityHighWaterMark.get(), capacity, overhead, entitySize,
+            overhead + (long) size * entitySize);
+    }
+
+    EntitySystemInterface getInterface(EntitySystemConfig config)
+    {
+        return new EntitySystemInterface(this, config);
+    }
+
+    //// COMPONENT POOL METHODS //////////////////////////////////////////
+
     /**
-     * Returns an object representing the current entity system status. Pretty-prints via toString()
-     * @return
+     * Registers a pool for the given component type. From now on, components of that type removed from entities are
+     * reset and returned to the pool. Use {@link #obtainComponent(Class)} to get instances from the pool.
+     * <p>
+     *     Do not keep references to pooled components after removing them or killing their entity.
+     * </p>
+     *
+     * @param componentType component type
+     * @param recycler      creates and resets instances
+     * @param capacity      maximum number of pooled instances
+     * @return the new pool
      */
-    public EntitySystem.Status getStatus()
+    public <T extends Component> ComponentPool<T> registerComponentPool(Class<T> componentType,
+                                                                       ComponentRecycler<T> recycler, int capacity)
     {
-        int entityMapSize = entitiesToNames.size();
+        if (!(store(getTypeIndex(componentType)) instanceof MapComponentStore))
+        {
+            throw new InvalidComponentTypeException("Singleton, tag, shared and cold stored components can't be " +
+                "pooled: " + componentType);
+        }
 
-        Map<String, Integer> componentMapSizes = new TreeMap<String, Integer>();
+        ComponentPool<T> pool = new ComponentPool<T>(recycler, capacity);
+        componentPools[getTypeIndex(componentType)] = pool;
+        return pool;
+    }
 
-        for (int i = 0; i < componentTypesInHashOrder.length ; i++)
+    /**
+     * Returns a component instance of the given type from the registered pool of that type.
+     *
+     * @param componentType component type
+     * @return pooled or new component
+     * @throws InvalidComponentTypeException if no pool is registered for the type.
+     */
+    public <T extends Component> T obtainComponent(Class<T> componentType)
+    {
+        ComponentPool<T> pool = componentPools[getTypeIndex(componentType)];
+        if (pool == null)
         {
-            Class<? extends Component> cls = componentTypesInHashOrder[i];
-            ConcurrentMap<Entity, Component> map = componentStore[i];
+            throw new InvalidComponentTypeException("No component pool registered for " + componentType);
+        }
+        return pool.obtain();
+    }
 
-            if (map == null)
+    /**
+     * Returns the given component no longer used by an entity to its pool if there is one.
+     */
+    private void recycle(int typeIndex, Component component)
+    {
+        ComponentPool pool = componentPools[typeIndex];
+        if (pool != null)
+        {
+            pool.release(component);
+        }
+    }
+
+    //// COLD STORAGE METHODS ////////////////////////////////////////////
+
+    /**
+     * Moves the given component type to a tiered store that keeps at most <code>hotCapacity</code> components on the
+     * heap. The least recently used components beyond that are encoded into a file in the given directory and
+     * transparently read back by {@link #getComponent(Entity, Class)}. Meant for big, rarely accessed components.
+     * <p>
+     *     The hit, miss and eviction counts are part of the {@link #getStatus() status}.
+     * </p>
+     *
+     * @param componentType component type
+     * @param codec         codec to encode the cold components with
+     * @param directory     directory for the cold storage file or <code>null</code> for the temp directory
+     * @param hotCapacity   maximum number of components kept on the heap
+     */
+    public <T extends Component> void enableColdStorage(Class<T> componentType, ComponentCodec<T> codec,
+                                                        File directory, int hotCapacity)
+    {
+        int index = getTypeIndex(componentType);
+        ComponentStore store = store(index);
+        if (!(store instanceof MapComponentStore) || componentPools[index] != null)
+        {
+            throw new InvalidComponentTypeException("Cold storage is only supported for plain, unpooled component " +
+                "types: " + componentType.getName());
+        }
+
+        TieredComponentStore tieredStore = new TieredComponentStore(componentType, codec, directory, hotCapacity);
+        for (Map.Entry<Entity, Component> e : store.entityToComponentMap().entrySet())
+        {
+            tieredStore.put(e.getKey(), e.getValue());
+        }
+        componentStores[index] = tieredStore;
+    }
+
+    //// RELATION METHODS ////////////////////////////////////////////////
+
+    /**
+     * Relates the given source entity to the given target, replacing a former relation of the same type. Relations
+     * are removed when either entity is killed.
+     *
+     * @throws IllegalArgumentException if the relation type kills in cascades and the relation would form a cycle.
+     */
+    public void relate(Entity source, RelationType type, Entity target)
+    {
+        assert source.isAlive() : "Entity " + nameFor(source) + " is dead.";
+        assert target.isAlive() : "Entity " + nameFor(target) + " is dead.";
+
+        RelationStore relation = relations.get(type);
+        if (relation == null)
+        {
+            relation = new RelationStore(type);
+            relations.put(type, relation);
+        }
+
+        if (type.isCascadingKill())
+        {
+            for (Entity e = target; e != null; e = relation.getTarget(e))
             {
-                componentMapSizes.put(cls.getName(), singletonConnections[i] != null ? 1 : 0);
+                if (e.getId() == source.getId())
+                {
+                    throw new IllegalArgumentException("Relating " + source + " to " + target + " would form a " +
+                        type.getName() + " cycle");
+                }
             }
-            else
+        }
+
+        relation.put(source, target);
+    }
+
+    public void relate(long sourceId, RelationType type, long targetId)
+    {
+        relate(existingEntity(sourceId), type, existingEntity(targetId));
+    }
+
+    /**
+     * Removes the relation of the given type from the given source entity.
+     *
+     * @return former target or <code>null</code>
+     */
+    public Entity unrelate(Entity source, RelationType type)
+    {
+        RelationStore relation = relations.get(type);
+        return relation != null ? relation.remove(source) : null;
+    }
+
+    /**
+     * Returns the entity the given source is related to or <code>null</code>.
+     */
+    public Entity getRelationTarget(Entity source, RelationType type)
+    {
+        RelationStore relation = relations.get(type);
+        return relation != null ? relation.getTarget(source) : null;
+    }
+
+    /**
+     * Returns a read-only view of the entities related to the given target. Takes time proportional to the number of
+     * related entities to iterate.
+     */
+    public Set<Entity> getRelationSources(Entity target, RelationType type)
+    {
+        RelationStore relation = relations.get(type);
+        return relation != null ? relation.getSources(target) : Collections.<Entity>emptySet();
+    }
+
+    /**
+     * Makes the given entity a child of the given parent, or removes it from its parent if the parent is
+     * <code>null</code>. Children are killed with their parent.
+     *
+     * @see RelationType#CHILD_OF
+     */
+    public void setParent(Entity child, Entity parent)
+    {
+        if (parent != null)
+        {
+            relate(child, RelationType.CHILD_OF, parent);
+        }
+        else
+        {
+            unrelate(child, RelationType.CHILD_OF);
+        }
+    }
+
+    public Entity getParent(Entity child)
+    {
+        return getRelationTarget(child, RelationType.CHILD_OF);
+    }
+
+    public Set<Entity> getChildren(Entity parent)
+    {
+        return getRelationSources(parent, RelationType.CHILD_OF);
+    }
+
+    /**
+     * Returns the entities having the given component type which are related to an entity having the given target
+     * component type, e.g. all entities with a weapon whose parent is a player. Iterates over the smaller of the two
+     * sides.
+     *
+     * @param componentType         component type of the returned entities
+     * @param type                  relation type
+     * @param targetComponentType   component type of the related entities
+     * @return new set of matching entities
+     */
+    public Set<Entity> findRelatedEntities(Class<? extends Component> componentType, RelationType type,
+                                           Class<? extends Component> targetComponentType)
+    {
+        Set<Entity> result = new HashSet<Entity>();
+        RelationStore relation = relations.get(type);
+        if (relation == null)
+        {
+            return result;
+        }
+
+        int typeIndex = getTypeIndex(componentType);
+        int targetTypeIndex = getTypeIndex(targetComponentType);
+
+        Set<Entity> candidates = findEntitiesWithComponent(componentType);
+        if (candidates.size() <= relation.size())
+        {
+            for (Entity entity : candidates)
+            {
+                Entity target = relation.getTarget(entity);
+                if (target != null && hasComponentInternal(target, targetTypeIndex))
+                {
+                    result.add(entity);
+                }
+            }
+        }
+        else
+        {
+            for (Entity target : relation.targets())
             {
-                componentMapSizes.put(cls.getName(), map.size());
+                if (hasComponentInternal(target, targetTypeIndex))
+                {
+                    for (Entity source : relation.getSources(target))
+                    {
+                        if (hasComponentInternal(source, typeIndex))
+                        {
+                            result.add(source);
+                        }
+                    }
+                }
             }
+        }
+        return result;
+    }
+
+    //// CHANGE LISTENER METHODS /////////////////////////////////////////
+
+    /**
+     * Registers a listener to be notified of all structural changes made to this entity system from now on.
+     *
+     * @param listener listener
+     */
+    public void addChangeListener(ChangeListener listener)
+    {
+        ChangeListener[] listeners = Arrays.copyOf(changeListeners, changeListeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        changeListeners = listeners;
+    }
 
+    /**
+     * Removes a formerly registered change listener.
+     *
+     * @param listener listener
+     */
+    public void removeChangeListener(ChangeListener listener)
+    {
+        List<ChangeListener> listeners = new ArrayList<ChangeListener>(Arrays.asList(changeListeners));
+        listeners.remove(listener);
+        changeListeners = listeners.toArray(new ChangeListener[listeners.size()]);
+    }
+
+    /**
+     * Called by the entity system interface at the end of each job.
+     */
+    void commitChanges()
+    {
+        for (ChangeListener listener : changeListeners)
+        {
+            listener.changesCommitted();
+        }
+
+        if (compactionFillRatio > 0)
+        {
+            compact(compactionFillRatio);
+        }
+    }
+
+    //// COMPACTION //////////////////////////////////////////////////////
+
+    /**
+     * Shrinks the entity registry and all stores that have grown to fit their current size, e.g. after a mass entity
+     * death.
+     * Reassigns the entity indexes and reorders the component data in entity id order where the store allows it, so
+     * that later scans are sequential.
+     * <p>
+     *     Collection views obtained from the entity system before must not be used after compacting.
+     * </p>
+     */
+    public void compact()
+    {
+        compact(1f);
+    }
+
+    /**
+     * Compacts the entity registry and all stores that are filled less than the given ratio.
+     */
+    private void compact(float minFillRatio)
+    {
+        if (entitiesById.needsTrim(minFillRatio))
+        {
+            entitiesById.trim();
+        }
+
+        if (entityIndex.needsCompaction(minFillRatio))
+        {
+            int[] newIndexes = entityIndex.compact();
+            for (ComponentStore store : componentStores)
+            {
+                if (store != null)
+                {
+                    store.reindex(newIndexes, entityIndex.limit());
+                }
+            }
+            log.debug("Compacted entity index to {} entities", entityIndex.limit());
+        }
+
+        for (ComponentStore store : componentStores)
+        {
+            if (store != null && store.needsCompaction(minFillRatio))
+            {
+                store.compact();
+                log.debug("Compacted store {} to {} components", store.componentType.getName(), store.size());
+            }
+        }
+    }
+
+    //// EXPIRY METHODS //////////////////////////////////////////////////
+
+    /**
+     * Adds the given component to the given entity and removes it again once the clock has been advanced by the given
+     * time to live. Adding a component of the same type again or removing it cancels the expiry.
+     *
+     * @param entity    entity
+     * @param component component
+     * @param ttl       time to live in the unit the clock is advanced with
+     *
+     * @see #advanceClock(long)
+     */
+    public <T extends Component> void addComponent(Entity entity, T component, long ttl)
+    {
+        addComponent(entity, component);
+        scheduleExpiry(entity, getTypeIndex(component.getClass()), ttl);
+    }
+
+    /**
+     * Kills the given entity once the clock has been advanced by the given time to live.
+     *
+     * @param entity    entity
+     * @param ttl       time to live in the unit the clock is advanced with
+     *
+     * @see #advanceClock(long)
+     */
+    public void killEntityAfter(Entity entity, long ttl)
+    {
+        assert entity.isAlive() : "Entity " + nameFor(entity) + " is dead.";
+
+        scheduleExpiry(entity, numberOfComponentTypes, ttl);
+    }
+
+    /**
+     * Returns the current expiry clock.
+     */
+    public long getClock()
+    {
+        return clock;
+    }
+
+    /**
+     * Advances the expiry clock, which starts at 0, to the given time and removes all components and kills all entities
+     * whose time to live has run out. The unit is up to the caller, e.g. world ticks or milliseconds. Takes time
+     * proportional to the number of expiries, not to the elapsed time.
+     *
+     * @param time  new clock time
+     * @return number of expired components and entities
+     * @throws IllegalArgumentException if the time is before the current clock time.
+     */
+    public int advanceClock(long time)
+    {
+        if (expiryWheel == null)
+        {
+            if (time < clock)
+            {
+                throw new IllegalArgumentException("Cannot advance the clock from " + clock + " back to " + time);
+            }
+            clock = time;
+            return 0;
+        }
+
+        List<Expiry> due = new ArrayList<Expiry>();
+        expiryWheel.advance(time, due);
+        clock = time;
+
+        int count = 0;
+        for (Expiry expiry : due)
+        {
+            Entity entity = expiry.entity;
+            Map<Entity, Expiry> pending = expiries[expiry.typeIndex];
+            if (pending.get(entity) != expiry)
+            {
+                // cancelled or rescheduled
+                continue;
+            }
+            pending.remove(entity);
+
+            if (expiry.typeIndex == numberOfComponentTypes)
+            {
+                killEntity(entity);
+                count++;
+            }
+            else if (hasComponentInternal(entity, expiry.typeIndex))
+            {
+                removeComponent(entity, componentTypes.typeAt(expiry.typeIndex));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void scheduleExpiry(Entity entity, int index, long ttl)
+    {
+        if (ttl < 0)
+        {
+            throw new IllegalArgumentException("Invalid time to live " + ttl);
+        }
+
+        if (expiryWheel == null)
+        {
+            expiryWheel = new TimingWheel<Expiry>(clock);
+            expiries = new Map[numberOfComponentTypes + 1];
         }
 
-        return new Status(entityMapSize, componentMapSizes);
+        Map<Entity, Expiry> pending = expiries[index];
+        if (pending == null)
+        {
+            pending = new HashMap<Entity, Expiry>();
+            expiries[index] = pending;
+        }
+
+        Expiry expiry = new Expiry(entity, index);
+        pending.put(entity, expiry);
+        expiryWheel.schedule(expiry, clock + ttl);
     }
 
-    EntitySystemInterface getInterface()
+    private void cancelExpiry(Entity entity, int index)
     {
-        return new EntitySystemInterface(this);
+        Map<Entity, Expiry> pending = expiries[index];
+        if (pending != null)
+        {
+            pending.remove(entity);
+        }
+    }
+
+    /**
+     * Scheduled removal of the component with the given type index from an entity or kill of the entity.
+     */
+    private static class Expiry
+    {
+        final Entity entity;
+        final int typeIndex;
+
+        Expiry(Entity entity, int typeIndex)
+        {
+            this.entity = entity;
+            this.typeIndex = typeIndex;
+        }
     }
 
     //// ENTITY METHODS //////////////////////////////////////////////////
@@ -164,7 +803,19 @@ public final class EntitySystem
     public String nameFor(Entity entity)
     {
         // no assert since its used by other assert error reporting
-        return entitiesToNames.get(entity);
+        Entity registered = entitiesById.get(entity.getId());
+        return registered != null ? registered.getName() : null;
+    }
+
+    /**
+     * Returns the living entity with the given id or <code>null</code>. Does not allocate.
+     *
+     * @param id    entity id
+     * @return entity or <code>null</code>
+     */
+    public Entity getEntity(long id)
+    {
+        return entitiesById.get(id);
     }
 
     public Set<Entity> entities()
@@ -174,165 +825,470 @@ public final class EntitySystem
 
     public void killEntity(Entity entity)
     {
-        String name = entitiesToNames.remove(entity);
         assert entity.isAlive() : "Entity " + nameFor(entity) + " is dead.";
-        assert name != null : "Entity " + entity + " not found.";
+        Entity registered = entitiesById.remove(entity.getId());
+        assert registered != null : "Entity " + entity + " not found.";
 
         entity.setAlive(false);
+        if (registered != null)
+        {
+            entityCount.lazySet(entityCount.get() - 1);
+            count(entitiesKilled);
+        }
 
         for (int i = 0; i < numberOfComponentTypes; i++)
         {
-            ConcurrentMap<Entity, Component> map = componentStore[i];
-            if (map == null)
+            ComponentStore store = componentStores[i];
+            Component component = store != null ? store.remove(entity) : null;
+            if (component != null)
+            {
+                count(componentsRemoved);
+                recycle(i, component);
+            }
+        }
+        entityIndex.remove(entity);
+
+        if (expiries != null)
+        {
+            for (int i = 0; i <= numberOfComponentTypes; i++)
+            {
+                cancelExpiry(entity, i);
+            }
+        }
+
+        for (ChangeListener listener : changeListeners)
+        {
+            listener.entityKilled(entity);
+        }
+
+        if (!relations.isEmpty())
+        {
+            removeRelations(entity);
+        }
+    }
+
+    /**
+     * Removes all relations of the given killed entity and kills the entities related to it by cascading relations.
+     */
+    private void removeRelations(Entity entity)
+    {
+        List<Entity> dependents = null;
+        for (RelationStore relation : relations.values())
+        {
+            relation.remove(entity);
+            Set<Entity> sources = relation.removeTarget(entity);
+            if (relation.type.isCascadingKill() && !sources.isEmpty())
             {
-                SingletonComponentConnection connection = singletonConnections[i];
-                if (connection != null && connection.entity.getId() == entity.getId())
+                if (dependents == null)
                 {
-                    singletonConnections[i] = null;
+                    dependents = new ArrayList<Entity>();
                 }
+                dependents.addAll(sources);
             }
-            else
+        }
+
+        if (dependents != null)
+        {
+            for (Entity dependent : dependents)
+            {
+                // might have been killed by another cascade already
+                if (dependent.isAlive())
+                {
+                    killEntity(dependent);
+                }
+            }
+        }
+    }
+
+    /**
+     * Kills the entity with the given id.
+     *
+     * @throws IllegalArgumentException if there is no entity with the given id.
+     */
+    public void killEntity(long id)
+    {
+        killEntity(existingEntity(id));
+    }
+
+    public void setEntityName(Entity entity, String name)
+    {
+        assert entity.isAlive() : "Entity " + nameFor(entity) + " is dead.";
+        if (name == null)
+        {
+            name = UNNAMED;
+        }
+
+        Entity registered = entitiesById.get(entity.getId());
+        assert registered != null : "Entity " + entity + " does not exist.";
+        registered.setName(name);
+
+        for (ChangeListener listener : changeListeners)
+        {
+            listener.entityNameChanged(entity, externalName(name));
+        }
+    }
+
+    /**
+     * Recreates an entity with a known id, e.g. when recovering the entity system state from a journal. The id
+     * generator will only generate ids greater than the given id from then on.
+     *
+     * @param id    entity id
+     * @param name  entity name or <code>null</code>
+     * @return restored entity
+     * @throws IllegalArgumentException if there already is an entity with the given id.
+     */
+    public Entity restoreEntity(long id, String name)
+    {
+        if (entitiesById.containsKey(id))
+        {
+            throw new IllegalArgumentException("Entity with id " + id + " already exists");
+        }
+
+        Entity entity = new Entity(id);
+        entity.setName(name != null ? name : UNNAMED);
+        entitiesById.put(id, entity);
+        idGenerator.ensureAbove(id);
+        entityAdded(entity);
+
+        for (ChangeListener listener : changeListeners)
+        {
+            listener.entityCreated(entity, externalName(name));
+        }
+        return entity;
+    }
+
+    //// PREFAB METHODS //////////////////////////////////////////////////
+
+    /**
+     * Creates a new entity from the given prefab.
+     */
+    public Entity instantiate(Prefab prefab)
+    {
+        return instantiate(prefab, 1)[0];
+    }
+
+    /**
+     * Creates the given number of entities from the given prefab. The prefab is resolved on its first instantiation,
+     * the component type indexes and stores are looked up once per call, and the entity ids are reserved as one block
+     * if the id generator supports it.
+     *
+     * @param prefab    prefab
+     * @param count     number of entities to create
+     * @return the new entities
+     * @throws InvalidComponentTypeException if the prefab contains unknown or singleton component types or pooled
+     *                                       component types without a copier.
+     */
+    public Entity[] instantiate(Prefab prefab, int count)
+    {
+        ResolvedPrefab resolved = prefabs.get(prefab);
+        if (resolved == null)
+        {
+            resolved = new ResolvedPrefab(prefab);
+            prefabs.put(prefab, resolved);
+        }
+
+        int size = resolved.prototypes.length;
+        ComponentStore[] stores = new ComponentStore[size];
+        for (int i = 0; i < size; i++)
+        {
+            stores[i] = store(resolved.typeIndexes[i]);
+            if (resolved.copiers[i] == null && componentPools[resolved.typeIndexes[i]] != null)
+            {
+                // the shared prototype would be recycled with the first entity removing it
+                throw new InvalidComponentTypeException("Prefab " + prefab.getName() + " needs a copier for the " +
+                    "pooled component " + resolved.prototypes[i].getClass().getName());
+            }
+        }
+
+        Entity[] entities = new Entity[count];
+        long firstId = idGenerator.reserveIds(count);
+        for (int i = 0; i < count; i++)
+        {
+            Entity entity = new Entity(firstId >= 0 ? firstId + i : idGenerator.getNextEntityId());
+            entity.setName(UNNAMED);
+            entitiesById.put(entity.getId(), entity);
+            entityAdded(entity);
+            for (ChangeListener listener : changeListeners)
+            {
+                listener.entityCreated(entity, null);
+            }
+
+            for (int j = 0; j < size; j++)
+            {
+                ComponentCopier copier = resolved.copiers[j];
+                Component component = copier != null ? copier.copy(resolved.prototypes[j]) : resolved.prototypes[j];
+                stores[j].put(entity, component);
+                for (ChangeListener listener : changeListeners)
+                {
+                    listener.componentAdded(entity, component);
+                }
+            }
+            entities[i] = entity;
+        }
+        componentsAdded.lazySet(componentsAdded.get() + (long) count * size);
+        return entities;
+    }
+
+    /**
+     * Prefab with its component types resolved to type indexes.
+     */
+    private class ResolvedPrefab
+    {
+        final Component[] prototypes;
+        final ComponentCopier[] copiers;
+        final int[] typeIndexes;
+
+        ResolvedPrefab(Prefab prefab)
+        {
+            prototypes = prefab.getPrototypes().toArray(new Component[prefab.getPrototypes().size()]);
+            copiers = prefab.getCopiers().toArray(new ComponentCopier[prototypes.length]);
+            typeIndexes = new int[prototypes.length];
+            for (int i = 0; i < prototypes.length; i++)
             {
-                map.remove(entity);
+                typeIndexes[i] = getTypeIndex(prototypes[i].getClass());
+                if (componentTypes.kindAt(typeIndexes[i]) == ComponentTypeIndex.SINGLETON)
+                {
+                    throw new InvalidComponentTypeException("Prefab " + prefab.getName() +
+                        " must not contain singleton component " + prototypes[i].getClass().getName());
+                }
             }
         }
     }
-    public void setEntityName(Entity entity, String name)
+
+    private Entity createAndRegisterEntity(String name)
+    {
+        Entity entity = new Entity(idGenerator.getNextEntityId());
+        entity.setName(name);
+        entitiesById.put(entity.getId(), entity);
+        entityAdded(entity);
+
+        for (ChangeListener listener : changeListeners)
+        {
+            listener.entityCreated(entity, externalName(name));
+        }
+        return entity;
+    }
+
+    private void entityAdded(Entity entity)
     {
-        assert entity.isAlive() : "Entity " + nameFor(entity) + " is dead.";
-        if (name == null)
+        entityIndex.add(entity);
+
+        // single writer: lazySet is enough to publish the new values to readers
+        int count = entityCount.get() + 1;
+        entityCount.lazySet(count);
+        count(entitiesCreated);
+        if (count > entityHighWaterMark.get())
         {
-            name = UNNAMED;
+            entityHighWaterMark.lazySet(count);
         }
+    }
 
-        String oldName = entitiesToNames.replace(entity, name);
+    private static void count(AtomicLong counter)
+    {
+        // single writer: lazySet is enough to publish the new value to readers
+        counter.lazySet(counter.get() + 1);
+    }
 
-        // there are no null names in our map, so a null means "No entity" here.
-        assert oldName != null : "Entity " + entity + " does not exist.";
+    /**
+     * Returns the total number of structural changes (created and killed entities, added and removed components) made
+     * since the entity system was created.
+     */
+    long getStructuralChanges()
+    {
+        return entitiesCreated.get() + entitiesKilled.get() + componentsAdded.get() + componentsRemoved.get();
     }
 
-    private Entity createAndRegisterEntity(String name)
+    private Entity existingEntity(long id)
     {
-        Entity entity = new Entity(idGenerator.getNextEntityId());
-        entitiesToNames.put(entity, name);
+        Entity entity = entitiesById.get(id);
+        if (entity == null)
+        {
+            throw new IllegalArgumentException("Entity with id " + id + " does not exist");
+        }
         return entity;
     }
 
+    /**
+     * Returns the given internal name or <code>null</code> for unnamed entities.
+     */
+    private static String externalName(String name)
+    {
+        return name == null || UNNAMED.equals(name) ? null : name;
+    }
+
 
     //// COMPONENT METHODS ///////////////////////////////////////////////
 
     public <T extends Component> void addComponent(Entity entity, T component)
     {
         assert entity.isAlive() : "Entity " + nameFor(entity) + " is dead.";
-        assert entitiesToNames.containsKey(entity) : "Entity " + entity + " not found.";
+        assert entitiesById.containsKey(entity.getId()) : "Entity " + entity + " not found.";
 
         Class<? extends Component> componentType = component.getClass();
         int index = getTypeIndex(componentType);
+        if (expiries != null)
+        {
+            cancelExpiry(entity, index);
+        }
 
-        if (SingletonComponent.class.isAssignableFrom(componentType))
+        ComponentStore store = store(index);
+        if (store instanceof SingletonComponentStore)
         {
-            singletonConnections[index] = new SingletonComponentConnection((SingletonComponent) component, entity);
+            Entity formerOwner = ((SingletonComponentStore) store).getOwner();
+            if (store.put(entity, component) == null)
+            {
+                count(componentsAdded);
+            }
+
+            if (formerOwner != null && formerOwner.getId() != entity.getId())
+            {
+                // the singleton moves on from its former entity
+                count(componentsRemoved);
+                for (ChangeListener listener : changeListeners)
+                {
+                    listener.componentRemoved(formerOwner, componentType);
+                }
+            }
         }
         else
         {
-            componentStore[index].put(entity, component);
+            Component former = store.put(entity, component);
+            if (former == null)
+            {
+                count(componentsAdded);
+            }
+            else if (former != component)
+            {
+                recycle(index, former);
+            }
+        }
+
+        for (ChangeListener listener : changeListeners)
+        {
+            listener.componentAdded(entity, component);
         }
     }
 
     public <T extends Component> T getComponent(Entity entity, Class<T> componentType)
     {
         assert entity.isAlive() : "Entity " + nameFor(entity) + " is dead.";
-        assert entitiesToNames.containsKey(entity) : "Entity " + entity + " not found.";
+        assert entitiesById.containsKey(entity.getId()) : "Entity " + entity + " not found.";
 
         int index = getTypeIndex(componentType);
         return getComponentInternal(entity, index);
     }
 
-    public <T extends Component> boolean hasComponent(Entity entity,
-                                                      Class<T> componentType)
+    /**
+     * Returns the component of the given type of the entity with the given id. Returns <code>null</code> if the entity
+     * does not exist or has no such component.
+     */
+    public <T extends Component> T getComponent(long id, Class<T> componentType)
     {
-        return getComponent(entity, componentType) != null;
+        Entity entity = entitiesById.get(id);
+        if (entity == null)
+        {
+            return null;
+        }
+        return getComponentInternal(entity, getTypeIndex(componentType));
     }
 
-    public <T extends Component> void removeComponent(Entity entity, Class<T> componentType)
+    public <T extends Component> boolean hasComponent(long id, Class<T> componentType)
+    {
+        Entity entity = entitiesById.get(id);
+        return entity != null && hasComponentInternal(entity, getTypeIndex(componentType));
+    }
+
+    /**
+     * Adds the given component to the entity with the given id.
+     *
+     * @throws IllegalArgumentException if there is no entity with the given id.
+     */
+    public <T extends Component> void addComponent(long id, T component)
+    {
+        addComponent(existingEntity(id), component);
+    }
+
+    /**
+     * Removes the component of the given type from the entity with the given id.
+     *
+     * @throws IllegalArgumentException if there is no entity with the given id.
+     */
+    public <T extends Component> void removeComponent(long id, Class<T> componentType)
+    {
+        removeComponent(existingEntity(id), componentType);
+    }
+
+    public <T extends Component> boolean hasComponent(Entity entity,
+                                                      Class<T> componentType)
     {
         assert entity.isAlive() : "Entity " + nameFor(entity) + " is dead.";
-        assert entitiesToNames.containsKey(entity) : "Entity " + entity + " not found.";
+        assert entitiesById.containsKey(entity.getId()) : "Entity " + entity + " not found.";
 
-        int index = getTypeIndex(componentType);
+        return hasComponentInternal(entity, getTypeIndex(componentType));
+    }
 
-        if (SingletonComponent.class.isAssignableFrom(componentType))
-        {
-            SingletonComponentConnection connection = singletonConnections[index];
-            if (connection != null && connection.entity.getId() == entity.getId())
-            {
-                singletonConnections[index] = null;
-            }
-        }
-        else
-        {
-            componentStore[index].remove(entity);
-        }
+    private boolean hasComponentInternal(Entity entity, int componentTypeIndex)
+    {
+        ComponentStore store = componentStores[componentTypeIndex];
+        return store != null && store.contains(entity);
     }
 
     /**
-     * Returns the component for the given entity should such a component exist. Internal
-     * method that does not validate entity identity or lifecycle.
+     * Marks the component of the given type as changed in place. Notifies the registered change listeners which
+     * otherwise only see structural changes. Does nothing if the entity has no such component.
+     *
+     * @param entity        entity
+     * @param componentType type of the changed component
      */
-    <T extends Component> T getComponentInternal(Entity entity, int componentTypeIndex)
+    public <T extends Component> void markChanged(Entity entity, Class<T> componentType)
     {
-        ConcurrentMap<Entity, Component> map = componentStore[componentTypeIndex];
-        if (map == null)
+        T component = getComponent(entity, componentType);
+        if (component != null)
         {
-            SingletonComponentConnection connection = singletonConnections[componentTypeIndex];
-            if (connection != null && connection.entity.getId() == entity.getId())
+            for (ChangeListener listener : changeListeners)
             {
-                return (T) connection.component;
+                listener.componentChanged(entity, component);
             }
-
-            return (T) null;
-        }
-        else
-        {
-            return (T) map.get(entity);
         }
     }
 
-    private Class<? extends Component>[] getSortedComponentTypes(
-        Set<Class<? extends Component>> componentClasses)
+    public <T extends Component> void removeComponent(Entity entity, Class<T> componentType)
     {
-        Map<Integer, Class<? extends Component>> knownHashes = new HashMap<Integer, Class<? extends Component>>();
-        Class<? extends Component>[] componentTypesInHashOrder = new Class[numberOfComponentTypes];
-        int index = 0;
-        for (Class<? extends Component> componentClass : componentClasses)
+        assert entity.isAlive() : "Entity " + nameFor(entity) + " is dead.";
+        assert entitiesById.containsKey(entity.getId()) : "Entity " + entity + " not found.";
+
+        int index = getTypeIndex(componentType);
+        if (expiries != null)
         {
-            int componentHash = componentClass.hashCode();
+            cancelExpiry(entity, index);
+        }
 
-            Class<? extends Component> otherComponentClass = knownHashes.get(componentHash);
-            if (otherComponentClass != null)
+        ComponentStore store = componentStores[index];
+        Component removed = store != null ? store.remove(entity) : null;
+        if (removed != null)
+        {
+            count(componentsRemoved);
+            for (ChangeListener listener : changeListeners)
             {
-                throw new ComponentHashNotUniqueException("The component " + componentClass + " and " +
-                    otherComponentClass + " have the same hashCode. " +
-                    "This unfortunately violates one of our requirements. I'm afraid I have to ask you to change " +
-                    "*something* on these classes.");
+                listener.componentRemoved(entity, componentType);
             }
-            componentTypesInHashOrder[index++] = componentClass;
-            knownHashes.put(componentHash, componentClass);
+            recycle(index, removed);
         }
+    }
 
-        Arrays.sort(componentTypesInHashOrder, HashOrderComparator.INSTANCE);
-
-        return componentTypesInHashOrder;
+    /**
+     * Returns the component for the given entity should such a component exist. Internal
+     * method that does not validate entity identity or lifecycle.
+     */
+    <T extends Component> T getComponentInternal(Entity entity, int componentTypeIndex)
+    {
+        ComponentStore store = componentStores[componentTypeIndex];
+        return store != null ? (T) store.get(entity) : null;
     }
 
     int getTypeIndex(Class<? extends Component> componentClass)
     {
-        int index = Arrays.binarySearch(componentTypesInHashOrder, componentClass, HashOrderComparator.INSTANCE);
-        if (index < 0)
-        {
-            throw new InvalidComponentTypeException(componentClass + " is not known by this system");
-        }
-        return index;
+        return componentTypes.indexOf(componentClass);
     }
 
     //// QUERY METHODS ///////////////////////////////////////////////////
@@ -340,7 +1296,7 @@ public final class EntitySystem
     /**
      * Slow convenience methods to get all components on a certain entity.
      * <p/>
-     * Components are returned in hash code order.
+     * Components are returned in the order of their type indexes, which is the order of their type names.
      *
      * @param entity
      * @return
@@ -348,7 +1304,7 @@ public final class EntitySystem
     public List<? extends Component> getAllComponentsOnEntity(Entity entity)
     {
         assert entity.isAlive() : "Entity " + nameFor(entity) + " is dead.";
-        assert entitiesToNames.containsKey(entity) : "Entity " + entity + " not found.";
+        assert entitiesById.containsKey(entity.getId()) : "Entity " + entity + " not found.";
 
         List<Component> components = new ArrayList<Component>(numberOfComponentTypes);
 
@@ -368,61 +1324,37 @@ public final class EntitySystem
     public <T extends Component> Collection<T> getAllComponentsOfType(
         Class<T> componentType)
     {
-        int index = getTypeIndex(componentType);
-
-        if (SingletonComponent.class.isAssignableFrom(componentType))
-        {
-            SingletonComponentConnection connection = singletonConnections[index];
-            return (Collection<T>) (connection != null ? connection.components() : Collections.emptyList());
-        }
-        else
-        {
-            return (Collection<T>) componentValuesRO[index];
-        }
+        return (Collection<T>) store(getTypeIndex(componentType)).components();
     }
 
+    /**
+     * Returns a read-only view mapping the entities having a component of the given type to their component. Reading
+     * components of cold stored types through it hydrates them like {@link #getComponent(Entity, Class)}.
+     *
+     * @param componentType component type
+     * @return entities and their components
+     * @throws UnsupportedOperationException for singleton component types.
+     */
     public <T extends Component> Map<Entity, T> getEntityToComponentMap(
         Class<T> componentType)
     {
-        int index = getTypeIndex(componentType);
-
-        if (SingletonComponent.class.isAssignableFrom(componentType))
-        {
-            throw new UnsupportedOperationException("Singletons not supported in getEntityToComponentMap");
-        }
-        else
-        {
-            return (Map<Entity, T>) componentStoreRO[index];
-        }
+        return (Map<Entity, T>) store(getTypeIndex(componentType)).entityToComponentMap();
     }
 
     public Entity getEntityWithSingleton(Class<? extends SingletonComponent> componentType)
     {
-        int index = getTypeIndex(componentType);
-        SingletonComponentConnection connection = singletonConnections[index];
-        return (Entity) (connection != null ? connection.entity : null);
+        return ((SingletonComponentStore) store(getTypeIndex(componentType))).getOwner();
     }
 
     public <T extends SingletonComponent> T getSingletonComponent(Class<T> componentType)
     {
-        int index = getTypeIndex(componentType);
-        SingletonComponentConnection connection = singletonConnections[index];
-        return (T) ( connection != null ?  connection.component : null);
+        return (T) ((SingletonComponentStore) store(getTypeIndex(componentType))).getComponent();
     }
 
     public Set<Entity> findEntitiesWithComponent(
         Class<? extends Component> componentType)
     {
-        int index = getTypeIndex(componentType);
-        if (SingletonComponent.class.isAssignableFrom(componentType))
-        {
-            SingletonComponentConnection connection = singletonConnections[index];
-            return (Set<Entity>) (connection != null ? connection.entities() : Collections.emptySet());
-        }
-        else
-        {
-            return (Set<Entity>) componentStore[index].keySet();
-        }
+        return store(getTypeIndex(componentType)).entities();
     }
 
     public Set<Entity> findEntitiesWithComponents(
@@ -434,68 +1366,280 @@ public final class EntitySystem
             return entities();
         }
 
+        Object recording = FlightRecording.beginQuery();
+
+        // tags are intersected word by word
+        long[] tagWords = null;
         Set<Entity> matchedAll = null;
         for (Class componentType : componentTypes)
         {
-            Set<Entity> entitiesForComponent = findEntitiesWithComponent(componentType);
-            if (matchedAll == null)
+            ComponentStore store = store(getTypeIndex(componentType));
+            if (store instanceof TagComponentStore)
+            {
+                tagWords = intersect(tagWords, ((TagComponentStore) store).words());
+            }
+            else if (matchedAll == null)
             {
-                matchedAll = new HashSet<Entity>(entitiesForComponent);
+                matchedAll = new HashSet<Entity>(store.entities());
             }
             else
             {
-                matchedAll.retainAll(entitiesForComponent);
+                matchedAll.retainAll(store.entities());
+            }
+        }
+
+        if (matchedAll == null)
+        {
+            matchedAll = TagComponentStore.toEntities(tagWords, entityIndex);
+        }
+        else if (tagWords != null)
+        {
+            for (Iterator<Entity> iterator = matchedAll.iterator(); iterator.hasNext(); )
+            {
+                int index = iterator.next().getIndex();
+                int word = index >>> 6;
+                if (word >= tagWords.length || (tagWords[word] & (1L << index)) == 0)
+                {
+                    iterator.remove();
+                }
             }
         }
+
+        FlightRecording.endQuery(recording, componentTypes, matchedAll.size());
         return matchedAll;
     }
 
-    //// INTERNAL CLASSES ////////////////////////////////////////////////
+    private static long[] intersect(long[] words, long[] tagWords)
+    {
+        if (words == null)
+        {
+            return tagWords.clone();
+        }
+
+        int length = Math.min(words.length, tagWords.length);
+        long[] result = words.length == length ? words : Arrays.copyOf(words, length);
+        for (int i = 0; i < length; i++)
+        {
+            result[i] &= tagWords[i];
+        }
+        return result;
+    }
 
     /**
-     * Immutable class to encapsulate the attribution of a singleton component to an entity.
-     * <p/>
-     * Offers two set views on the component and entity via lazy initialized {@link org.javesi.util.SingletonSet] impl.
+     * Returns all entities having a shared component equal to the given value. This is an index lookup, not a scan.
+     *
+     * @param value shared component value
+     * @return new set of entities
      */
-    private static class SingletonComponentConnection
+    public <T extends SharedComponent> Set<Entity> findEntitiesWithSharedComponent(T value)
     {
-        public final SingletonComponent component;
-        public final Entity entity;
-        private SingletonSet<Component> componentSet;
-        private SingletonSet<Entity> entitySet;
+        return sharedStore(value.getClass()).entitiesWith(value);
+    }
+
+    /**
+     * Returns the distinct values of the given shared component type currently used by entities.
+     */
+    public <T extends SharedComponent> Collection<T> getSharedComponentValues(Class<T> componentType)
+    {
+        return (Collection) sharedStore(componentType).distinctValues();
+    }
 
-        public SingletonComponentConnection(SingletonComponent component, Entity entity)
+    private SharedComponentStore sharedStore(Class<? extends Component> componentType)
+    {
+        ComponentStore store = store(getTypeIndex(componentType));
+        if (!(store instanceof SharedComponentStore))
         {
-            assert entity != null : "Entity can't be null";
-            assert component != null : "Component can't be null";
+            throw new InvalidComponentTypeException(componentType.getName() + " is not a shared component");
+        }
+        return (SharedComponentStore) store;
+    }
 
-            this.component = component;
-            this.entity = entity;
+    /**
+     * Hands the ids of all entities having all of the given component types to the given visitor. Tag components are
+     * scanned without touching entities, the visitor must not change the entity system structure.
+     *
+     * @param visitor           visitor
+     * @param componentTypes    component types, none visits all entities
+     */
+    public void visitEntityIds(EntityIdVisitor visitor, Class<? extends Component>... componentTypes)
+    {
+        if (componentTypes.length == 1)
+        {
+            ComponentStore store = store(getTypeIndex(componentTypes[0]));
+            if (store instanceof TagComponentStore)
+            {
+                long[] words = ((TagComponentStore) store).words();
+                for (int i = 0; i < words.length; i++)
+                {
+                    long word = words[i];
+                    while (word != 0)
+                    {
+                        visitor.visit(entityIndex.get((i << 6) + Long.numberOfTrailingZeros(word)).getId());
+                        word &= word - 1;
+                    }
+                }
+                return;
+            }
         }
 
-        public Set<Component> components()
+        Set<Entity> entities = componentTypes.length == 1 ? findEntitiesWithComponent(componentTypes[0]) :
+            findEntitiesWithComponents(componentTypes);
+        for (Entity entity : entities)
         {
-            SingletonSet<Component> set = componentSet;
+            visitor.visit(entity.getId());
+        }
+    }
+
+    //// STREAM METHODS //////////////////////////////////////////////////
+
+    /**
+     * Returns a stream of the entities having all the given component types, or of all entities if no types are given.
+     * <p>
+     *     The matching entities are collected into an array up front by scanning the smallest of the stores, so the
+     *     stream knows its exact size and parallel streams split it evenly. The stream must be consumed within the
+     *     current job. Parallel streams may read components, but must not change the entity system. Reads of cold
+     *     stored component types move components between the heap and the file and are serialized per type.
+     * </p>
+     *
+     * @param componentTypes    component types
+     * @return sized, distinct stream of entities
+     */
+    public Stream<Entity> stream(Class<? extends Component>... componentTypes)
+    {
+        Object recording = FlightRecording.beginQuery();
 
-            if (set == null)
+        Entity[] matches;
+        int count = 0;
+        if (componentTypes.length == 0)
+        {
+            matches = new Entity[entitiesById.size()];
+            for (int i = 0, limit = entityIndex.limit(); i < limit; i++)
             {
-                set = new SingletonSet<Component>(this.component);
-                componentSet = set;
+                Entity entity = entityIndex.get(i);
+                if (entity != null)
+                {
+                    matches[count++] = entity;
+                }
             }
-            return set;
         }
-
-        public Set<Entity> entities()
+        else
         {
-            SingletonSet<Entity> set = entitySet;
+            ComponentStore[] stores = new ComponentStore[componentTypes.length];
+            int smallest = 0;
+            for (int i = 0; i < componentTypes.length; i++)
+            {
+                stores[i] = store(getTypeIndex(componentTypes[i]));
+                if (stores[i].size() < stores[smallest].size())
+                {
+                    smallest = i;
+                }
+            }
+
+            ComponentStore driver = stores[smallest];
+            stores[smallest] = stores[stores.length - 1];
+            int others = stores.length - 1;
 
-            if (set == null)
+            matches = new Entity[driver.size()];
+            for (Entity entity : driver.entities())
             {
-                set = new SingletonSet<Entity>(this.entity);
-                entitySet = set;
+                boolean matched = true;
+                for (int i = 0; i < others && matched; i++)
+                {
+                    matched = stores[i].contains(entity);
+                }
+                if (matched)
+                {
+                    if (count == matches.length)
+                    {
+                        matches = Arrays.copyOf(matches, count * 2 + 1);
+                    }
+                    matches[count++] = entity;
+                }
             }
+        }
+
+        FlightRecording.endQuery(recording, componentTypes, count);
+        return StreamSupport.stream(new DenseSpliterator<Entity>(matches, count, Spliterator.DISTINCT), false);
+    }
+
+    /**
+     * Returns a stream of all components of the given type. Like {@link #stream(Class[])}, the components are collected
+     * into an array up front and the stream must be consumed within the current job.
+     *
+     * @param componentType component type
+     * @return sized stream of components
+     */
+    public <T extends Component> Stream<T> streamComponents(Class<T> componentType)
+    {
+        Object[] components = store(getTypeIndex(componentType)).components().toArray();
+        return StreamSupport.stream(new DenseSpliterator<T>(components, components.length, 0), false);
+    }
+
+    /**
+     * Read-only view on the living entities, backed by the entity index.
+     */
+    private class EntitySet
+        extends AbstractSet<Entity>
+    {
+        @Override
+        public Iterator<Entity> iterator()
+        {
+            return new Iterator<Entity>()
+            {
+                private int index = advance(0);
+
+                private int advance(int index)
+                {
+                    int limit = entityIndex.limit();
+                    while (index < limit && entityIndex.get(index) == null)
+                    {
+                        index++;
+                    }
+                    return index;
+                }
+
+                @Override
+                public boolean hasNext()
+                {
+                    return index < entityIndex.limit();
+                }
 
-            return set;
+                @Override
+                public Entity next()
+                {
+                    if (!hasNext())
+                    {
+                        throw new NoSuchElementException();
+                    }
+                    Entity entity = entityIndex.get(index);
+                    index = advance(index + 1);
+                    return entity;
+                }
+
+                @Override
+                public void remove()
+                {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public boolean contains(Object o)
+        {
+            return o instanceof Entity && entitiesById.containsKey(((Entity) o).getId());
+        }
+
+        @Override
+        public Spliterator<Entity> spliterator()
+        {
+            return EntitySystem.this.stream().spliterator();
+        }
+
+        @Override
+        public int size()
+        {
+            return entitiesById.size();
         }
     }
 
@@ -504,14 +1648,30 @@ public final class EntitySystem
     public static final class Status
     {
         private final int entityMapSize;
+        private final long entitiesCreated;
+        private final long entitiesKilled;
+        private final long componentsAdded;
+        private final long componentsRemoved;
 
         private final Map<String,Integer> componentMapSizes;
+        private final StoreFootprint entityRegistryFootprint;
+        private final Map<String,StoreFootprint> storeFootprints;
+        private final Map<String,ColdStorageStatistics> coldStorage;
         private final long created;
 
-        Status(int entityMapSize, Map<String, Integer> componentMapSizes)
+        Status(int entityMapSize, long entitiesCreated, long entitiesKilled, long componentsAdded,
+               long componentsRemoved, Map<String, Integer> componentMapSizes, StoreFootprint entityRegistryFootprint,
+               Map<String, StoreFootprint> storeFootprints, Map<String, ColdStorageStatistics> coldStorage)
         {
             this.entityMapSize = entityMapSize;
+            this.entitiesCreated = entitiesCreated;
+            this.entitiesKilled = entitiesKilled;
+            this.componentsAdded = componentsAdded;
+            this.componentsRemoved = componentsRemoved;
             this.componentMapSizes = componentMapSizes;
+            this.entityRegistryFootprint = entityRegistryFootprint;
+            this.storeFootprints = storeFootprints;
+            this.coldStorage = coldStorage;
             this.created = System.currentTimeMillis();
         }
 
@@ -520,11 +1680,79 @@ public final class EntitySystem
             return entityMapSize;
         }
 
+        /**
+         * Returns the total number of entities created since the entity system was created.
+         */
+        public long getEntitiesCreated()
+        {
+            return entitiesCreated;
+        }
+
+        /**
+         * Returns the total number of entities killed since the entity system was created.
+         */
+        public long getEntitiesKilled()
+        {
+            return entitiesKilled;
+        }
+
+        /**
+         * Returns the total number of components added to entities that had no component of that type before.
+         */
+        public long getComponentsAdded()
+        {
+            return componentsAdded;
+        }
+
+        /**
+         * Returns the total number of components removed from entities, including those removed by killing entities.
+         */
+        public long getComponentsRemoved()
+        {
+            return componentsRemoved;
+        }
+
         public Map<String, Integer> getComponentMapSizes()
         {
             return componentMapSizes;
         }
 
+        /**
+         * Returns the estimated memory footprint of the entity registry.
+         */
+        public StoreFootprint getEntityRegistryFootprint()
+        {
+            return entityRegistryFootprint;
+        }
+
+        /**
+         * Returns the estimated memory footprints of the component stores by component type name.
+         */
+        public Map<String, StoreFootprint> getStoreFootprints()
+        {
+            return storeFootprints;
+        }
+
+        /**
+         * Returns the cold storage statistics by component type name for the types with cold storage.
+         */
+        public Map<String, ColdStorageStatistics> getColdStorage()
+        {
+            return coldStorage;
+        }
+
+        /**
+         * Returns the estimated total bytes of the entity registry and all component stores.
+         */
+        public long getEstimatedBytes()
+        {
+            long bytes = entityRegistryFootprint.getEstimatedBytes();
+            for (StoreFootprint footprint : storeFootprints.values())
+            {
+                bytes += footprint.getEstimatedBytes();
+            }
+            return bytes;
+        }
 
         public long getCreated()
         {
@@ -542,6 +1770,7 @@ public final class EntitySystem
             sb.append(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ").format(new Date(created)));
             sb.append("):").append(SEP);
             sb.append("Entity map size : ").append(entityMapSize).append(", ");
+            sb.append("estimated bytes : ").append(getEstimatedBytes()).append(", ");
 
             sb.append("component map sizes :").append(SEP);
             for (Map.Entry<String,Integer> e : componentMapSizes.entrySet())
@@ -558,7 +1787,22 @@ public final class EntitySystem
                 }
 
 
-                sb.append(" = ").append(e.getValue()).append(SEP);
+                sb.append(" = ").append(e.getValue());
+
+                StoreFootprint footprint = storeFootprints.get(key);
+                if (footprint != null)
+                {
+                    sb.append(", capacity = ").append(footprint.getTableCapacity())
+                        .append(", fill = ").append(Math.round(footprint.getFillRatio() * 100)).append('%')
+                        .append(", estimated bytes = ").append(footprint.getEstimatedBytes());
+                }
+
+                ColdStorageStatistics statistics = coldStorage.get(key);
+                if (statistics != null)
+                {
+                    sb.append(", ").append(statistics);
+                }
+                sb.append(SEP);
             }
 
             return sb.toString();
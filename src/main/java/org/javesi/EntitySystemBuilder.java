@@ -5,8 +5,10 @@ import org.javesi.component.SingletonComponent;
 import org.javesi.exception.JavesyRuntimeException;
 import org.javesi.id.DefaultIdGenerator;
 import org.javesi.id.EntityIdGenerator;
+import org.javesi.registry.ComponentRegistry;
 
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 /**
@@ -20,20 +22,32 @@ public class EntitySystemBuilder
 
     private EntityIdGenerator idGenerator;
 
-    /** default entity map capacity */
-    private int entityMapCapacity = 10000;
+    /** default entity map capacity, the map grows on demand */
+    private int entityMapCapacity = 64;
     /** default entity map load factor */
     private float entityMapLoadFactor = 0.75f;
     /** default entity map concurrency level */
     private int entityMapConcurrencyLevel = 16;
 
-    /** default component map capacity */
-    private int componentMapCapacity = 5000;
+    /** default component map capacity, the maps grow on demand */
+    private int componentMapCapacity = 16;
     /** default component map load factor */
     private float componentMapLoadFactor = 0.75f;
     /** default component map concurrency level */
     private int componentMapConcurrencyLevel = 16;
 
+    /** default slow job threshold in milliseconds, 0 = no slow job logging */
+    private int slowJobThreshold = 0;
+
+    /** name to register the JMX monitor under, null = no registration */
+    private String jmxName = null;
+
+    /** shared component type index, null = every entity system indexes the component classes itself */
+    private ComponentTypeIndex componentTypeIndex = null;
+
+    /** stores filled less than this ratio are compacted after each job, 0 = no automatic compaction */
+    private float compactionFillRatio = 0f;
+
     public EntitySystemBuilder()
     {
         idGenerator = new DefaultIdGenerator();
@@ -95,6 +109,33 @@ public class EntitySystemBuilder
         return this;
     }
 
+    public EntitySystemBuilder withSlowJobThreshold(int slowJobThreshold)
+    {
+        this.slowJobThreshold = slowJobThreshold;
+        return this;
+    }
+
+    public EntitySystemBuilder withJmxName(String jmxName)
+    {
+        this.jmxName = jmxName;
+        return this;
+    }
+
+    /**
+     * Uses the given component type index instead of the component classes. Sharing one index between many entity
+     * systems with the same component types makes creating them cheaper.
+     */
+    public EntitySystemBuilder withComponentTypeIndex(ComponentTypeIndex componentTypeIndex)
+    {
+        this.componentTypeIndex = componentTypeIndex;
+        return this;
+    }
+
+    public EntitySystemBuilder withCompactionFillRatio(float compactionFillRatio)
+    {
+        this.compactionFillRatio = compactionFillRatio;
+        return this;
+    }
 
     //// GETTER METHODS ////////////////////////////
 
@@ -134,6 +175,30 @@ public class EntitySystemBuilder
         return entityMapCapacity;
     }
 
+    @Override
+    public int getSlowJobThreshold()
+    {
+        return slowJobThreshold;
+    }
+
+    @Override
+    public String getJmxName()
+    {
+        return jmxName;
+    }
+
+    @Override
+    public float getCompactionFillRatio()
+    {
+        return compactionFillRatio;
+    }
+
+    @Override
+    public ComponentTypeIndex getComponentTypeIndex()
+    {
+        return componentTypeIndex;
+    }
+
     @Override
     public Set<Class<? extends Component>> getComponentClasses()
     {
@@ -181,10 +246,29 @@ public class EntitySystemBuilder
         }
     }
 
+    /**
+     * Uses the component types of the given registry generated at compile time instead of scanning the classpath.
+     *
+     * @see org.javesi.registry.GenerateComponentRegistry
+     */
+    public EntitySystemBuilder withComponentRegistry(ComponentRegistry registry)
+    {
+        this.componentClasses = new LinkedHashSet<Class<? extends Component>>(registry.getComponentTypes());
+        return this;
+    }
 
     public EntitySystemInterface build()
     {
-        return new EntitySystem(this).getInterface();
+        return new EntitySystem(this).getInterface(this);
+    }
+
+    /**
+     * Builds a world partitioned into the given number of entity systems with separate locks. The configured id
+     * generator is replaced by one generator per shard.
+     */
+    public ShardedEntitySystem buildSharded(int shardCount)
+    {
+        return new ShardedEntitySystem(this, shardCount);
     }
 
     @Override
@@ -6,7 +6,8 @@ import org.javesi.id.EntityIdGenerator;
 import java.util.Set;
 
 /**
- * Encapsulates all configuration options for an entity system.
+ * Encapsulates all configuration options for an entity system. Options added later have defaults, which are the
+ * defaults of the {@link EntitySystemBuilder}.
  */
 public interface EntitySystemConfig
 {
@@ -14,7 +15,7 @@ public interface EntitySystemConfig
 
     EntityIdGenerator getIdGenerator();
 
-    // entity map config
+    // entity map config. The entity map is only changed while holding the world lock, the concurrency level is ignored.
     int getEntityMapCapacity();
     float getEntityMapLoadFactor();
     int getEntityMapConcurrencyLevel();
@@ -24,4 +25,27 @@ public interface EntitySystemConfig
     float getComponentMapLoadFactor();
     int getComponentMapConcurrencyLevel();
 
+    // jobs holding the world lock longer than this number of milliseconds are logged, 0 to disable
+    default int getSlowJobThreshold()
+    {
+        return 0;
+    }
+
+    // name to register the entity system MBean under, null for no registration
+    default String getJmxName()
+    {
+        return null;
+    }
+
+    // stores and the entity registry filled less than this ratio are compacted after each job, 0 to disable
+    default float getCompactionFillRatio()
+    {
+        return 0f;
+    }
+
+    // component type index shared by several entity systems, null to index the component classes
+    default ComponentTypeIndex getComponentTypeIndex()
+    {
+        return null;
+    }
 }
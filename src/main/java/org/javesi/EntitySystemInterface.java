@@ -1,7 +1,11 @@
 package org.javesi;
 
+import org.javesi.jmx.EntitySystemMonitor;
 import org.javesi.job.Job;
 import org.javesi.job.ParametrizedJob;
+import org.javesi.metrics.JobMetrics;
+import org.javesi.metrics.JobMetricsSnapshot;
+import org.javesi.metrics.LockTimes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,18 +18,37 @@ import org.slf4j.LoggerFactory;
  * If you want to fully use multiple CPUs you might have to weave a complicated net of short-running
  * jobs to interface between your concurrent subsystems.
  * </p>
+ * <p>
+ * The time each job waits for and holds the world lock is recorded per job class, see {@link #getJobMetrics()}.
+ * </p>
+ * <p>
+ * The entity system status and job metrics are exposed via JMX if the entity system was built with a JMX name, see
+ * {@link #getMonitor()}.
+ * </p>
+ * <p>
+ * Jobs are reported to the Java Flight Recorder as {@link org.javesi.jfr.JobEvent}s.
+ * </p>
  */
 public final class EntitySystemInterface
 {
     private static Logger log = LoggerFactory.getLogger(EntitySystemInterface.class);
     private final EntitySystem system;
     private final Object worldLock;
+    private final JobMetrics jobMetrics;
+    private final EntitySystemMonitor monitor;
 
 
-    EntitySystemInterface(EntitySystem system)
+    EntitySystemInterface(EntitySystem system, EntitySystemConfig config)
     {
         this.system = system;
         this.worldLock = new Object();
+        this.jobMetrics = new JobMetrics(config.getSlowJobThreshold());
+        this.monitor = new EntitySystemMonitor(system, this);
+
+        if (config.getJmxName() != null)
+        {
+            monitor.register(config.getJmxName());
+        }
     }
 
     /**
@@ -35,9 +58,19 @@ public final class EntitySystemInterface
      */
     public void execute(Job job) throws Exception
     {
+        long requested = System.nanoTime();
         synchronized (worldLock)
         {
-            job.execute(system);
+            long acquired = System.nanoTime();
+            Object recording = FlightRecording.beginJob(system);
+            try
+            {
+                job.execute(system);
+            }
+            finally
+            {
+                finish(job, requested, acquired, recording);
+            }
         }
     }
 
@@ -51,9 +84,73 @@ public final class EntitySystemInterface
      */
     public <I> void execute(ParametrizedJob<I> job, I input) throws Exception
     {
+        long requested = System.nanoTime();
         synchronized (worldLock)
         {
-            job.execute(system, input);
+            long acquired = System.nanoTime();
+            Object recording = FlightRecording.beginJob(system);
+            try
+            {
+                job.execute(system, input);
+            }
+            finally
+            {
+                finish(job, requested, acquired, recording);
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of the wait and hold times of all jobs executed so far. Can be called at any time without
+     * executing a job.
+     */
+    public JobMetricsSnapshot getJobMetrics()
+    {
+        return jobMetrics.snapshot();
+    }
+
+    /**
+     * Returns the wait and hold times of all jobs executed so far summed up over the job classes. Cheaper than
+     * {@link #getJobMetrics()} and can be called at any time without executing a job.
+     */
+    public LockTimes getLockTimes()
+    {
+        return jobMetrics.lockTimes();
+    }
+
+    /**
+     * Returns the JMX monitor of this entity system interface. Use it to register the monitor manually or to
+     * unregister it when the entity system is no longer used.
+     */
+    public EntitySystemMonitor getMonitor()
+    {
+        return monitor;
+    }
+
+    EntitySystem getSystem()
+    {
+        return system;
+    }
+
+    Object getWorldLock()
+    {
+        return worldLock;
+    }
+
+    /**
+     * Commits the changes of a job and records its metrics and flight recorder events. Called while still holding the
+     * world lock.
+     */
+    void finish(Object job, long requested, long acquired, Object recording)
+    {
+        try
+        {
+            system.commitChanges();
+        }
+        finally
+        {
+            jobMetrics.record(job, acquired - requested, System.nanoTime() - acquired);
+            FlightRecording.endJob(recording, system, job, acquired - requested);
         }
     }
 }
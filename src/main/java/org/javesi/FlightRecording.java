@@ -0,0 +1,162 @@
+package org.javesi;
+
+import org.javesi.component.Component;
+import org.javesi.jfr.JobEvent;
+import org.javesi.jfr.QueryEvent;
+import org.javesi.jfr.StructuralChangesEvent;
+
+/**
+ * Emits the Java Flight Recorder events of {@link org.javesi.jfr}.
+ * <p>
+ *     The event classes are only touched if the runtime supports JFR. If no recording is running, the events are
+ *     disabled and nothing is allocated.
+ * </p>
+ */
+final class FlightRecording
+{
+    private final static boolean AVAILABLE = isAvailable();
+
+    private FlightRecording()
+    {
+
+    }
+
+    private static boolean isAvailable()
+    {
+        try
+        {
+            Class.forName("jdk.jfr.Event", false, FlightRecording.class.getClassLoader());
+            return true;
+        }
+        catch (ClassNotFoundException e)
+        {
+            return false;
+        }
+        catch (LinkageError e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Starts the recording of a job that just acquired the world lock.
+     *
+     * @return opaque recording to pass to {@link #endJob} or <code>null</code> if job events are disabled.
+     */
+    static Object beginJob(EntitySystem system)
+    {
+        if (!AVAILABLE)
+        {
+            return null;
+        }
+
+        JobEvent jobEvent = new JobEvent();
+        StructuralChangesEvent changesEvent = new StructuralChangesEvent();
+        if (!jobEvent.isEnabled() && !changesEvent.isEnabled())
+        {
+            return null;
+        }
+
+        JobRecording recording = new JobRecording(jobEvent, changesEvent, system.getStructuralChanges());
+        jobEvent.begin();
+        changesEvent.begin();
+        return recording;
+    }
+
+    /**
+     * Ends the recording of a job. Must be called while still holding the world lock.
+     */
+    static void endJob(Object recording, EntitySystem system, Object job, long waitNanos)
+    {
+        if (recording == null)
+        {
+            return;
+        }
+
+        JobRecording jobRecording = (JobRecording) recording;
+
+        JobEvent jobEvent = jobRecording.jobEvent;
+        jobEvent.end();
+        if (jobEvent.shouldCommit())
+        {
+            jobEvent.jobClass = job.getClass();
+            jobEvent.lockWait = waitNanos;
+            jobEvent.commit();
+        }
+
+        long structuralChanges = system.getStructuralChanges() - jobRecording.structuralChanges;
+        StructuralChangesEvent changesEvent = jobRecording.changesEvent;
+        changesEvent.end();
+        if (structuralChanges > 0 && changesEvent.shouldCommit())
+        {
+            changesEvent.jobClass = job.getClass();
+            changesEvent.structuralChanges = structuralChanges;
+            changesEvent.entityCount = system.entities().size();
+            changesEvent.commit();
+        }
+    }
+
+    /**
+     * Starts the recording of a query.
+     *
+     * @return opaque recording to pass to {@link #endQuery} or <code>null</code> if query events are disabled.
+     */
+    static Object beginQuery()
+    {
+        if (!AVAILABLE)
+        {
+            return null;
+        }
+
+        QueryEvent event = new QueryEvent();
+        if (!event.isEnabled())
+        {
+            return null;
+        }
+
+        event.begin();
+        return event;
+    }
+
+    static void endQuery(Object recording, Class<? extends Component>[] componentTypes, int resultSize)
+    {
+        if (recording == null)
+        {
+            return;
+        }
+
+        QueryEvent event = (QueryEvent) recording;
+        event.end();
+        if (event.shouldCommit())
+        {
+            StringBuilder sb = new StringBuilder();
+            for (Class<? extends Component> componentType : componentTypes)
+            {
+                if (sb.length() > 0)
+                {
+                    sb.append(", ");
+                }
+                sb.append(componentType.getName());
+            }
+
+            event.componentTypes = sb.toString();
+            event.resultSize = resultSize;
+            event.commit();
+        }
+    }
+
+    private static class JobRecording
+    {
+        final JobEvent jobEvent;
+        final StructuralChangesEvent changesEvent;
+        /** structural change count of the entity system when the job started */
+        final long structuralChanges;
+
+        JobRecording(JobEvent jobEvent, StructuralChangesEvent changesEvent, long structuralChanges)
+        {
+            this.jobEvent = jobEvent;
+            this.changesEvent = changesEvent;
+            this.structuralChanges = structuralChanges;
+        }
+    }
+}
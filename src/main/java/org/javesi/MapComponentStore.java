@@ -0,0 +1,241 @@
+package org.javesi;
+
+import org.javesi.component.Component;
+import org.javesi.status.StoreFootprint;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores the components of one type in a concurrent hash map.
+ */
+final class MapComponentStore
+    extends ComponentStore
+{
+    /** estimated size of a hash map entry: header, hash, key, value and next reference */
+    final static int ENTRY_SIZE = align(OBJECT_HEADER + 4 + 3 * REFERENCE);
+
+    /** estimated size of the map and its views */
+    final static int MAP_SIZE = 64;
+
+    private final float loadFactor;
+    private final int concurrencyLevel;
+
+    /** replaced by compaction, so the views handed out read through the current map */
+    private ConcurrentHashMap<Entity, Component> map;
+    private final Set<Entity> entitySet = new EntitySet();
+    private final Collection<Component> componentsRO = new Components();
+    private final Map<Entity, Component> mapRO = new EntityToComponentMap();
+
+    /** table capacity the map was created with */
+    private final int initialTableCapacity;
+
+    MapComponentStore(Class<? extends Component> componentType, int capacity, float loadFactor, int concurrencyLevel)
+    {
+        super(componentType);
+
+        this.loadFactor = loadFactor;
+        this.concurrencyLevel = concurrencyLevel;
+        initialTableCapacity = tableCapacity((long) (1.0 + capacity / loadFactor));
+        map = new ConcurrentHashMap<Entity, Component>(capacity, loadFactor, concurrencyLevel);
+    }
+
+    @Override
+    Component get(Entity entity)
+    {
+        return map.get(entity);
+    }
+
+    @Override
+    Component put(Entity entity, Component component)
+    {
+        Component former = map.put(entity, component);
+        if (former == null)
+        {
+            added();
+        }
+        return former;
+    }
+
+    @Override
+    Component remove(Entity entity)
+    {
+        Component former = map.remove(entity);
+        if (former != null)
+        {
+            removed();
+        }
+        return former;
+    }
+
+    @Override
+    Set<Entity> entities()
+    {
+        return entitySet;
+    }
+
+    @Override
+    Collection<Component> components()
+    {
+        return componentsRO;
+    }
+
+    @Override
+    Map<Entity, Component> entityToComponentMap()
+    {
+        return mapRO;
+    }
+
+    @Override
+    boolean needsCompaction(float minFillRatio)
+    {
+        int capacity = tableCapacity();
+        return capacity > initialTableCapacity && size() < capacity * 0.75f * minFillRatio;
+    }
+
+    /**
+     * Copies the components in entity id order into a new map sized for the current components. The views returned by
+     * {@link #entities()}, {@link #components()} and {@link #entityToComponentMap()} keep working, but iterators
+     * created before continue on the former map.
+     */
+    @Override
+    void compact()
+    {
+        Entity[] entities = map.keySet().toArray(new Entity[map.size()]);
+        Arrays.sort(entities, Entity.ID_ORDER);
+
+        ConcurrentHashMap<Entity, Component> compacted = new ConcurrentHashMap<Entity, Component>(entities.length,
+            loadFactor, concurrencyLevel);
+        for (Entity entity : entities)
+        {
+            compacted.put(entity, map.get(entity));
+        }
+        map = compacted;
+        resetHighWaterMark();
+    }
+
+    /**
+     * Returns the estimated table capacity. The table is allocated on first use and grows when it is filled to 75%,
+     * but never shrinks.
+     */
+    private int tableCapacity()
+    {
+        int highWaterMark = highWaterMark();
+        return highWaterMark == 0 ? 0 : Math.max(initialTableCapacity, tableCapacity((long) (1.0 + highWaterMark /
+            0.75)));
+    }
+
+    @Override
+    StoreFootprint footprint()
+    {
+        int size = size();
+        int highWaterMark = highWaterMark();
+        int capacity = tableCapacity();
+
+        long overhead = MAP_SIZE + align(OBJECT_HEADER + 4 + (long) capacity * REFERENCE) + (long) size * ENTRY_SIZE;
+        return new StoreFootprint(componentType.getName(), size, highWaterMark, capacity, overhead, componentSize,
+            overhead + (long) size * componentSize);
+    }
+
+    /**
+     * Returns the next power of two greater than or equal to the given size.
+     */
+    static int tableCapacity(long size)
+    {
+        int capacity = 1;
+        while (capacity < size && capacity < (1 << 30))
+        {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private class EntitySet
+        extends AbstractSet<Entity>
+    {
+        @Override
+        public Iterator<Entity> iterator()
+        {
+            return map.keySet().iterator();
+        }
+
+        @Override
+        public boolean contains(Object o)
+        {
+            return map.containsKey(o);
+        }
+
+        @Override
+        public int size()
+        {
+            return map.size();
+        }
+    }
+
+    private class Components
+        extends AbstractCollection<Component>
+    {
+        @Override
+        public Iterator<Component> iterator()
+        {
+            return Collections.unmodifiableCollection(map.values()).iterator();
+        }
+
+        @Override
+        public int size()
+        {
+            return map.size();
+        }
+    }
+
+    private class EntityToComponentMap
+        extends AbstractMap<Entity, Component>
+    {
+        private final Set<Map.Entry<Entity, Component>> entrySet = new AbstractSet<Map.Entry<Entity, Component>>()
+        {
+            @Override
+            public Iterator<Map.Entry<Entity, Component>> iterator()
+            {
+                return Collections.unmodifiableMap(map).entrySet().iterator();
+            }
+
+            @Override
+            public int size()
+            {
+                return map.size();
+            }
+        };
+
+        @Override
+        public Component get(Object key)
+        {
+            return map.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key)
+        {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public int size()
+        {
+            return map.size();
+        }
+
+        @Override
+        public Set<Map.Entry<Entity, Component>> entrySet()
+        {
+            return entrySet;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.javesi;
+
+import org.javesi.relation.RelationType;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stores the relations of one type indexed in both directions, the target of every source entity and the source
+ * entities of every target. Both indexes are updated incrementally.
+ */
+final class RelationStore
+{
+    final RelationType type;
+
+    private final Map<Entity, Entity> targets = new HashMap<Entity, Entity>();
+    private final Map<Entity, Set<Entity>> sources = new HashMap<Entity, Set<Entity>>();
+
+    RelationStore(RelationType type)
+    {
+        this.type = type;
+    }
+
+    /**
+     * Relates the given source to the given target, replacing its former target.
+     *
+     * @return former target or <code>null</code>
+     */
+    Entity put(Entity source, Entity target)
+    {
+        Entity former = targets.put(source, target);
+        if (former != null)
+        {
+            removeSource(former, source);
+        }
+
+        Set<Entity> targetSources = sources.get(target);
+        if (targetSources == null)
+        {
+            targetSources = new LinkedHashSet<Entity>();
+            sources.put(target, targetSources);
+        }
+        targetSources.add(source);
+        return former;
+    }
+
+    /**
+     * Removes the relation of the given source.
+     *
+     * @return former target or <code>null</code>
+     */
+    Entity remove(Entity source)
+    {
+        Entity former = targets.remove(source);
+        if (former != null)
+        {
+            removeSource(former, source);
+        }
+        return former;
+    }
+
+    private void removeSource(Entity target, Entity source)
+    {
+        Set<Entity> targetSources = sources.get(target);
+        targetSources.remove(source);
+        if (targetSources.isEmpty())
+        {
+            sources.remove(target);
+        }
+    }
+
+    /**
+     * Removes the relations of all sources related to the given target.
+     *
+     * @return the former sources
+     */
+    Set<Entity> removeTarget(Entity target)
+    {
+        Set<Entity> targetSources = sources.remove(target);
+        if (targetSources == null)
+        {
+            return Collections.emptySet();
+        }
+
+        for (Entity source : targetSources)
+        {
+            targets.remove(source);
+        }
+        return targetSources;
+    }
+
+    Entity getTarget(Entity source)
+    {
+        return targets.get(source);
+    }
+
+    Set<Entity> getSources(Entity target)
+    {
+        Set<Entity> targetSources = sources.get(target);
+        return targetSources != null ? Collections.unmodifiableSet(targetSources) : Collections.<Entity>emptySet();
+    }
+
+    /**
+     * Returns the entities that are targets of at least one relation.
+     */
+    Set<Entity> targets()
+    {
+        return sources.keySet();
+    }
+
+    /**
+     * Returns the number of relations.
+     */
+    int size()
+    {
+        return targets.size();
+    }
+}
@@ -0,0 +1,336 @@
+package org.javesi;
+
+import org.javesi.component.Component;
+import org.javesi.id.EntityIdGenerator;
+import org.javesi.id.ShardIdGenerator;
+import org.javesi.job.Job;
+import org.javesi.job.ShardedJob;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Partitions the entities of a world into several entity systems, the shards, to use more than one core for mutations.
+ * Each shard has its own component stores and world lock, so jobs on different shards run in parallel.
+ * <p>
+ *     Entities live in the shard they were created in. The shard number is encoded in the high bits of the entity ids,
+ *     see {@link #shardOf(long)}. Use {@link #shardForKey(Object)} to partition entities by a key of your own.
+ * </p>
+ * <p>
+ *     Jobs touching more than one shard are executed with {@link #execute(int[], ShardedJob)}, which acquires the
+ *     shard locks in ascending shard order so that concurrent cross-shard jobs cannot deadlock. Components must not
+ *     be moved between shards as instances, only as copies added to a new entity in the target shard.
+ * </p>
+ * <p>
+ *     Each shard is configured like a stand-alone entity system from the builder, so capacities apply per shard. If
+ *     a JMX name is configured, every shard is registered with the shard number appended.
+ * </p>
+ */
+public final class ShardedEntitySystem
+{
+    private final EntitySystemInterface[] shards;
+
+    ShardedEntitySystem(EntitySystemConfig config, int shardCount)
+    {
+        if (shardCount < 1 || shardCount > ShardIdGenerator.MAX_SHARDS)
+        {
+            throw new IllegalArgumentException("Invalid shard count " + shardCount);
+        }
+
+        ComponentTypeIndex componentTypeIndex = config.getComponentTypeIndex() != null ?
+            config.getComponentTypeIndex() : new ComponentTypeIndex(config.getComponentClasses());
+
+        shards = new EntitySystemInterface[shardCount];
+        for (int i = 0; i < shardCount; i++)
+        {
+            ShardConfig shardConfig = new ShardConfig(config, componentTypeIndex, i);
+            shards[i] = new EntitySystem(shardConfig).getInterface(shardConfig);
+        }
+    }
+
+    public int getShardCount()
+    {
+        return shards.length;
+    }
+
+    /**
+     * Returns the interface of the given shard, e.g. to read its job metrics.
+     */
+    public EntitySystemInterface getShard(int shard)
+    {
+        return shards[shard];
+    }
+
+    /**
+     * Returns the shard the entity with the given id lives in.
+     */
+    public int shardOf(long entityId)
+    {
+        int shard = ShardIdGenerator.shardOf(entityId);
+        if (shard >= shards.length)
+        {
+            throw new IllegalArgumentException("Entity id " + entityId + " does not belong to any shard");
+        }
+        return shard;
+    }
+
+    public int shardOf(Entity entity)
+    {
+        return shardOf(entity.getId());
+    }
+
+    /**
+     * Returns the shard to create entities with the given partitioning key in.
+     */
+    public int shardForKey(Object key)
+    {
+        int h = key.hashCode() * 0x9E3779B9;
+        return ((h ^ (h >>> 16)) & Integer.MAX_VALUE) % shards.length;
+    }
+
+    //// JOBS ////////////////////////////////////////////////////////////
+
+    /**
+     * Executes the given job while holding the lock of the given shard only.
+     */
+    public void execute(int shard, Job job) throws Exception
+    {
+        shards[shard].execute(job);
+    }
+
+    /**
+     * Executes the given job on the shard the entity with the given id lives in.
+     */
+    public void executeForEntity(long entityId, Job job) throws Exception
+    {
+        shards[shardOf(entityId)].execute(job);
+    }
+
+    /**
+     * Executes the given job while holding the locks of all given shards. The locks are acquired in ascending shard
+     * order.
+     *
+     * @param shardNumbers  shards the job touches
+     * @param job           job to execute
+     */
+    public void execute(int[] shardNumbers, ShardedJob job) throws Exception
+    {
+        int[] sorted = shardNumbers.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++)
+        {
+            if (sorted[i] < 0 || sorted[i] >= shards.length)
+            {
+                throw new IllegalArgumentException("Invalid shard " + sorted[i]);
+            }
+            if (i > 0 && sorted[i] == sorted[i - 1])
+            {
+                throw new IllegalArgumentException("Shard " + sorted[i] + " requested twice");
+            }
+        }
+
+        lockAndExecute(sorted, 0, new EntitySystem[shards.length], job, System.nanoTime());
+    }
+
+    /**
+     * Executes the given job while holding the locks of all shards.
+     */
+    public void executeOnAll(ShardedJob job) throws Exception
+    {
+        int[] all = new int[shards.length];
+        for (int i = 0; i < all.length; i++)
+        {
+            all[i] = i;
+        }
+        lockAndExecute(all, 0, new EntitySystem[shards.length], job, System.nanoTime());
+    }
+
+    /**
+     * Acquires the lock of the shard at the given position and recurses into the next one. The job is executed with
+     * all locks held, every shard commits its changes and records the job when its lock is released.
+     */
+    private void lockAndExecute(int[] sorted, int position, EntitySystem[] locked, ShardedJob job, long requested)
+        throws Exception
+    {
+        if (position == sorted.length)
+        {
+            job.execute(locked);
+            return;
+        }
+
+        EntitySystemInterface shard = shards[sorted[position]];
+        synchronized (shard.getWorldLock())
+        {
+            long acquired = System.nanoTime();
+            Object recording = FlightRecording.beginJob(shard.getSystem());
+            locked[sorted[position]] = shard.getSystem();
+            try
+            {
+                lockAndExecute(sorted, position + 1, locked, job, requested);
+            }
+            finally
+            {
+                shard.finish(job, requested, acquired, recording);
+            }
+        }
+    }
+
+    //// AGGREGATED QUERIES //////////////////////////////////////////////
+
+    /**
+     * Returns the entities having all the given component types in all shards. The shards are queried one after the
+     * other, so the result is not a consistent snapshot of the whole world if other jobs run concurrently.
+     */
+    public List<Entity> findEntitiesWithComponents(final Class<? extends Component>... componentTypes)
+        throws Exception
+    {
+        final List<Entity> entities = new ArrayList<Entity>();
+        for (EntitySystemInterface shard : shards)
+        {
+            shard.execute(new Job()
+            {
+                @Override
+                public void execute(EntitySystem state) throws Exception
+                {
+                    entities.addAll(state.findEntitiesWithComponents(componentTypes));
+                }
+            });
+        }
+        return entities;
+    }
+
+    /**
+     * Returns the status of all shards. Can be called at any time without executing a job.
+     */
+    public List<EntitySystem.Status> getStatus()
+    {
+        List<EntitySystem.Status> status = new ArrayList<EntitySystem.Status>(shards.length);
+        for (EntitySystemInterface shard : shards)
+        {
+            status.add(shard.getSystem().getStatus());
+        }
+        return status;
+    }
+
+    /**
+     * Returns the number of living entities in all shards. Reads the maintained counters, so it can be called at any
+     * time without executing a job.
+     */
+    public int getEntityCount()
+    {
+        int count = 0;
+        for (EntitySystemInterface shard : shards)
+        {
+            count += shard.getSystem().getEntityCount();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the estimated memory use of all shards, based on the maintained counters.
+     */
+    public long getEstimatedBytes()
+    {
+        long bytes = 0;
+        for (EntitySystemInterface shard : shards)
+        {
+            bytes += shard.getSystem().getEstimatedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Configuration of a single shard. Uses a shard id generator, a shard specific JMX name and the component type
+     * index shared by all shards, everything else comes from the sharded configuration.
+     */
+    private static class ShardConfig
+        implements EntitySystemConfig
+    {
+        private final EntitySystemConfig config;
+        private final ComponentTypeIndex componentTypeIndex;
+        private final ShardIdGenerator idGenerator;
+        private final String jmxName;
+
+        ShardConfig(EntitySystemConfig config, ComponentTypeIndex componentTypeIndex, int shard)
+        {
+            this.config = config;
+            this.componentTypeIndex = componentTypeIndex;
+            this.idGenerator = new ShardIdGenerator(shard);
+            this.jmxName = config.getJmxName() != null ? config.getJmxName() + "-shard" + shard : null;
+        }
+
+        @Override
+        public Set<Class<? extends Component>> getComponentClasses()
+        {
+            return config.getComponentClasses();
+        }
+
+        @Override
+        public EntityIdGenerator getIdGenerator()
+        {
+            return idGenerator;
+        }
+
+        @Override
+        public int getEntityMapCapacity()
+        {
+            return config.getEntityMapCapacity();
+        }
+
+        @Override
+        public float getEntityMapLoadFactor()
+        {
+            return config.getEntityMapLoadFactor();
+        }
+
+        @Override
+        public int getEntityMapConcurrencyLevel()
+        {
+            return config.getEntityMapConcurrencyLevel();
+        }
+
+        @Override
+        public int getComponentMapCapacity()
+        {
+            return config.getComponentMapCapacity();
+        }
+
+        @Override
+        public float getComponentMapLoadFactor()
+        {
+            return config.getComponentMapLoadFactor();
+        }
+
+        @Override
+        public int getComponentMapConcurrencyLevel()
+        {
+            return config.getComponentMapConcurrencyLevel();
+        }
+
+        @Override
+        public int getSlowJobThreshold()
+        {
+            return config.getSlowJobThreshold();
+        }
+
+        @Override
+        public String getJmxName()
+        {
+            return jmxName;
+        }
+
+        @Override
+        public float getCompactionFillRatio()
+        {
+            return config.getCompactionFillRatio();
+        }
+
+        @Override
+        public ComponentTypeIndex getComponentTypeIndex()
+        {
+            return componentTypeIndex;
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package org.javesi;
+
+import org.javesi.component.Component;
+import org.javesi.status.StoreFootprint;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Stores a shared component type. Every distinct value is stored once, entities reference their value by an int
+ * indexed by the entity index. A reverse index keeps the entity indexes of every value.
+ */
+final class SharedComponentStore
+    extends ComponentStore
+{
+    /** estimated size of a hash map entry: header, hash, key, value and next reference */
+    private final static int VALUE_ENTRY_SIZE = align(OBJECT_HEADER + 4 + 3 * REFERENCE);
+
+    private final EntityIndex entityIndex;
+
+    /** value id by value */
+    private final Map<Component, Integer> valueIds = new HashMap<Component, Integer>();
+    /** values by value id, <code>null</code> for free ids */
+    private final List<Component> values = new ArrayList<Component>();
+    /** entity indexes by value id */
+    private final List<Members> members = new ArrayList<Members>();
+    private final List<Integer> freeValueIds = new ArrayList<Integer>();
+
+    /** value id + 1 by entity index, 0 if the entity has no component */
+    private int[] refs = new int[64];
+    /** position of the entity index in the members of its value */
+    private int[] positions = new int[64];
+
+    private final Set<Entity> entitySet = new EntitySet();
+    private final Collection<Component> componentCollection = new ComponentCollection();
+
+    SharedComponentStore(Class<? extends Component> componentType, EntityIndex entityIndex)
+    {
+        super(componentType);
+        this.entityIndex = entityIndex;
+    }
+
+    private int ref(int index)
+    {
+        return index >= 0 && index < refs.length ? refs[index] : 0;
+    }
+
+    @Override
+    Component get(Entity entity)
+    {
+        int ref = ref(entity.getIndex());
+        return ref == 0 ? null : values.get(ref - 1);
+    }
+
+    @Override
+    Component put(Entity entity, Component component)
+    {
+        int index = entity.getIndex();
+        if (index >= refs.length)
+        {
+            int length = Math.max(index + 1, refs.length * 2);
+            refs = Arrays.copyOf(refs, length);
+            positions = Arrays.copyOf(positions, length);
+        }
+
+        int valueId = valueId(component);
+        int ref = refs[index];
+        Component former = null;
+        if (ref != 0)
+        {
+            if (ref - 1 == valueId)
+            {
+                return values.get(valueId);
+            }
+            former = values.get(ref - 1);
+            unlink(index, ref - 1);
+        }
+        else
+        {
+            added();
+        }
+
+        refs[index] = valueId + 1;
+        positions[index] = members.get(valueId).add(index);
+        return former;
+    }
+
+    @Override
+    Component remove(Entity entity)
+    {
+        int index = entity.getIndex();
+        int ref = ref(index);
+        if (ref == 0)
+        {
+            return null;
+        }
+
+        Component former = values.get(ref - 1);
+        unlink(index, ref - 1);
+        refs[index] = 0;
+        removed();
+        return former;
+    }
+
+    /**
+     * Returns the id of the given value, registering it if it is new.
+     */
+    private int valueId(Component component)
+    {
+        Integer valueId = valueIds.get(component);
+        if (valueId != null)
+        {
+            return valueId;
+        }
+
+        int id;
+        if (freeValueIds.isEmpty())
+        {
+            id = values.size();
+            values.add(component);
+            members.add(new Members());
+        }
+        else
+        {
+            id = freeValueIds.remove(freeValueIds.size() - 1);
+            values.set(id, component);
+        }
+        valueIds.put(component, id);
+        return id;
+    }
+
+    /**
+     * Removes the given entity index from the members of the given value and drops values no longer referenced.
+     */
+    private void unlink(int index, int valueId)
+    {
+        Members valueMembers = members.get(valueId);
+        int moved = valueMembers.remove(positions[index]);
+        if (moved >= 0)
+        {
+            positions[moved] = positions[index];
+        }
+
+        if (valueMembers.count == 0)
+        {
+            valueIds.remove(values.get(valueId));
+            values.set(valueId, null);
+            freeValueIds.add(valueId);
+        }
+    }
+
+    @Override
+    void reindex(int[] newIndexes, int limit)
+    {
+        int length = Math.max(64, limit);
+        int[] newRefs = new int[length];
+        int[] newPositions = new int[length];
+        for (int i = 0; i < refs.length && i < newIndexes.length; i++)
+        {
+            if (refs[i] != 0)
+            {
+                newRefs[newIndexes[i]] = refs[i];
+                newPositions[newIndexes[i]] = positions[i];
+            }
+        }
+        refs = newRefs;
+        positions = newPositions;
+
+        for (Members valueMembers : members)
+        {
+            for (int i = 0; i < valueMembers.count; i++)
+            {
+                valueMembers.indexes[i] = newIndexes[valueMembers.indexes[i]];
+            }
+            valueMembers.trim();
+        }
+        resetHighWaterMark();
+    }
+
+    /**
+     * Returns the entities having a value equal to the given one.
+     */
+    Set<Entity> entitiesWith(Component value)
+    {
+        Integer valueId = valueIds.get(value);
+        if (valueId == null)
+        {
+            return Collections.emptySet();
+        }
+
+        Members valueMembers = members.get(valueId);
+        Set<Entity> set = new HashSet<Entity>();
+        for (int i = 0; i < valueMembers.count; i++)
+        {
+            set.add(entityIndex.get(valueMembers.indexes[i]));
+        }
+        return set;
+    }
+
+    /**
+     * Returns the distinct values currently referenced.
+     */
+    Collection<Component> distinctValues()
+    {
+        return Collections.unmodifiableSet(valueIds.keySet());
+    }
+
+    @Override
+    Set<Entity> entities()
+    {
+        return entitySet;
+    }
+
+    @Override
+    Collection<Component> components()
+    {
+        return componentCollection;
+    }
+
+    @Override
+    StoreFootprint footprint()
+    {
+        int distinct = valueIds.size();
+        long overhead = 2 * align(OBJECT_HEADER + 4 + refs.length * 4L) + (long) size() * 4 +
+            (long) members.size() * align(OBJECT_HEADER + 4 + REFERENCE) +
+            (long) distinct * VALUE_ENTRY_SIZE;
+        return new StoreFootprint(componentType.getName(), size(), highWaterMark(), refs.length, overhead,
+            componentSize, overhead + (long) distinct * componentSize);
+    }
+
+    /**
+     * Unordered list of the entity indexes referencing one value.
+     */
+    private static class Members
+    {
+        int[] indexes = new int[8];
+        int count;
+
+        /**
+         * Adds the given entity index and returns its position.
+         */
+        int add(int index)
+        {
+            if (count == indexes.length)
+            {
+                indexes = Arrays.copyOf(indexes, count * 2);
+            }
+            indexes[count] = index;
+            return count++;
+        }
+
+        void trim()
+        {
+            if (indexes.length > 8 && count < indexes.length / 2)
+            {
+                indexes = Arrays.copyOf(indexes, Math.max(8, count));
+            }
+        }
+
+        /**
+         * Removes the entity index at the given position by moving the last one into its place.
+         *
+         * @return the moved entity index or <code>-1</code>
+         */
+        int remove(int position)
+        {
+            int last = --count;
+            if (position == last)
+            {
+                return -1;
+            }
+            int moved = indexes[last];
+            indexes[position] = moved;
+            return moved;
+        }
+    }
+
+    /**
+     * Iterates over the entity indexes having a value.
+     */
+    private class RefIterator
+    {
+        private int index = advance(0);
+
+        private int advance(int index)
+        {
+            while (index < refs.length && refs[index] == 0)
+            {
+                index++;
+            }
+            return index;
+        }
+
+        boolean hasNext()
+        {
+            return index < refs.length;
+        }
+
+        int next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            int current = index;
+            index = advance(index + 1);
+            return current;
+        }
+    }
+
+    private class EntitySet
+        extends AbstractSet<Entity>
+    {
+        @Override
+        public Iterator<Entity> iterator()
+        {
+            final RefIterator refIterator = new RefIterator();
+            return new Iterator<Entity>()
+            {
+                @Override
+                public boolean hasNext()
+                {
+                    return refIterator.hasNext();
+                }
+
+                @Override
+                public Entity next()
+                {
+                    return entityIndex.get(refIterator.next());
+                }
+
+                @Override
+                public void remove()
+                {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public boolean contains(Object o)
+        {
+            return o instanceof Entity && ref(((Entity) o).getIndex()) != 0 &&
+                entityIndex.get(((Entity) o).getIndex()).equals(o);
+        }
+
+        @Override
+        public int size()
+        {
+            return SharedComponentStore.this.size();
+        }
+    }
+
+    private class ComponentCollection
+        extends AbstractCollection<Component>
+    {
+        @Override
+        public Iterator<Component> iterator()
+        {
+            final RefIterator refIterator = new RefIterator();
+            return new Iterator<Component>()
+            {
+                @Override
+                public boolean hasNext()
+                {
+                    return refIterator.hasNext();
+                }
+
+                @Override
+                public Component next()
+                {
+                    return values.get(refs[refIterator.next()] - 1);
+                }
+
+                @Override
+                public void remove()
+                {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public int size()
+        {
+            return SharedComponentStore.this.size();
+        }
+    }
+}
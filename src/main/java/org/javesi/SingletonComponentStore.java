@@ -0,0 +1,154 @@
+package org.javesi;
+
+import org.javesi.component.Component;
+import org.javesi.component.SingletonComponent;
+import org.javesi.status.StoreFootprint;
+import org.javesi.util.SingletonSet;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stores the one component of a singleton component type.
+ */
+final class SingletonComponentStore
+    extends ComponentStore
+{
+    private SingletonComponentConnection connection;
+
+    SingletonComponentStore(Class<? extends Component> componentType)
+    {
+        super(componentType);
+    }
+
+    /**
+     * Returns the entity the singleton is currently assigned to or <code>null</code>
+     */
+    Entity getOwner()
+    {
+        SingletonComponentConnection connection = this.connection;
+        return connection != null ? connection.entity : null;
+    }
+
+    SingletonComponent getComponent()
+    {
+        SingletonComponentConnection connection = this.connection;
+        return connection != null ? connection.component : null;
+    }
+
+    @Override
+    Component get(Entity entity)
+    {
+        SingletonComponentConnection connection = this.connection;
+        if (connection != null && connection.entity.getId() == entity.getId())
+        {
+            return connection.component;
+        }
+        return null;
+    }
+
+    @Override
+    Component put(Entity entity, Component component)
+    {
+        SingletonComponentConnection former = connection;
+        connection = new SingletonComponentConnection((SingletonComponent) component, entity);
+
+        if (former == null)
+        {
+            added();
+            return null;
+        }
+        return former.entity.getId() == entity.getId() ? former.component : null;
+    }
+
+    @Override
+    Component remove(Entity entity)
+    {
+        SingletonComponentConnection connection = this.connection;
+        if (connection != null && connection.entity.getId() == entity.getId())
+        {
+            this.connection = null;
+            removed();
+            return connection.component;
+        }
+        return null;
+    }
+
+    @Override
+    Set<Entity> entities()
+    {
+        SingletonComponentConnection connection = this.connection;
+        return connection != null ? connection.entities() : Collections.<Entity>emptySet();
+    }
+
+    @Override
+    Collection<Component> components()
+    {
+        SingletonComponentConnection connection = this.connection;
+        return connection != null ? connection.components() : Collections.<Component>emptySet();
+    }
+
+    @Override
+    Map<Entity, Component> entityToComponentMap()
+    {
+        throw new UnsupportedOperationException("Singletons not supported in getEntityToComponentMap");
+    }
+
+    @Override
+    StoreFootprint footprint()
+    {
+        int size = size();
+        long overhead = align(OBJECT_HEADER + 4 * REFERENCE);
+        return new StoreFootprint(componentType.getName(), size, highWaterMark(), 1, overhead, componentSize,
+            overhead + size * componentSize);
+    }
+
+    /**
+     * Immutable class to encapsulate the attribution of a singleton component to an entity.
+     * <p/>
+     * Offers two set views on the component and entity via lazy initialized {@link org.javesi.util.SingletonSet] impl.
+     */
+    private static class SingletonComponentConnection
+    {
+        public final SingletonComponent component;
+        public final Entity entity;
+        private SingletonSet<Component> componentSet;
+        private SingletonSet<Entity> entitySet;
+
+        public SingletonComponentConnection(SingletonComponent component, Entity entity)
+        {
+            assert entity != null : "Entity can't be null";
+            assert component != null : "Component can't be null";
+
+            this.component = component;
+            this.entity = entity;
+        }
+
+        public Set<Component> components()
+        {
+            SingletonSet<Component> set = componentSet;
+
+            if (set == null)
+            {
+                set = new SingletonSet<Component>(this.component);
+                componentSet = set;
+            }
+            return set;
+        }
+
+        public Set<Entity> entities()
+        {
+            SingletonSet<Entity> set = entitySet;
+
+            if (set == null)
+            {
+                set = new SingletonSet<Entity>(this.entity);
+                entitySet = set;
+            }
+
+            return set;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package org.javesi;
+
+import org.javesi.component.Component;
+import org.javesi.exception.InvalidComponentTypeException;
+import org.javesi.status.StoreFootprint;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Stores a tag component type as a bit set over the entity indexes. All entities share the first component instance
+ * added.
+ */
+final class TagComponentStore
+    extends ComponentStore
+{
+    private final EntityIndex entityIndex;
+
+    private long[] words = new long[1];
+    private Component instance;
+
+    private final Set<Entity> entitySet = new EntitySet();
+    private final Collection<Component> componentCollection = new ComponentCollection();
+
+    TagComponentStore(Class<? extends Component> componentType, EntityIndex entityIndex)
+    {
+        super(componentType);
+        this.entityIndex = entityIndex;
+    }
+
+    /**
+     * Makes sure the given tag component type has no fields.
+     *
+     * @throws InvalidComponentTypeException if the type has instance fields
+     */
+    static void validate(Class<? extends Component> componentType)
+    {
+        for (Class<?> c = componentType; c != null; c = c.getSuperclass())
+        {
+            for (Field field : c.getDeclaredFields())
+            {
+                if (!Modifier.isStatic(field.getModifiers()))
+                {
+                    throw new InvalidComponentTypeException("Tag component " + componentType.getName() +
+                        " must not have fields: " + field.getName());
+                }
+            }
+        }
+    }
+
+    @Override
+    boolean contains(Entity entity)
+    {
+        return isSet(entity.getIndex());
+    }
+
+    private boolean isSet(int index)
+    {
+        int word = index >>> 6;
+        return index >= 0 && word < words.length && (words[word] & (1L << index)) != 0;
+    }
+
+    @Override
+    Component get(Entity entity)
+    {
+        return contains(entity) ? instance : null;
+    }
+
+    @Override
+    Component put(Entity entity, Component component)
+    {
+        if (instance == null)
+        {
+            instance = component;
+        }
+
+        int index = entity.getIndex();
+        int word = index >>> 6;
+        if (word >= words.length)
+        {
+            words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+        }
+
+        long bit = 1L << index;
+        if ((words[word] & bit) != 0)
+        {
+            return instance;
+        }
+
+        words[word] |= bit;
+        added();
+        return null;
+    }
+
+    @Override
+    Component remove(Entity entity)
+    {
+        int index = entity.getIndex();
+        if (!isSet(index))
+        {
+            return null;
+        }
+
+        words[index >>> 6] &= ~(1L << index);
+        removed();
+        return instance;
+    }
+
+    @Override
+    boolean needsCompaction(float minFillRatio)
+    {
+        // the bit set is compacted together with the entity index
+        return false;
+    }
+
+    @Override
+    void reindex(int[] newIndexes, int limit)
+    {
+        long[] reindexed = new long[Math.max(1, (limit + 63) >>> 6)];
+        for (int i = 0; i < words.length; i++)
+        {
+            long word = words[i];
+            while (word != 0)
+            {
+                int newIndex = newIndexes[(i << 6) + Long.numberOfTrailingZeros(word)];
+                reindexed[newIndex >>> 6] |= 1L << newIndex;
+                word &= word - 1;
+            }
+        }
+        words = reindexed;
+        resetHighWaterMark();
+    }
+
+    /**
+     * Returns the bit set words. Bits are set for the indexes of the entities having the tag.
+     */
+    long[] words()
+    {
+        return words;
+    }
+
+    @Override
+    Set<Entity> entities()
+    {
+        return entitySet;
+    }
+
+    @Override
+    Collection<Component> components()
+    {
+        return componentCollection;
+    }
+
+    @Override
+    StoreFootprint footprint()
+    {
+        int capacity = words.length * 64;
+        long overhead = align(OBJECT_HEADER + 4 + words.length * 8L) + align(OBJECT_HEADER + 4 * REFERENCE);
+        return new StoreFootprint(componentType.getName(), size(), highWaterMark(), capacity, overhead, 0, overhead);
+    }
+
+    /**
+     * Returns a new set containing the entities whose bits are set in the given words.
+     */
+    static Set<Entity> toEntities(long[] words, EntityIndex entityIndex)
+    {
+        Set<Entity> set = new HashSet<Entity>();
+        for (int i = 0; i < words.length; i++)
+        {
+            long word = words[i];
+            while (word != 0)
+            {
+                int bit = Long.numberOfTrailingZeros(word);
+                set.add(entityIndex.get((i << 6) + bit));
+                word &= word - 1;
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Iterates over the entity indexes with set bits.
+     */
+    private class BitIterator
+    {
+        private int wordIndex = -1;
+        private long word;
+
+        BitIterator()
+        {
+            advance();
+        }
+
+        private void advance()
+        {
+            while (word == 0 && ++wordIndex < words.length)
+            {
+                word = words[wordIndex];
+            }
+        }
+
+        boolean hasNext()
+        {
+            return word != 0;
+        }
+
+        int next()
+        {
+            if (word == 0)
+            {
+                throw new NoSuchElementException();
+            }
+
+            int index = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            word &= word - 1;
+            advance();
+            return index;
+        }
+    }
+
+    private class EntitySet
+        extends AbstractSet<Entity>
+    {
+        @Override
+        public Iterator<Entity> iterator()
+        {
+            final BitIterator bits = new BitIterator();
+            return new Iterator<Entity>()
+            {
+                @Override
+                public boolean hasNext()
+                {
+                    return bits.hasNext();
+                }
+
+                @Override
+                public Entity next()
+                {
+                    return entityIndex.get(bits.next());
+                }
+
+                @Override
+                public void remove()
+                {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public boolean contains(Object o)
+        {
+            return o instanceof Entity && TagComponentStore.this.contains((Entity) o);
+        }
+
+        @Override
+        public int size()
+        {
+            return TagComponentStore.this.size();
+        }
+    }
+
+    private class ComponentCollection
+        extends AbstractCollection<Component>
+    {
+        @Override
+        public Iterator<Component> iterator()
+        {
+            final BitIterator bits = new BitIterator();
+            return new Iterator<Component>()
+            {
+                @Override
+                public boolean hasNext()
+                {
+                    return bits.hasNext();
+                }
+
+                @Override
+                public Component next()
+                {
+                    bits.next();
+                    return instance;
+                }
+
+                @Override
+                public void remove()
+                {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public int size()
+        {
+            return TagComponentStore.this.size();
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package org.javesi;
+
+import org.javesi.codec.ComponentCodec;
+import org.javesi.component.Component;
+import org.javesi.exception.JavesyRuntimeException;
+import org.javesi.status.ColdStorageStatistics;
+import org.javesi.status.StoreFootprint;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores the components of one type in a bounded LRU cache on the heap. Components evicted from the cache are encoded
+ * into a {@link ColdStorageFile} and hydrated transparently when they are read again.
+ * <p>
+ *     Replacing or removing a cold component does not read it back from the file, {@link #put} and {@link #remove}
+ *     return {@link #COLD} instead of the former component in that case.
+ * </p>
+ * <p>
+ *     Changes are only made by the thread holding the world lock, but {@link #get} and {@link #contains} are
+ *     synchronized, since parallel streams read components from several threads and reads change the tiers.
+ * </p>
+ */
+final class TieredComponentStore
+    extends ComponentStore
+{
+    /** stands in for cold components replaced or removed without hydrating them */
+    final static Component COLD = new Component()
+    {
+        @Override
+        public String toString()
+        {
+            return "[cold component]";
+        }
+    };
+
+    /** estimated size of a linked hash map entry: hash map entry plus before and after references */
+    private final static int HOT_ENTRY_SIZE = align(OBJECT_HEADER + 4 + 5 * REFERENCE);
+    /** estimated size of a cold entry: hash map entry plus the cold reference */
+    private final static int COLD_ENTRY_SIZE = align(OBJECT_HEADER + 4 + 3 * REFERENCE) +
+        align(OBJECT_HEADER + 8 + 4);
+
+    private final ComponentCodec<Component> codec;
+    private final int hotCapacity;
+    private final File directory;
+    private ColdStorageFile file;
+
+    private final Map<Entity, Component> hot;
+    private final Map<Entity, ColdRef> cold = new HashMap<Entity, ColdRef>();
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final DataOutputStream bufferOut = new DataOutputStream(buffer);
+
+    private final AtomicInteger coldCount = new AtomicInteger();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final Set<Entity> entitySet = new EntitySet();
+
+    TieredComponentStore(Class<? extends Component> componentType, ComponentCodec<? extends Component> codec,
+                         File directory, int hotCapacity)
+    {
+        super(componentType);
+
+        if (hotCapacity < 1)
+        {
+            throw new IllegalArgumentException("Hot capacity must be at least 1");
+        }
+
+        this.codec = (ComponentCodec<Component>) codec;
+        this.hotCapacity = hotCapacity;
+        this.directory = directory;
+        this.file = new ColdStorageFile(directory, componentType.getSimpleName());
+        this.hot = new LinkedHashMap<Entity, Component>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Entity, Component> eldest)
+            {
+                if (size() > TieredComponentStore.this.hotCapacity)
+                {
+                    evict(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the component of the given entity, hydrating it if it is cold.
+     */
+    @Override
+    synchronized Component get(Entity entity)
+    {
+        Component component = hot.get(entity);
+        if (component != null)
+        {
+            increment(hits);
+            return component;
+        }
+
+        ColdRef ref = cold.remove(entity);
+        if (ref == null)
+        {
+            return null;
+        }
+
+        increment(misses);
+        coldCount.lazySet(coldCount.get() - 1);
+        file.free(ref.size);
+        component = decode(file.read(ref.offset, ref.size));
+        hot.put(entity, component);
+        return component;
+    }
+
+    @Override
+    synchronized boolean contains(Entity entity)
+    {
+        // containsKey does not change the access order
+        return hot.containsKey(entity) || cold.containsKey(entity);
+    }
+
+    @Override
+    Component put(Entity entity, Component component)
+    {
+        Component former = hot.put(entity, component);
+        if (former == null)
+        {
+            if (dropCold(entity))
+            {
+                return COLD;
+            }
+            added();
+        }
+        return former;
+    }
+
+    @Override
+    Component remove(Entity entity)
+    {
+        Component former = hot.remove(entity);
+        if (former == null && dropCold(entity))
+        {
+            former = COLD;
+        }
+
+        if (former != null)
+        {
+            removed();
+        }
+        return former;
+    }
+
+    private boolean dropCold(Entity entity)
+    {
+        ColdRef ref = cold.remove(entity);
+        if (ref == null)
+        {
+            return false;
+        }
+
+        coldCount.lazySet(coldCount.get() - 1);
+        file.free(ref.size);
+        return true;
+    }
+
+    private void evict(Entity entity, Component component)
+    {
+        byte[] data = encode(component);
+        cold.put(entity, new ColdRef(file.write(data), data.length));
+        coldCount.lazySet(coldCount.get() + 1);
+        increment(evictions);
+    }
+
+    private byte[] encode(Component component)
+    {
+        try
+        {
+            buffer.reset();
+            codec.write(component, bufferOut);
+            bufferOut.flush();
+            return buffer.toByteArray();
+        }
+        catch (IOException e)
+        {
+            throw new JavesyRuntimeException("Error encoding " + component, e);
+        }
+    }
+
+    private Component decode(byte[] data)
+    {
+        try
+        {
+            return codec.read(new DataInputStream(new ByteArrayInputStream(data)));
+        }
+        catch (IOException e)
+        {
+            throw new JavesyRuntimeException("Error decoding cold " + componentType.getName(), e);
+        }
+    }
+
+    private static void increment(AtomicLong counter)
+    {
+        // single writer: lazySet is enough to publish the new value to readers
+        counter.lazySet(counter.get() + 1);
+    }
+
+    @Override
+    boolean needsCompaction(float minFillRatio)
+    {
+        long length = file.getLength();
+        return length > 0 && length - file.getGarbageBytes() < length * minFillRatio;
+    }
+
+    /**
+     * Rewrites the cold components in entity id order into a new file without the unused space.
+     */
+    @Override
+    void compact()
+    {
+        Entity[] entities = cold.keySet().toArray(new Entity[cold.size()]);
+        Arrays.sort(entities, Entity.ID_ORDER);
+
+        ColdStorageFile compacted = new ColdStorageFile(directory, componentType.getSimpleName());
+        for (Entity entity : entities)
+        {
+            ColdRef ref = cold.get(entity);
+            cold.put(entity, new ColdRef(compacted.write(file.read(ref.offset, ref.size)), ref.size));
+        }
+
+        file.close();
+        file = compacted;
+        resetHighWaterMark();
+    }
+
+    ColdStorageStatistics statistics()
+    {
+        int coldSize = coldCount.get();
+        return new ColdStorageStatistics(size() - coldSize, hotCapacity, coldSize, hits.get(), misses.get(),
+            evictions.get(), file.getLength(), file.getGarbageBytes());
+    }
+
+    void close()
+    {
+        file.close();
+    }
+
+    @Override
+    Set<Entity> entities()
+    {
+        return entitySet;
+    }
+
+    /**
+     * Returns all components, hydrating the cold ones. Iterating over all components of a tiered type defeats its
+     * purpose and should be avoided.
+     */
+    @Override
+    Collection<Component> components()
+    {
+        return new AbstractCollection<Component>()
+        {
+            @Override
+            public Iterator<Component> iterator()
+            {
+                // iterates the values directly, getting from the access ordered hot map would change its order
+                final Iterator<Component> hotComponents = hot.values().iterator();
+                final Iterator<ColdRef> coldRefs = cold.values().iterator();
+                return new Iterator<Component>()
+                {
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return hotComponents.hasNext() || coldRefs.hasNext();
+                    }
+
+                    @Override
+                    public Component next()
+                    {
+                        if (hotComponents.hasNext())
+                        {
+                            return hotComponents.next();
+                        }
+
+                        // read without hydrating, that would change the maps during iteration
+                        ColdRef ref = coldRefs.next();
+                        return decode(file.read(ref.offset, ref.size));
+                    }
+
+                    @Override
+                    public void remove()
+                    {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public int size()
+            {
+                return TieredComponentStore.this.size();
+            }
+        };
+    }
+
+    @Override
+    StoreFootprint footprint()
+    {
+        int coldSize = coldCount.get();
+        int hotSize = size() - coldSize;
+        long overhead = 2 * MapComponentStore.MAP_SIZE + (long) hotSize * HOT_ENTRY_SIZE +
+            (long) coldSize * COLD_ENTRY_SIZE;
+        return new StoreFootprint(componentType.getName(), size(), highWaterMark(), hotCapacity, overhead,
+            componentSize, overhead + (long) hotSize * componentSize);
+    }
+
+    /**
+     * Position of a cold component in the cold storage file.
+     */
+    private static class ColdRef
+    {
+        final long offset;
+        final int size;
+
+        ColdRef(long offset, int size)
+        {
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
+    private class EntitySet
+        extends AbstractSet<Entity>
+    {
+        @Override
+        public Iterator<Entity> iterator()
+        {
+            // iterates a copy, reading components while iterating moves them between the hot and the cold map
+            final Entity[] entities = new Entity[hot.size() + cold.size()];
+            int count = 0;
+            for (Entity entity : hot.keySet())
+            {
+                entities[count++] = entity;
+            }
+            for (Entity entity : cold.keySet())
+            {
+                entities[count++] = entity;
+            }
+
+            return new Iterator<Entity>()
+            {
+                private int index;
+
+                @Override
+                public boolean hasNext()
+                {
+                    return index < entities.length;
+                }
+
+                @Override
+                public Entity next()
+                {
+                    if (index == entities.length)
+                    {
+                        throw new NoSuchElementException();
+                    }
+                    return entities[index++];
+                }
+
+                @Override
+                public void remove()
+                {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public boolean contains(Object o)
+        {
+            return o instanceof Entity && TieredComponentStore.this.contains((Entity) o);
+        }
+
+        @Override
+        public int size()
+        {
+            return TieredComponentStore.this.size();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.javesi.change;
+
+import org.javesi.component.Component;
+
+/**
+ * A single structural change of an entity system as published by a {@link ChangePublisher}.
+ * <p>
+ *     Components are copies taken when the job committed, so subscribers on other threads can read them safely.
+ * </p>
+ */
+public final class Change
+{
+    public enum Kind
+    {
+        ENTITY_CREATED,
+        ENTITY_KILLED,
+        ENTITY_RENAMED,
+        COMPONENT_ADDED,
+        COMPONENT_CHANGED,
+        COMPONENT_REMOVED
+    }
+
+    private final Kind kind;
+    private final long entityId;
+    private final String name;
+    private final Class<? extends Component> componentType;
+    private final Component component;
+
+    Change(Kind kind, long entityId, String name, Class<? extends Component> componentType, Component component)
+    {
+        this.kind = kind;
+        this.entityId = entityId;
+        this.name = name;
+        this.componentType = componentType;
+        this.component = component;
+    }
+
+    public Kind getKind()
+    {
+        return kind;
+    }
+
+    public long getEntityId()
+    {
+        return entityId;
+    }
+
+    /**
+     * Returns the entity name of created or renamed entities, <code>null</code> otherwise or if the entity has no name.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the component type of component changes, <code>null</code> for entity changes.
+     */
+    public Class<? extends Component> getComponentType()
+    {
+        return componentType;
+    }
+
+    /**
+     * Returns a copy of the added or changed component, <code>null</code> for other changes, if the publisher has no
+     * codecs or if the component was removed again within the same job.
+     */
+    public Component getComponent()
+    {
+        return component;
+    }
+
+    @Override
+    public String toString()
+    {
+        return kind + " #" + entityId + (componentType != null ? " " + componentType.getSimpleName() : "") +
+            (name != null ? " '" + name + "'" : "");
+    }
+}
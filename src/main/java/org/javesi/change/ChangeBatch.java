@@ -0,0 +1,63 @@
+package org.javesi.change;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The changes of one or more committed jobs as delivered to a {@link ChangeSubscriber}.
+ */
+public final class ChangeBatch
+{
+    private final long firstCommit;
+    private final long lastCommit;
+    private final List<Change> changes;
+    private final long droppedBatches;
+
+    ChangeBatch(long firstCommit, long lastCommit, List<Change> changes, long droppedBatches)
+    {
+        this.firstCommit = firstCommit;
+        this.lastCommit = lastCommit;
+        this.changes = Collections.unmodifiableList(changes);
+        this.droppedBatches = droppedBatches;
+    }
+
+    /**
+     * Returns the number of the first commit contained in this batch. Commits are numbered from 1 on per publisher.
+     */
+    public long getFirstCommit()
+    {
+        return firstCommit;
+    }
+
+    /**
+     * Returns the number of the last commit contained in this batch. Only differs from the first commit if batches were
+     * coalesced.
+     */
+    public long getLastCommit()
+    {
+        return lastCommit;
+    }
+
+    /**
+     * Returns the changes in the order they were made.
+     */
+    public List<Change> getChanges()
+    {
+        return changes;
+    }
+
+    /**
+     * Returns the number of batches dropped for this subscriber since the last delivered batch.
+     */
+    public long getDroppedBatches()
+    {
+        return droppedBatches;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ChangeBatch " + firstCommit + (lastCommit != firstCommit ? "-" + lastCommit : "") + ": " +
+            changes.size() + " changes" + (droppedBatches > 0 ? ", " + droppedBatches + " batches dropped" : "");
+    }
+}
@@ -0,0 +1,74 @@
+package org.javesi.change;
+
+import org.javesi.Entity;
+import org.javesi.component.Component;
+
+/**
+ * Implemented by code wanting to observe the structural changes of an entity system.
+ * <p>
+ *     Listeners are registered with {@link org.javesi.EntitySystem#addChangeListener(ChangeListener)} and are
+ *     called synchronously while the world lock is held, so they should be quick and must not call back into the
+ *     entity system.
+ * </p>
+ * <p>
+ *     Changes made within one {@link org.javesi.EntitySystemInterface#execute(org.javesi.job.Job)} call are
+ *     followed by a single {@link #changesCommitted()} call once the job has finished.
+ * </p>
+ */
+public interface ChangeListener
+{
+    /**
+     * Called after a new entity was created.
+     *
+     * @param entity    new entity
+     * @param name      name of the entity or <code>null</code> if it has no name.
+     */
+    void entityCreated(Entity entity, String name);
+
+    /**
+     * Called after an entity was killed. Killing an entity implicitly removes all its components, there are no
+     * additional {@link #componentRemoved(Entity, Class)} calls for them.
+     *
+     * @param entity    killed entity
+     */
+    void entityKilled(Entity entity);
+
+    /**
+     * Called after the name of an entity was changed.
+     *
+     * @param entity    entity
+     * @param name      new name or <code>null</code> if the name was removed.
+     */
+    void entityNameChanged(Entity entity, String name);
+
+    /**
+     * Called after a component was added to an entity, replacing any former component of the same type.
+     *
+     * @param entity    entity
+     * @param component component
+     */
+    void componentAdded(Entity entity, Component component);
+
+    /**
+     * Called after a component was changed in place and marked as changed with
+     * {@link org.javesi.EntitySystem#markChanged(Entity, Class)}.
+     *
+     * @param entity    entity
+     * @param component changed component
+     */
+    void componentChanged(Entity entity, Component component);
+
+    /**
+     * Called after a component was removed from an entity. Not called if the entity did not have a component of
+     * that type.
+     *
+     * @param entity        entity
+     * @param componentType type of the removed component
+     */
+    void componentRemoved(Entity entity, Class<? extends Component> componentType);
+
+    /**
+     * Called once at the end of every job execution.
+     */
+    void changesCommitted();
+}
@@ -0,0 +1,516 @@
+package org.javesi.change;
+
+import org.javesi.Entity;
+import org.javesi.EntitySystem;
+import org.javesi.codec.CodecRegistry;
+import org.javesi.codec.ComponentCodec;
+import org.javesi.component.Component;
+import org.javesi.exception.ChangeBufferOverflowException;
+import org.javesi.exception.JavesyRuntimeException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes the structural changes of an entity system as one {@link ChangeBatch} per committed job to any number of
+ * subscribers, e.g. for analytics, replication or auditing.
+ * <p>
+ *     Follows the reactive streams rules: subscribers only receive as many batches as they requested. Every
+ *     subscriber has a bounded buffer of batches. When it is full, the {@link OverflowPolicy} of the publisher decides
+ *     whether batches are dropped, coalesced or the subscription fails, so a slow subscriber never holds up the world
+ *     lock. Batches are delivered on the given executor.
+ * </p>
+ * <p>
+ *     Subscribers read the batches on other threads while the components keep being changed in place or recycled by
+ *     their pools. So added and changed components are only published as copies taken with the given codecs when
+ *     the job commits, like the {@link org.javesi.delta.DeltaProducer} does. Without codecs, only the entity ids and
+ *     component types are published.
+ * </p>
+ * <p>
+ *     The publisher must be created from within a job. Subscribing, requesting and cancelling works from any thread.
+ * </p>
+ */
+public final class ChangePublisher
+    implements ChangeListener
+{
+    private static org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ChangePublisher.class);
+
+    private final EntitySystem system;
+    private final CodecRegistry codecs;
+    private final Executor executor;
+    private final int bufferSize;
+    private final OverflowPolicy policy;
+
+    private final List<SubscriptionImpl> subscriptions = new CopyOnWriteArrayList<SubscriptionImpl>();
+
+    /** changes of the current job and the entity of each change, only accessed while holding the world lock */
+    private List<Change> changes = new ArrayList<Change>();
+    private final List<Entity> changedEntities = new ArrayList<Entity>();
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final DataOutputStream bufferOut = new DataOutputStream(buffer);
+    private long commit;
+    private volatile boolean closed;
+
+    /**
+     * Creates a new change publisher that publishes no components and registers it with the given entity system.
+     *
+     * @param system        entity system to publish the changes of
+     * @param executor      executor to deliver the batches on
+     * @param bufferSize    maximum number of batches buffered per subscriber
+     * @param policy        what to do when the buffer of a subscriber is full
+     */
+    public ChangePublisher(EntitySystem system, Executor executor, int bufferSize, OverflowPolicy policy)
+    {
+        this(system, null, executor, bufferSize, policy);
+    }
+
+    /**
+     * Creates a new change publisher and registers it with the given entity system.
+     *
+     * @param system        entity system to publish the changes of
+     * @param codecs        codecs to copy the added and changed components of all published types with,
+     *                      <code>null</code> to publish no components
+     * @param executor      executor to deliver the batches on
+     * @param bufferSize    maximum number of batches buffered per subscriber
+     * @param policy        what to do when the buffer of a subscriber is full
+     */
+    public ChangePublisher(EntitySystem system, CodecRegistry codecs, Executor executor, int bufferSize,
+                           OverflowPolicy policy)
+    {
+        if (bufferSize < 1)
+        {
+            throw new IllegalArgumentException("Buffer must at least hold one batch");
+        }
+
+        this.system = system;
+        this.codecs = codecs;
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.policy = policy;
+
+        system.addChangeListener(this);
+    }
+
+    /**
+     * Subscribes to all changes.
+     *
+     * @param subscriber subscriber
+     */
+    public void subscribe(ChangeSubscriber subscriber)
+    {
+        subscribe(subscriber, (Set<Class<? extends Component>>) null);
+    }
+
+    /**
+     * Subscribes to the changes of the given component types. Entity changes are always delivered.
+     *
+     * @param subscriber        subscriber
+     * @param componentTypes    component types to receive changes for
+     */
+    public void subscribe(ChangeSubscriber subscriber, Class<? extends Component>... componentTypes)
+    {
+        subscribe(subscriber, new HashSet<Class<? extends Component>>(Arrays.asList(componentTypes)));
+    }
+
+    private void subscribe(ChangeSubscriber subscriber, Set<Class<? extends Component>> componentTypes)
+    {
+        SubscriptionImpl subscription = new SubscriptionImpl(subscriber, componentTypes);
+        subscriber.onSubscribe(subscription);
+        if (closed)
+        {
+            subscription.complete();
+        }
+        else
+        {
+            subscriptions.add(subscription);
+        }
+    }
+
+    /**
+     * Returns the number of active subscriptions.
+     */
+    public int getSubscriptionCount()
+    {
+        return subscriptions.size();
+    }
+
+    /**
+     * Stops publishing. Subscribers receive their buffered batches and are then completed. Must be called from
+     * within a job.
+     */
+    public void close()
+    {
+        system.removeChangeListener(this);
+        closed = true;
+        for (SubscriptionImpl subscription : subscriptions)
+        {
+            subscription.complete();
+        }
+        subscriptions.clear();
+    }
+
+    //// CHANGE TRACKING /////////////////////////////////////////////////
+
+    @Override
+    public void entityCreated(Entity entity, String name)
+    {
+        record(Change.Kind.ENTITY_CREATED, entity, name, null);
+    }
+
+    @Override
+    public void entityKilled(Entity entity)
+    {
+        record(Change.Kind.ENTITY_KILLED, entity, null, null);
+    }
+
+    @Override
+    public void entityNameChanged(Entity entity, String name)
+    {
+        record(Change.Kind.ENTITY_RENAMED, entity, name, null);
+    }
+
+    @Override
+    public void componentAdded(Entity entity, Component component)
+    {
+        record(Change.Kind.COMPONENT_ADDED, entity, null, component.getClass());
+    }
+
+    @Override
+    public void componentChanged(Entity entity, Component component)
+    {
+        record(Change.Kind.COMPONENT_CHANGED, entity, null, component.getClass());
+    }
+
+    @Override
+    public void componentRemoved(Entity entity, Class<? extends Component> componentType)
+    {
+        record(Change.Kind.COMPONENT_REMOVED, entity, null, componentType);
+    }
+
+    private void record(Change.Kind kind, Entity entity, String name, Class<? extends Component> componentType)
+    {
+        changes.add(new Change(kind, entity.getId(), name, componentType, null));
+        changedEntities.add(entity);
+    }
+
+    @Override
+    public void changesCommitted()
+    {
+        commit++;
+        if (changes.isEmpty())
+        {
+            return;
+        }
+
+        List<Change> committed = changes;
+        changes = new ArrayList<Change>();
+        if (codecs != null)
+        {
+            copyComponents(committed);
+        }
+        changedEntities.clear();
+
+        for (SubscriptionImpl subscription : subscriptions)
+        {
+            List<Change> filtered = subscription.filter(committed);
+            if (!filtered.isEmpty())
+            {
+                subscription.offer(new PendingBatch(commit, filtered));
+            }
+        }
+    }
+
+    /**
+     * Adds copies of the components as they are at the end of the job to the committed component additions and
+     * changes. Components removed again within the job, also by killing their entity, are published as
+     * <code>null</code>.
+     */
+    private void copyComponents(List<Change> committed)
+    {
+        for (int i = 0; i < committed.size(); i++)
+        {
+            Change change = committed.get(i);
+            Entity entity = changedEntities.get(i);
+            // entities killed later in the job have no components left to copy
+            if ((change.getKind() == Change.Kind.COMPONENT_ADDED || change.getKind() == Change.Kind.COMPONENT_CHANGED) &&
+                entity.isAlive())
+            {
+                Component component = system.getComponent(entity, change.getComponentType());
+                if (component != null)
+                {
+                    committed.set(i, new Change(change.getKind(), change.getEntityId(), null,
+                        change.getComponentType(), copy(component)));
+                }
+            }
+        }
+    }
+
+    private Component copy(Component component)
+    {
+        ComponentCodec<Component> codec = (ComponentCodec<Component>) codecs.codecFor(component.getClass());
+        try
+        {
+            buffer.reset();
+            codec.write(component, bufferOut);
+            bufferOut.flush();
+            return codec.read(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())));
+        }
+        catch (IOException e)
+        {
+            throw new JavesyRuntimeException("Error copying " + component, e);
+        }
+    }
+
+    /**
+     * Changes of one or more commits buffered for a subscriber.
+     */
+    private static class PendingBatch
+    {
+        final long firstCommit;
+        long lastCommit;
+        final List<Change> changes;
+
+        PendingBatch(long commit, List<Change> changes)
+        {
+            this.firstCommit = commit;
+            this.lastCommit = commit;
+            this.changes = changes;
+        }
+    }
+
+    private class SubscriptionImpl
+        implements ChangeSubscription, Runnable
+    {
+        private final ChangeSubscriber subscriber;
+        private final Set<Class<? extends Component>> componentTypes;
+
+        /** buffered batches, demand, drop counter and termination state are guarded by this */
+        private final ArrayDeque<PendingBatch> buffer = new ArrayDeque<PendingBatch>();
+        private long demand;
+        private long dropped;
+        private boolean completed;
+        private Throwable error;
+        private boolean cancelled;
+
+        /** number of drain requests, only the caller incrementing it from 0 schedules a drain */
+        private final AtomicInteger wip = new AtomicInteger();
+
+        SubscriptionImpl(ChangeSubscriber subscriber, Set<Class<? extends Component>> componentTypes)
+        {
+            this.subscriber = subscriber;
+            this.componentTypes = componentTypes;
+        }
+
+        List<Change> filter(List<Change> changes)
+        {
+            if (componentTypes == null)
+            {
+                return changes;
+            }
+
+            List<Change> filtered = new ArrayList<Change>();
+            for (Change change : changes)
+            {
+                if (change.getComponentType() == null || componentTypes.contains(change.getComponentType()))
+                {
+                    filtered.add(change);
+                }
+            }
+            return filtered;
+        }
+
+        /**
+         * Buffers the given batch. Called with the world lock held, so it never waits for the subscriber.
+         */
+        void offer(PendingBatch batch)
+        {
+            synchronized (this)
+            {
+                if (cancelled)
+                {
+                    return;
+                }
+
+                if (buffer.size() == bufferSize)
+                {
+                    switch (policy)
+                    {
+                        case DROP_OLDEST:
+                            buffer.removeFirst();
+                            dropped++;
+                            buffer.addLast(batch);
+                            break;
+                        case DROP_LATEST:
+                            dropped++;
+                            break;
+                        case COALESCE:
+                            PendingBatch last = buffer.getLast();
+                            if (last.firstCommit == last.lastCommit)
+                            {
+                                // the list might be shared with other subscribers, merge into a copy
+                                buffer.removeLast();
+                                PendingBatch merged = new PendingBatch(last.firstCommit,
+                                    new ArrayList<Change>(last.changes));
+                                last = merged;
+                                buffer.addLast(merged);
+                            }
+                            last.changes.addAll(batch.changes);
+                            last.lastCommit = batch.lastCommit;
+                            break;
+                        default:
+                            buffer.clear();
+                            cancelled = true;
+                            error = new ChangeBufferOverflowException("Change buffer of " + bufferSize +
+                                " batches overflowed at commit " + batch.firstCommit);
+                            break;
+                    }
+                }
+                else
+                {
+                    buffer.addLast(batch);
+                }
+            }
+            schedule();
+        }
+
+        void complete()
+        {
+            synchronized (this)
+            {
+                completed = true;
+            }
+            schedule();
+        }
+
+        @Override
+        public void request(long n)
+        {
+            synchronized (this)
+            {
+                if (cancelled)
+                {
+                    return;
+                }
+
+                if (n <= 0)
+                {
+                    buffer.clear();
+                    cancelled = true;
+                    error = new IllegalArgumentException("Requested " + n + " batches, must be positive");
+                }
+                else
+                {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel()
+        {
+            synchronized (this)
+            {
+                cancelled = true;
+                buffer.clear();
+            }
+            subscriptions.remove(this);
+        }
+
+        private void schedule()
+        {
+            if (wip.getAndIncrement() == 0)
+            {
+                executor.execute(this);
+            }
+        }
+
+        /**
+         * Delivers buffered batches as long as there is demand. Only ever runs once at a time.
+         */
+        @Override
+        public void run()
+        {
+            int missed = 1;
+            do
+            {
+                while (true)
+                {
+                    ChangeBatch next = null;
+                    Throwable failure = null;
+                    boolean done = false;
+                    synchronized (this)
+                    {
+                        if (error != null)
+                        {
+                            failure = error;
+                            error = null;
+                        }
+                        else if (cancelled)
+                        {
+                            break;
+                        }
+                        else if (demand > 0 && !buffer.isEmpty())
+                        {
+                            PendingBatch pending = buffer.removeFirst();
+                            next = new ChangeBatch(pending.firstCommit, pending.lastCommit, pending.changes, dropped);
+                            dropped = 0;
+                            if (demand != Long.MAX_VALUE)
+                            {
+                                demand--;
+                            }
+                        }
+                        else if (completed && buffer.isEmpty())
+                        {
+                            cancelled = true;
+                            done = true;
+                        }
+                        else
+                        {
+                            break;
+                        }
+                    }
+
+                    if (failure != null)
+                    {
+                        subscriptions.remove(this);
+                        subscriber.onError(failure);
+                        break;
+                    }
+                    if (done)
+                    {
+                        subscriber.onComplete();
+                        break;
+                    }
+                    deliver(next);
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void deliver(ChangeBatch batch)
+        {
+            try
+            {
+                subscriber.onNext(batch);
+            }
+            catch (RuntimeException e)
+            {
+                log.error("Error in change subscriber " + subscriber + ", cancelling subscription", e);
+                cancel();
+            }
+        }
+    }
+}
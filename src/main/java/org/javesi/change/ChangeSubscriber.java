@@ -0,0 +1,40 @@
+package org.javesi.change;
+
+/**
+ * Receives the change batches of a {@link ChangePublisher}. Mirrors the subscriber of the reactive streams
+ * specification (<code>org.reactivestreams.Subscriber</code>, <code>java.util.concurrent.Flow.Subscriber</code>), so
+ * adapting it only takes delegating methods.
+ * <p>
+ *     All methods are called on the executor of the publisher, never concurrently and never while the world lock is
+ *     held.
+ * </p>
+ */
+public interface ChangeSubscriber
+{
+    /**
+     * Called once before any other method. No batches are delivered before
+     * {@link ChangeSubscription#request(long)} is called.
+     *
+     * @param subscription subscription
+     */
+    void onSubscribe(ChangeSubscription subscription);
+
+    /**
+     * Called with the next change batch, at most as often as requested.
+     *
+     * @param batch changes
+     */
+    void onNext(ChangeBatch batch);
+
+    /**
+     * Called when the subscription was terminated with an error, e.g. by the {@link OverflowPolicy#FAIL} policy.
+     *
+     * @param t error
+     */
+    void onError(Throwable t);
+
+    /**
+     * Called after the last batch when the publisher was closed.
+     */
+    void onComplete();
+}
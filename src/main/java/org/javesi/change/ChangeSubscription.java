@@ -0,0 +1,20 @@
+package org.javesi.change;
+
+/**
+ * Subscription of a {@link ChangeSubscriber} to a {@link ChangePublisher}. Mirrors the subscription of the reactive
+ * streams specification. Can be used from any thread.
+ */
+public interface ChangeSubscription
+{
+    /**
+     * Requests the given number of further change batches.
+     *
+     * @param n number of batches, must be positive
+     */
+    void request(long n);
+
+    /**
+     * Cancels the subscription. Buffered batches are discarded.
+     */
+    void cancel();
+}
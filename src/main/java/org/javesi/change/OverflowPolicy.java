@@ -0,0 +1,25 @@
+package org.javesi.change;
+
+/**
+ * Decides what a {@link ChangePublisher} does with a new change batch when the buffer of a subscriber is full.
+ */
+public enum OverflowPolicy
+{
+    /**
+     * Drops the oldest buffered batch.
+     */
+    DROP_OLDEST,
+    /**
+     * Drops the new batch.
+     */
+    DROP_LATEST,
+    /**
+     * Appends the changes of the new batch to the newest buffered batch. No changes are lost, but the buffered
+     * batches keep growing while the subscriber lags behind.
+     */
+    COALESCE,
+    /**
+     * Cancels the subscription and signals a {@link org.javesi.exception.ChangeBufferOverflowException} to the subscriber.
+     */
+    FAIL
+}
@@ -0,0 +1,46 @@
+package org.javesi.codec;
+
+import org.javesi.component.Component;
+import org.javesi.exception.InvalidComponentTypeException;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps component types to their codecs. Serializable component types without a registered codec are handled by
+ * {@link SerializableCodec}.
+ */
+public final class CodecRegistry
+{
+    private final Map<Class<? extends Component>, ComponentCodec<?>> codecs = new HashMap<Class<? extends Component>,
+        ComponentCodec<?>>();
+
+    public <T extends Component> CodecRegistry register(Class<T> componentType, ComponentCodec<T> codec)
+    {
+        codecs.put(componentType, codec);
+        return this;
+    }
+
+    /**
+     * Returns the codec for the given component type.
+     *
+     * @param componentType component type
+     * @return codec
+     * @throws InvalidComponentTypeException if there is no codec for the given type.
+     */
+    public <T extends Component> ComponentCodec<T> codecFor(Class<T> componentType)
+    {
+        ComponentCodec<?> codec = codecs.get(componentType);
+        if (codec == null)
+        {
+            if (!Serializable.class.isAssignableFrom(componentType))
+            {
+                throw new InvalidComponentTypeException("No codec registered for " + componentType + " and it is not " +
+                    "serializable");
+            }
+            codec = SerializableCodec.INSTANCE;
+        }
+        return (ComponentCodec<T>) codec;
+    }
+}
@@ -0,0 +1,33 @@
+package org.javesi.codec;
+
+import org.javesi.component.Component;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes components of one type to a binary stream and reads them back.
+ *
+ * @param <T> component type
+ */
+public interface ComponentCodec<T extends Component>
+{
+    /**
+     * Writes the given component.
+     *
+     * @param component component to write
+     * @param out       output
+     * @throws IOException
+     */
+    void write(T component, DataOutput out) throws IOException;
+
+    /**
+     * Reads a component written by {@link #write(Component, DataOutput)}.
+     *
+     * @param in        input
+     * @return new component instance
+     * @throws IOException
+     */
+    T read(DataInput in) throws IOException;
+}
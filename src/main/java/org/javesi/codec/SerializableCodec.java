@@ -0,0 +1,60 @@
+package org.javesi.codec;
+
+import org.javesi.component.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Fallback codec for components implementing {@link java.io.Serializable}. Works, but is neither fast nor compact, so
+ * you should register a dedicated codec for every component type that is written often.
+ */
+public final class SerializableCodec
+    implements ComponentCodec<Component>
+{
+    public final static SerializableCodec INSTANCE = new SerializableCodec();
+
+    private SerializableCodec()
+    {
+
+    }
+
+    @Override
+    public void write(Component component, DataOutput out) throws IOException
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(bos);
+        oos.writeObject(component);
+        oos.close();
+
+        out.writeInt(bos.size());
+        out.write(bos.toByteArray());
+    }
+
+    @Override
+    public Component read(DataInput in) throws IOException
+    {
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data));
+        try
+        {
+            return (Component) ois.readObject();
+        }
+        catch (ClassNotFoundException e)
+        {
+            throw new InvalidClassException(e.getMessage());
+        }
+        finally
+        {
+            ois.close();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.javesi.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Static helpers to write and read variable length integers. Small values take less bytes, 7 bits of the value are
+ * stored per byte.
+ */
+public final class VarInt
+{
+    private VarInt()
+    {
+
+    }
+
+    /**
+     * Writes the given value as unsigned variable length integer. Negative values always take 10 bytes.
+     */
+    public static void writeUnsigned(DataOutput out, long value) throws IOException
+    {
+        while ((value & ~0x7fL) != 0)
+        {
+            out.writeByte((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    public static long readUnsigned(DataInput in) throws IOException
+    {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do
+        {
+            if (shift > 63)
+            {
+                throw new IOException("Malformed variable length integer");
+            }
+            b = in.readByte();
+            value |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+
+    /**
+     * Writes the given value zig-zag encoded so that small negative values are small, too.
+     */
+    public static void writeSigned(DataOutput out, long value) throws IOException
+    {
+        writeUnsigned(out, (value << 1) ^ (value >> 63));
+    }
+
+    public static long readSigned(DataInput in) throws IOException
+    {
+        long value = readUnsigned(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,12 @@
+package org.javesi.component;
+
+
+/**
+ * Implemented by immutable components whose values are shared by many entities, e.g. mesh references or faction
+ * configs. Equal values are stored only once, so implementations must implement {@link #equals(Object)} and
+ * {@link #hashCode()} and must not be changed after being added to an entity.
+ */
+public interface SharedComponent extends Component
+{
+
+}
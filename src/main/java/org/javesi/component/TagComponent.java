@@ -0,0 +1,11 @@
+package org.javesi.component;
+
+
+/**
+ * Implemented by marker components without any fields, e.g. "Dead" or "Selected". Tag components are stored as a bit
+ * per entity instead of an instance per entity. All entities having the tag share one component instance.
+ */
+public interface TagComponent extends Component
+{
+
+}
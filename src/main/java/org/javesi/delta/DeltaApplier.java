@@ -0,0 +1,166 @@
+package org.javesi.delta;
+
+import org.javesi.Entity;
+import org.javesi.EntitySystem;
+import org.javesi.codec.CodecRegistry;
+import org.javesi.codec.ComponentCodec;
+import org.javesi.codec.VarInt;
+import org.javesi.component.Component;
+import org.javesi.exception.JavesyRuntimeException;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies the deltas and snapshots written by a {@link DeltaProducer} to a replica entity system.
+ * <p>
+ *     The replica must be configured with the same component types as the original and should not be changed
+ *     otherwise. All methods must be called from within jobs on the replica.
+ * </p>
+ */
+public final class DeltaApplier
+{
+    private final EntitySystem replica;
+    private final CodecRegistry codecs;
+
+    private long tick;
+
+    public DeltaApplier(EntitySystem replica, CodecRegistry codecs)
+    {
+        this.replica = replica;
+        this.codecs = codecs;
+    }
+
+    /**
+     * Returns the tick the replica is at.
+     */
+    public long getTick()
+    {
+        return tick;
+    }
+
+    public long apply(byte[] delta) throws IOException
+    {
+        return apply(new ByteArrayInputStream(delta));
+    }
+
+    /**
+     * Reads a delta or snapshot from the given stream and applies it to the replica.
+     *
+     * @param is    input stream
+     * @return tick the replica is at now
+     * @throws IllegalStateException if the delta does not start at the tick the replica is at.
+     * @throws IOException
+     */
+    public long apply(InputStream is) throws IOException
+    {
+        DataInputStream in = new DataInputStream(is);
+
+        if (in.readInt() != DeltaFormat.MAGIC)
+        {
+            throw new JavesyRuntimeException("Not a delta stream");
+        }
+        int version = in.readByte();
+        if (version != DeltaFormat.VERSION)
+        {
+            throw new JavesyRuntimeException("Unsupported delta version " + version);
+        }
+
+        int flags = in.readByte();
+        long fromTick = VarInt.readUnsigned(in);
+        long toTick = VarInt.readUnsigned(in);
+
+        if ((flags & DeltaFormat.SNAPSHOT) != 0)
+        {
+            for (Entity entity : new ArrayList<Entity>(replica.entities()))
+            {
+                replica.killEntity(entity);
+            }
+        }
+        else if (fromTick != tick)
+        {
+            throw new IllegalStateException("Delta starts at tick " + fromTick + ", but the replica is at tick " + tick);
+        }
+
+        long frames = VarInt.readUnsigned(in);
+        for (long i = 0; i < frames; i++)
+        {
+            applyFrame(in);
+        }
+
+        tick = toTick;
+        return tick;
+    }
+
+    private void applyFrame(DataInputStream in) throws IOException
+    {
+        // frame tick
+        VarInt.readUnsigned(in);
+
+        int typeCount = (int) VarInt.readUnsigned(in);
+        List<Class<? extends Component>> types = new ArrayList<Class<? extends Component>>(typeCount);
+        for (int i = 0; i < typeCount; i++)
+        {
+            types.add(findType(in.readUTF()));
+        }
+
+        long[] created = DeltaFormat.readIds(in);
+        String[] names = DeltaFormat.readNames(in, created.length);
+        for (int i = 0; i < created.length; i++)
+        {
+            replica.restoreEntity(created[i], names[i]);
+        }
+
+        for (long id : DeltaFormat.readIds(in))
+        {
+            replica.killEntity(entity(id));
+        }
+
+        long[] renamed = DeltaFormat.readIds(in);
+        names = DeltaFormat.readNames(in, renamed.length);
+        for (int i = 0; i < renamed.length; i++)
+        {
+            replica.setEntityName(entity(renamed[i]), names[i]);
+        }
+
+        for (Class<? extends Component> type : types)
+        {
+            for (long id : DeltaFormat.readIds(in))
+            {
+                replica.removeComponent(entity(id), type);
+            }
+
+            ComponentCodec<? extends Component> codec = codecs.codecFor(type);
+            for (long id : DeltaFormat.readIds(in))
+            {
+                replica.addComponent(entity(id), codec.read(in));
+            }
+        }
+    }
+
+    private Entity entity(long id)
+    {
+        Entity entity = replica.getEntity(id);
+        if (entity == null)
+        {
+            throw new JavesyRuntimeException("Delta references unknown entity " + id);
+        }
+        return entity;
+    }
+
+    private static Class<? extends Component> findType(String name)
+    {
+        try
+        {
+            return (Class<? extends Component>) Class.forName(name, true, DeltaApplier.class.getClassLoader());
+        }
+        catch (ClassNotFoundException e)
+        {
+            throw new JavesyRuntimeException("Delta contains unknown component type " + name, e);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.javesi.delta;
+
+import org.javesi.codec.VarInt;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Constants and helpers shared by {@link DeltaProducer} and {@link DeltaApplier}.
+ * <p>
+ *     A delta stream starts with a header consisting of the magic number, the format version, a flags byte and the
+ *     tick range it covers, followed by one frame per tick. Each frame contains
+ * </p>
+ * <ul>
+ *     <li>the tick number</li>
+ *     <li>the names of the component types referenced in the frame</li>
+ *     <li>the ids and names of the created entities</li>
+ *     <li>the ids of the killed entities</li>
+ *     <li>the ids and names of the renamed entities</li>
+ *     <li>for every component type the ids of the entities that lost that component and the ids and encoded
+ *     components of the entities that had the component added or changed</li>
+ * </ul>
+ * <p>
+ *     Id lists are sorted and written as variable length differences to the former id. Name presence is bit packed.
+ * </p>
+ */
+final class DeltaFormat
+{
+    final static int MAGIC = 0x4a565344;
+    final static int VERSION = 1;
+
+    /** flag marking a stream that contains the complete state instead of changes */
+    final static int SNAPSHOT = 1;
+
+    private DeltaFormat()
+    {
+
+    }
+
+    static void writeIds(DataOutput out, long[] ids, int count) throws IOException
+    {
+        VarInt.writeUnsigned(out, count);
+        long last = 0;
+        for (int i = 0; i < count; i++)
+        {
+            long id = ids[i];
+            if (i == 0)
+            {
+                VarInt.writeSigned(out, id);
+            }
+            else
+            {
+                VarInt.writeUnsigned(out, id - last);
+            }
+            last = id;
+        }
+    }
+
+    static long[] readIds(DataInput in) throws IOException
+    {
+        int count = (int) VarInt.readUnsigned(in);
+        long[] ids = new long[count];
+        long last = 0;
+        for (int i = 0; i < count; i++)
+        {
+            long id = i == 0 ? VarInt.readSigned(in) : last + VarInt.readUnsigned(in);
+            ids[i] = id;
+            last = id;
+        }
+        return ids;
+    }
+
+    /**
+     * Writes a bit set of present names followed by the present names.
+     */
+    static void writeNames(DataOutput out, String[] names, int count) throws IOException
+    {
+        for (int i = 0; i < count; i += 8)
+        {
+            int bits = 0;
+            for (int j = 0; j < 8 && i + j < count; j++)
+            {
+                if (names[i + j] != null)
+                {
+                    bits |= 1 << j;
+                }
+            }
+            out.writeByte(bits);
+        }
+
+        for (int i = 0; i < count; i++)
+        {
+            if (names[i] != null)
+            {
+                out.writeUTF(names[i]);
+            }
+        }
+    }
+
+    static String[] readNames(DataInput in, int count) throws IOException
+    {
+        boolean[] present = new boolean[count];
+        for (int i = 0; i < count; i += 8)
+        {
+            int bits = in.readUnsignedByte();
+            for (int j = 0; j < 8 && i + j < count; j++)
+            {
+                present[i + j] = (bits & (1 << j)) != 0;
+            }
+        }
+
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++)
+        {
+            if (present[i])
+            {
+                names[i] = in.readUTF();
+            }
+        }
+        return names;
+    }
+}
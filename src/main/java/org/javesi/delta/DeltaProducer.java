@@ -0,0 +1,421 @@
+package org.javesi.delta;
+
+import org.javesi.Entity;
+import org.javesi.EntitySystem;
+import org.javesi.change.ChangeListener;
+import org.javesi.codec.CodecRegistry;
+import org.javesi.codec.ComponentCodec;
+import org.javesi.codec.VarInt;
+import org.javesi.component.Component;
+import org.javesi.exception.JavesyRuntimeException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Produces compact binary deltas of an entity system between two ticks to replicate its state with a
+ * {@link DeltaApplier}.
+ * <p>
+ *     The producer tracks the changes made to the entity system and encodes them into one frame per tick when
+ *     {@link #endTick()} is called. The frames of the last ticks are kept so that a delta can be produced for
+ *     every tick range within that history. Replicas that fall further behind need a snapshot.
+ * </p>
+ * <p>
+ *     Components changed in place are only replicated if they are marked as changed with
+ *     {@link EntitySystem#markChanged(Entity, Class)}.
+ * </p>
+ * <p>
+ *     All methods must be called from within jobs.
+ * </p>
+ */
+public final class DeltaProducer
+    implements ChangeListener
+{
+    private final static Comparator<Entity> ID_ORDER = new Comparator<Entity>()
+    {
+        @Override
+        public int compare(Entity e1, Entity e2)
+        {
+            long id1 = e1.getId();
+            long id2 = e2.getId();
+            return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+        }
+    };
+
+    private final EntitySystem system;
+    private final CodecRegistry codecs;
+    private final int maxHistory;
+
+    /** encoded frames of the last ticks, oldest first */
+    private final LinkedList<byte[]> frames = new LinkedList<byte[]>();
+    private long tick;
+
+    // changes of the current tick
+    private final Map<Entity, String> created = new HashMap<Entity, String>();
+    private final Set<Entity> killed = new HashSet<Entity>();
+    private final Map<Entity, String> renamed = new HashMap<Entity, String>();
+    private final Map<Class<? extends Component>, TypeChanges> typeChanges =
+        new LinkedHashMap<Class<? extends Component>, TypeChanges>();
+
+    /**
+     * Creates a new delta producer and registers it with the given entity system.
+     *
+     * @param system        entity system to produce deltas for
+     * @param codecs        codecs for the replicated component types
+     * @param maxHistory    maximum number of ticks to keep frames for
+     */
+    public DeltaProducer(EntitySystem system, CodecRegistry codecs, int maxHistory)
+    {
+        if (maxHistory < 1)
+        {
+            throw new IllegalArgumentException("History must at least contain one tick");
+        }
+
+        this.system = system;
+        this.codecs = codecs;
+        this.maxHistory = maxHistory;
+
+        system.addChangeListener(this);
+    }
+
+    /**
+     * Returns the number of the last finished tick.
+     */
+    public long getTick()
+    {
+        return tick;
+    }
+
+    /**
+     * Finishes the current tick by encoding all changes made in it.
+     *
+     * @return number of the finished tick
+     */
+    public long endTick()
+    {
+        try
+        {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bos);
+            writeFrame(out, tick + 1, created, killed, renamed, typeChanges);
+            out.flush();
+
+            frames.addLast(bos.toByteArray());
+            if (frames.size() > maxHistory)
+            {
+                frames.removeFirst();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new JavesyRuntimeException("Error encoding tick", e);
+        }
+
+        created.clear();
+        killed.clear();
+        renamed.clear();
+        typeChanges.clear();
+
+        return ++tick;
+    }
+
+    /**
+     * Returns the delta between the given ticks.
+     *
+     * @see #writeDelta(long, long, java.io.OutputStream)
+     */
+    public byte[] getDelta(long fromTick, long toTick)
+    {
+        try
+        {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            writeDelta(fromTick, toTick, bos);
+            return bos.toByteArray();
+        }
+        catch (IOException e)
+        {
+            // cannot happen with a ByteArrayOutputStream
+            throw new JavesyRuntimeException(e);
+        }
+    }
+
+    /**
+     * Writes the delta that updates a replica at <code>fromTick</code> to the state at <code>toTick</code>.
+     *
+     * @param fromTick  tick the replica is at
+     * @param toTick    tick to update to
+     * @param os        stream to write to
+     * @throws IllegalArgumentException if the tick range is invalid or no longer within the history.
+     * @throws IOException
+     */
+    public void writeDelta(long fromTick, long toTick, OutputStream os) throws IOException
+    {
+        if (fromTick > toTick || toTick > tick)
+        {
+            throw new IllegalArgumentException("Invalid tick range " + fromTick + " to " + toTick);
+        }
+
+        long oldestTick = tick - frames.size();
+        if (fromTick < oldestTick)
+        {
+            throw new IllegalArgumentException("Tick " + fromTick + " is no longer in the history. Send a snapshot.");
+        }
+
+        DataOutputStream out = new DataOutputStream(os);
+        writeHeader(out, 0, fromTick, toTick);
+        VarInt.writeUnsigned(out, toTick - fromTick);
+
+        Iterator<byte[]> iterator = frames.iterator();
+        for (long frameTick = oldestTick + 1; frameTick <= toTick; frameTick++)
+        {
+            byte[] frame = iterator.next();
+            if (frameTick > fromTick)
+            {
+                out.write(frame);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the complete entity system state at the current tick. Replicas applying the snapshot are updated to the
+     * current tick regardless of their former state. Can only be called directly after {@link #endTick()}.
+     *
+     * @param os    stream to write to
+     * @throws IllegalStateException if there are changes in the current tick
+     * @throws IOException
+     */
+    public void writeSnapshot(OutputStream os) throws IOException
+    {
+        if (!created.isEmpty() || !killed.isEmpty() || !renamed.isEmpty() || !typeChanges.isEmpty())
+        {
+            throw new IllegalStateException("Snapshots can only be written at the end of a tick");
+        }
+
+        Map<Entity, String> entities = new HashMap<Entity, String>();
+        Map<Class<? extends Component>, TypeChanges> components =
+            new LinkedHashMap<Class<? extends Component>, TypeChanges>();
+        for (Entity entity : system.entities())
+        {
+            entities.put(entity, system.nameFor(entity));
+            for (Component component : system.getAllComponentsOnEntity(entity))
+            {
+                changesFor(components, component.getClass()).upserted.add(entity);
+            }
+        }
+
+        DataOutputStream out = new DataOutputStream(os);
+        writeHeader(out, DeltaFormat.SNAPSHOT, tick, tick);
+        VarInt.writeUnsigned(out, 1);
+        writeFrame(out, tick, entities, Collections.<Entity>emptySet(), Collections.<Entity, String>emptyMap(),
+            components);
+        out.flush();
+    }
+
+    //// CHANGE TRACKING /////////////////////////////////////////////////
+
+    @Override
+    public void entityCreated(Entity entity, String name)
+    {
+        created.put(entity, name);
+    }
+
+    @Override
+    public void entityKilled(Entity entity)
+    {
+        if (created.containsKey(entity))
+        {
+            // born and died within the tick, nothing to replicate
+            created.remove(entity);
+        }
+        else
+        {
+            killed.add(entity);
+        }
+
+        renamed.remove(entity);
+        for (TypeChanges changes : typeChanges.values())
+        {
+            changes.upserted.remove(entity);
+            changes.removed.remove(entity);
+        }
+    }
+
+    @Override
+    public void entityNameChanged(Entity entity, String name)
+    {
+        if (created.containsKey(entity))
+        {
+            created.put(entity, name);
+        }
+        else
+        {
+            renamed.put(entity, name);
+        }
+    }
+
+    @Override
+    public void componentAdded(Entity entity, Component component)
+    {
+        TypeChanges changes = changesFor(typeChanges, component.getClass());
+        changes.removed.remove(entity);
+        changes.upserted.add(entity);
+    }
+
+    @Override
+    public void componentChanged(Entity entity, Component component)
+    {
+        componentAdded(entity, component);
+    }
+
+    @Override
+    public void componentRemoved(Entity entity, Class<? extends Component> componentType)
+    {
+        TypeChanges changes = changesFor(typeChanges, componentType);
+        changes.upserted.remove(entity);
+        changes.removed.add(entity);
+    }
+
+    @Override
+    public void changesCommitted()
+    {
+        // ticks are ended explicitly
+    }
+
+    //// ENCODING ////////////////////////////////////////////////////////
+
+    private static void writeHeader(DataOutputStream out, int flags, long fromTick, long toTick) throws IOException
+    {
+        out.writeInt(DeltaFormat.MAGIC);
+        out.writeByte(DeltaFormat.VERSION);
+        out.writeByte(flags);
+        VarInt.writeUnsigned(out, fromTick);
+        VarInt.writeUnsigned(out, toTick);
+    }
+
+    private void writeFrame(DataOutputStream out, long frameTick, Map<Entity, String> created, Set<Entity> killed,
+                            Map<Entity, String> renamed, Map<Class<? extends Component>,
+        TypeChanges> typeChanges) throws IOException
+    {
+        VarInt.writeUnsigned(out, frameTick);
+
+        List<Class<? extends Component>> types = new ArrayList<Class<? extends Component>>();
+        for (Map.Entry<Class<? extends Component>, TypeChanges> e : typeChanges.entrySet())
+        {
+            TypeChanges changes = e.getValue();
+            if (!changes.upserted.isEmpty() || !changes.removed.isEmpty())
+            {
+                types.add(e.getKey());
+            }
+        }
+        VarInt.writeUnsigned(out, types.size());
+        for (Class<? extends Component> type : types)
+        {
+            out.writeUTF(type.getName());
+        }
+
+        writeNamedEntities(out, created);
+        writeEntities(out, sorted(killed));
+        writeNamedEntities(out, renamed);
+
+        for (Class<? extends Component> type : types)
+        {
+            TypeChanges changes = typeChanges.get(type);
+            writeEntities(out, sorted(changes.removed));
+
+            // singletons moved on within the tick are gone from their former owners
+            Entity[] upserted = sorted(changes.upserted);
+            Component[] components = new Component[upserted.length];
+            int count = 0;
+            for (Entity entity : upserted)
+            {
+                Component component = system.getComponent(entity, type);
+                if (component != null)
+                {
+                    upserted[count] = entity;
+                    components[count++] = component;
+                }
+            }
+
+            writeEntities(out, upserted, count);
+            ComponentCodec<Component> codec = (ComponentCodec<Component>) codecs.codecFor(type);
+            for (int i = 0; i < count; i++)
+            {
+                codec.write(components[i], out);
+            }
+        }
+    }
+
+    private static void writeEntities(DataOutputStream out, Entity[] entities) throws IOException
+    {
+        writeEntities(out, entities, entities.length);
+    }
+
+    private static void writeEntities(DataOutputStream out, Entity[] entities, int count) throws IOException
+    {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++)
+        {
+            ids[i] = entities[i].getId();
+        }
+        DeltaFormat.writeIds(out, ids, count);
+    }
+
+    private static void writeNamedEntities(DataOutputStream out, Map<Entity, String> namedEntities) throws IOException
+    {
+        Entity[] entities = sorted(namedEntities.keySet());
+        String[] names = new String[entities.length];
+        for (int i = 0; i < entities.length; i++)
+        {
+            names[i] = namedEntities.get(entities[i]);
+        }
+
+        writeEntities(out, entities);
+        DeltaFormat.writeNames(out, names, names.length);
+    }
+
+    private static Entity[] sorted(Collection<Entity> entities)
+    {
+        Entity[] array = entities.toArray(new Entity[entities.size()]);
+        Arrays.sort(array, ID_ORDER);
+        return array;
+    }
+
+    private static TypeChanges changesFor(Map<Class<? extends Component>, TypeChanges> typeChanges,
+                                          Class<? extends Component> componentType)
+    {
+        TypeChanges changes = typeChanges.get(componentType);
+        if (changes == null)
+        {
+            changes = new TypeChanges();
+            typeChanges.put(componentType, changes);
+        }
+        return changes;
+    }
+
+    /**
+     * Changes to one component type within one tick.
+     */
+    private static class TypeChanges
+    {
+        /** entities that had the component added or changed */
+        final Set<Entity> upserted = new HashSet<Entity>();
+        /** entities that lost the component */
+        final Set<Entity> removed = new HashSet<Entity>();
+    }
+}
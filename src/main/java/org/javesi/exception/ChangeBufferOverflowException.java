@@ -0,0 +1,16 @@
+package org.javesi.exception;
+
+/**
+ * Signalled to subscribers of a {@link org.javesi.change.ChangePublisher} using the
+ * {@link org.javesi.change.OverflowPolicy#FAIL} policy when their buffer overflows.
+ */
+public class ChangeBufferOverflowException
+    extends JavesyRuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    public ChangeBufferOverflowException(String message)
+    {
+        super(message);
+    }
+}
@@ -1,5 +1,9 @@
 package org.javesi.exception;
 
+/**
+ * @deprecated No longer thrown, component types are indexed by name instead of by their hash codes.
+ */
+@Deprecated
 public class ComponentHashNotUniqueException
         extends JavesyRuntimeException
     {
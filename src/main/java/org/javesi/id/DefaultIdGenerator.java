@@ -18,4 +18,23 @@ public final class DefaultIdGenerator
     {
         return entityCount.getAndIncrement();
     }
+
+    @Override
+    public long reserveIds(int count)
+    {
+        return entityCount.getAndAdd(count);
+    }
+
+    @Override
+    public void ensureAbove(long id)
+    {
+        long current;
+        while ((current = entityCount.get()) <= id)
+        {
+            if (entityCount.compareAndSet(current, id + 1))
+            {
+                break;
+            }
+        }
+    }
 }
@@ -6,5 +6,28 @@ package org.javesi.id;
 public interface EntityIdGenerator
 {
     long getNextEntityId();
+
+    /**
+     * Reserves a block of consecutive ids, e.g. for instantiating prefabs in bulk. Not supported by default, callers
+     * then fall back to {@link #getNextEntityId()} for every id.
+     *
+     * @param count number of ids to reserve
+     * @return first reserved id or <code>-1</code> if the generator cannot reserve blocks
+     */
+    default long reserveIds(int count)
+    {
+        return -1;
+    }
+
+    /**
+     * Makes sure that all ids generated from now on are greater than the given id. Called when entities with known
+     * ids are restored. Does nothing by default, which is only correct for generators whose ids never clash with
+     * restored ones.
+     *
+     * @param id    id that is in use
+     */
+    default void ensureAbove(long id)
+    {
+    }
 }
 
@@ -0,0 +1,93 @@
+package org.javesi.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates the ids of one shard of a {@link org.javesi.ShardedEntitySystem}. The high bits of every id contain the
+ * shard number, so the shard of an entity can be computed from its id alone.
+ */
+public final class ShardIdGenerator
+    implements EntityIdGenerator
+{
+    /** number of id bits below the shard number */
+    public final static int SHARD_SHIFT = 48;
+
+    /** maximum number of shards, keeps the ids positive */
+    public final static int MAX_SHARDS = 1 << (63 - SHARD_SHIFT);
+
+    private final static long COUNTER_MASK = (1L << SHARD_SHIFT) - 1;
+
+    private final int shard;
+    private final long base;
+
+    /**
+     * Entity id counter within the shard.
+     */
+    private final AtomicLong entityCount = new AtomicLong(0);
+
+    public ShardIdGenerator(int shard)
+    {
+        if (shard < 0 || shard >= MAX_SHARDS)
+        {
+            throw new IllegalArgumentException("Invalid shard " + shard);
+        }
+
+        this.shard = shard;
+        this.base = (long) shard << SHARD_SHIFT;
+    }
+
+    /**
+     * Returns the shard encoded in the given id.
+     */
+    public static int shardOf(long id)
+    {
+        return (int) (id >>> SHARD_SHIFT);
+    }
+
+    public int getShard()
+    {
+        return shard;
+    }
+
+    @Override
+    public long getNextEntityId()
+    {
+        long count = entityCount.getAndIncrement();
+        if (count > COUNTER_MASK)
+        {
+            throw new IllegalStateException("Shard " + shard + " ran out of entity ids");
+        }
+        return base | count;
+    }
+
+    @Override
+    public long reserveIds(int count)
+    {
+        long first = entityCount.getAndAdd(count);
+        if (first + count - 1 > COUNTER_MASK)
+        {
+            throw new IllegalStateException("Shard " + shard + " ran out of entity ids");
+        }
+        return base | first;
+    }
+
+    @Override
+    public void ensureAbove(long id)
+    {
+        if (shardOf(id) != shard)
+        {
+            // ids of other shards never clash with ours
+            return;
+        }
+
+        long count = id & COUNTER_MASK;
+        long current;
+        while ((current = entityCount.get()) <= count)
+        {
+            if (entityCount.compareAndSet(current, count + 1))
+            {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.javesi.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Emitted for every job executed by an entity system interface. The event duration is the time the job held the
+ * world lock.
+ */
+@Name("org.javesi.Job")
+@Label("Job")
+@Category("Javesi")
+@Description("Job executed while holding the world lock")
+@StackTrace(false)
+public final class JobEvent
+    extends jdk.jfr.Event
+{
+    @Label("Job Class")
+    public Class<?> jobClass;
+
+    @Label("Lock Wait")
+    @Description("Time spent waiting for the world lock")
+    @Timespan(Timespan.NANOSECONDS)
+    public long lockWait;
+}
@@ -0,0 +1,26 @@
+package org.javesi.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Emitted for the evaluation of multi component queries. Only queries running longer than the event threshold
+ * (1 ms by default) are recorded.
+ */
+@Name("org.javesi.Query")
+@Label("Query")
+@Category("Javesi")
+@Description("Evaluation of a query for entities having all of the given component types")
+@Threshold("1 ms")
+public final class QueryEvent
+    extends jdk.jfr.Event
+{
+    @Label("Component Types")
+    public String componentTypes;
+
+    @Label("Result Size")
+    public int resultSize;
+}
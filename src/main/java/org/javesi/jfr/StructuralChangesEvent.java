@@ -0,0 +1,33 @@
+package org.javesi.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Emitted for jobs that changed the structure of the entity system by creating or killing entities or by adding or
+ * removing components. Only jobs running longer than the event threshold (10 ms by default) are recorded.
+ */
+@Name("org.javesi.StructuralChanges")
+@Label("Structural Changes")
+@Category("Javesi")
+@Description("Entities created or killed and components added or removed by a job")
+@StackTrace(false)
+@Threshold("10 ms")
+public final class StructuralChangesEvent
+    extends jdk.jfr.Event
+{
+    @Label("Job Class")
+    public Class<?> jobClass;
+
+    @Label("Structural Changes")
+    @Description("Number of created and killed entities and added and removed components")
+    public long structuralChanges;
+
+    @Label("Entity Count")
+    @Description("Number of entities after the job")
+    public int entityCount;
+}
@@ -0,0 +1,50 @@
+package org.javesi.jmx;
+
+import java.util.Map;
+
+/**
+ * Management interface exposing live statistics of an entity system. All attributes are read from maintained
+ * counters and never need the world lock.
+ */
+public interface EntitySystemMXBean
+{
+    int getEntityCount();
+
+    int getEntityHighWaterMark();
+
+    long getEntitiesCreated();
+
+    long getEntitiesKilled();
+
+    /**
+     * Entities created per second since the former read of this attribute.
+     */
+    double getEntityCreationRate();
+
+    /**
+     * Entities killed per second since the former read of this attribute.
+     */
+    double getEntityKillRate();
+
+    /**
+     * Number of components by component type name.
+     */
+    Map<String, Integer> getComponentCounts();
+
+    long getEstimatedBytes();
+
+    long getJobCount();
+
+    /**
+     * Average number of jobs executed per second since the entity system was created.
+     */
+    double getJobThroughput();
+
+    double getMeanLockWaitMillis();
+
+    double getMaxLockWaitMillis();
+
+    double getMeanLockHoldMillis();
+
+    double getMaxLockHoldMillis();
+}
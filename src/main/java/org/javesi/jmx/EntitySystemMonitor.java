@@ -0,0 +1,213 @@
+package org.javesi.jmx;
+
+import org.javesi.EntitySystem;
+import org.javesi.EntitySystemInterface;
+import org.javesi.exception.JavesyRuntimeException;
+import org.javesi.metrics.LockTimes;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes the status of an entity system and the job metrics of its interface as {@link EntitySystemMXBean}.
+ * <p>
+ *     The monitor of an entity system interface is registered automatically if the builder was configured with a
+ *     JMX name, see {@link org.javesi.EntitySystemBuilder#withJmxName(String)}.
+ * </p>
+ */
+public final class EntitySystemMonitor
+    implements EntitySystemMXBean
+{
+    private final static String DOMAIN = "org.javesi";
+
+    private final EntitySystem system;
+    private final EntitySystemInterface systemInterface;
+
+    private final RateSample creationRate = new RateSample();
+    private final RateSample killRate = new RateSample();
+
+    private ObjectName objectName;
+
+    public EntitySystemMonitor(EntitySystem system, EntitySystemInterface systemInterface)
+    {
+        this.system = system;
+        this.systemInterface = systemInterface;
+    }
+
+    /**
+     * Registers this monitor with the platform MBean server as <code>org.javesi:type=EntitySystem,name=&lt;name&gt;</code>
+     *
+     * @param name  name to register the monitor under
+     * @return the object name the monitor was registered under
+     */
+    public synchronized ObjectName register(String name)
+    {
+        if (objectName != null)
+        {
+            throw new IllegalStateException("Monitor is already registered as " + objectName);
+        }
+
+        try
+        {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=EntitySystem,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+            return objectName;
+        }
+        catch (JMException e)
+        {
+            throw new JavesyRuntimeException("Error registering entity system MBean " + name, e);
+        }
+    }
+
+    /**
+     * Unregisters this monitor from the platform MBean server if it is registered.
+     */
+    public synchronized void unregister()
+    {
+        if (objectName == null)
+        {
+            return;
+        }
+
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName))
+            {
+                server.unregisterMBean(objectName);
+            }
+            objectName = null;
+        }
+        catch (JMException e)
+        {
+            throw new JavesyRuntimeException("Error unregistering entity system MBean " + objectName, e);
+        }
+    }
+
+    public synchronized ObjectName getObjectName()
+    {
+        return objectName;
+    }
+
+    //// ENTITY SYSTEM STATUS ////////////////////////////////////////////
+
+    @Override
+    public int getEntityCount()
+    {
+        return system.getEntityCount();
+    }
+
+    @Override
+    public int getEntityHighWaterMark()
+    {
+        return system.getEntityHighWaterMark();
+    }
+
+    @Override
+    public long getEntitiesCreated()
+    {
+        return system.getEntitiesCreated();
+    }
+
+    @Override
+    public long getEntitiesKilled()
+    {
+        return system.getEntitiesKilled();
+    }
+
+    @Override
+    public double getEntityCreationRate()
+    {
+        return creationRate.update(getEntitiesCreated());
+    }
+
+    @Override
+    public double getEntityKillRate()
+    {
+        return killRate.update(getEntitiesKilled());
+    }
+
+    @Override
+    public Map<String, Integer> getComponentCounts()
+    {
+        return system.getComponentCounts();
+    }
+
+    @Override
+    public long getEstimatedBytes()
+    {
+        return system.getEstimatedBytes();
+    }
+
+    //// JOB METRICS /////////////////////////////////////////////////////
+
+    @Override
+    public long getJobCount()
+    {
+        return systemInterface.getLockTimes().getJobCount();
+    }
+
+    @Override
+    public double getJobThroughput()
+    {
+        return systemInterface.getLockTimes().getThroughput();
+    }
+
+    @Override
+    public double getMeanLockWaitMillis()
+    {
+        LockTimes lockTimes = systemInterface.getLockTimes();
+        long count = lockTimes.getJobCount();
+        return count == 0 ? 0 : toMillis(lockTimes.getTotalWaitNanos()) / count;
+    }
+
+    @Override
+    public double getMaxLockWaitMillis()
+    {
+        return toMillis(systemInterface.getLockTimes().getMaxWaitNanos());
+    }
+
+    @Override
+    public double getMeanLockHoldMillis()
+    {
+        LockTimes lockTimes = systemInterface.getLockTimes();
+        long count = lockTimes.getJobCount();
+        return count == 0 ? 0 : toMillis(lockTimes.getTotalHoldNanos()) / count;
+    }
+
+    @Override
+    public double getMaxLockHoldMillis()
+    {
+        return toMillis(systemInterface.getLockTimes().getMaxHoldNanos());
+    }
+
+    private static double toMillis(long nanos)
+    {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Calculates a rate per second from a monotonic counter and the counter value at the former update.
+     */
+    private static class RateSample
+    {
+        private long value;
+        private long time = System.nanoTime();
+
+        synchronized double update(long newValue)
+        {
+            long now = System.nanoTime();
+            long elapsed = now - time;
+            double rate = elapsed == 0 ? 0 : (newValue - value) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+
+            value = newValue;
+            time = now;
+            return rate;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.javesi.job;
+
+import org.javesi.EntitySystem;
+
+/**
+ * Implemented by code wanting to interact with more than one shard of a {@link org.javesi.ShardedEntitySystem}.
+ *
+ * Executes a unit of work with exclusive access to the state of all requested shards.
+ */
+public interface ShardedJob
+{
+    /**
+     * Executes the job.
+     *
+     * @param shards    entity systems indexed by shard number, <code>null</code> for shards that were not requested
+     * @throws Exception
+     */
+    void execute(EntitySystem[] shards) throws Exception;
+}
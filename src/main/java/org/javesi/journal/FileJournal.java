@@ -0,0 +1,292 @@
+package org.javesi.journal;
+
+import org.javesi.Entity;
+import org.javesi.change.ChangeListener;
+import org.javesi.codec.CodecRegistry;
+import org.javesi.codec.ComponentCodec;
+import org.javesi.component.Component;
+import org.javesi.exception.JavesyRuntimeException;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Write-ahead journal appending all structural changes of an entity system to a file.
+ * <p>
+ *     Changes are buffered in memory and group-committed when the job that made them is finished. The commit
+ *     writes the buffered changes to the file, but only forces them to the disk if at least <code>syncInterval</code>
+ *     milliseconds have passed since the last sync. A sync interval of <code>0</code> syncs on every commit.
+ * </p>
+ * <p>
+ *     Only structural changes are journaled. Components changed in place will not be reflected in the journal unless
+ *     they are marked as changed with {@link org.javesi.EntitySystem#markChanged(Entity, Class)}.
+ * </p>
+ * <p>
+ *     Register the journal with {@link org.javesi.EntitySystem#addChangeListener(ChangeListener)} and use
+ *     {@link JournalReplayer} to recover the entity system state.
+ * </p>
+ */
+public final class FileJournal
+    implements ChangeListener, Closeable
+{
+    final static int MAGIC = 0x4a56534a;
+    final static int VERSION = 1;
+
+    final static byte SESSION = 0;
+    final static byte TYPE = 1;
+    final static byte CREATE = 2;
+    final static byte KILL = 3;
+    final static byte NAME = 4;
+    final static byte ADD = 5;
+    final static byte REMOVE = 6;
+    final static byte COMMIT = 7;
+
+    private final static int BUFFER_SIZE = 65536;
+
+    private final CodecRegistry codecs;
+    private final FileOutputStream fileStream;
+    private final DataOutputStream out;
+
+    /** reused buffer for component payloads */
+    private final ByteArrayOutputStream payload;
+    private final DataOutputStream payloadOut;
+
+    /** component types defined in the current session */
+    private final Map<Class<? extends Component>, Integer> typeIds = new IdentityHashMap<Class<? extends Component>,
+        Integer>();
+
+    private final long syncIntervalNanos;
+    private long lastSync;
+
+    private long sequence;
+    private boolean pending;
+
+    /**
+     * Opens a journal that syncs on every commit.
+     *
+     * @param file          journal file, will be appended to if it exists.
+     * @param codecs        codecs for the journaled component types
+     * @param lastSequence  last commit sequence already contained in the file or <code>0</code>
+     * @throws IOException
+     */
+    public FileJournal(File file, CodecRegistry codecs, long lastSequence) throws IOException
+    {
+        this(file, codecs, lastSequence, 0);
+    }
+
+    /**
+     * Opens a journal.
+     *
+     * @param file          journal file, will be appended to if it exists.
+     * @param codecs        codecs for the journaled component types
+     * @param lastSequence  last commit sequence already contained in the file or <code>0</code>
+     * @param syncInterval  minimum number of milliseconds between two syncs.
+     * @throws IOException
+     */
+    public FileJournal(File file, CodecRegistry codecs, long lastSequence, int syncInterval) throws IOException
+    {
+        this.codecs = codecs;
+        this.sequence = lastSequence;
+        this.syncIntervalNanos = syncInterval * 1000000L;
+
+        fileStream = new FileOutputStream(file, true);
+        out = new DataOutputStream(new BufferedOutputStream(fileStream, BUFFER_SIZE));
+
+        payload = new ByteArrayOutputStream(256);
+        payloadOut = new DataOutputStream(payload);
+
+        out.writeByte(SESSION);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.flush();
+        lastSync = System.nanoTime();
+    }
+
+    /**
+     * Returns the sequence number of the last commit.
+     */
+    public long getSequence()
+    {
+        return sequence;
+    }
+
+    @Override
+    public void entityCreated(Entity entity, String name)
+    {
+        try
+        {
+            out.writeByte(CREATE);
+            out.writeLong(entity.getId());
+            writeName(name);
+            pending = true;
+        }
+        catch (IOException e)
+        {
+            throw new JavesyRuntimeException("Error writing journal", e);
+        }
+    }
+
+    @Override
+    public void entityKilled(Entity entity)
+    {
+        try
+        {
+            out.writeByte(KILL);
+            out.writeLong(entity.getId());
+            pending = true;
+        }
+        catch (IOException e)
+        {
+            throw new JavesyRuntimeException("Error writing journal", e);
+        }
+    }
+
+    @Override
+    public void entityNameChanged(Entity entity, String name)
+    {
+        try
+        {
+            out.writeByte(NAME);
+            out.writeLong(entity.getId());
+            writeName(name);
+            pending = true;
+        }
+        catch (IOException e)
+        {
+            throw new JavesyRuntimeException("Error writing journal", e);
+        }
+    }
+
+    @Override
+    public void componentAdded(Entity entity, Component component)
+    {
+        try
+        {
+            Class<? extends Component> componentType = component.getClass();
+            int typeId = typeId(componentType);
+
+            payload.reset();
+            ComponentCodec<Component> codec = (ComponentCodec<Component>) codecs.codecFor(componentType);
+            codec.write(component, payloadOut);
+
+            out.writeByte(ADD);
+            out.writeLong(entity.getId());
+            out.writeShort(typeId);
+            out.writeInt(payload.size());
+            payload.writeTo(out);
+            pending = true;
+        }
+        catch (IOException e)
+        {
+            throw new JavesyRuntimeException("Error writing journal", e);
+        }
+    }
+
+    @Override
+    public void componentChanged(Entity entity, Component component)
+    {
+        // re-adding the component restores the changed state
+        componentAdded(entity, component);
+    }
+
+    @Override
+    public void componentRemoved(Entity entity, Class<? extends Component> componentType)
+    {
+        try
+        {
+            int typeId = typeId(componentType);
+
+            out.writeByte(REMOVE);
+            out.writeLong(entity.getId());
+            out.writeShort(typeId);
+            pending = true;
+        }
+        catch (IOException e)
+        {
+            throw new JavesyRuntimeException("Error writing journal", e);
+        }
+    }
+
+    @Override
+    public void changesCommitted()
+    {
+        if (!pending)
+        {
+            return;
+        }
+
+        try
+        {
+            out.writeByte(COMMIT);
+            out.writeLong(++sequence);
+            out.flush();
+            pending = false;
+
+            long now = System.nanoTime();
+            if (now - lastSync >= syncIntervalNanos)
+            {
+                fileStream.getChannel().force(false);
+                lastSync = now;
+            }
+        }
+        catch (IOException e)
+        {
+            throw new JavesyRuntimeException("Error committing journal", e);
+        }
+    }
+
+    /**
+     * Forces all committed changes to the disk.
+     *
+     * @throws IOException
+     */
+    public void sync() throws IOException
+    {
+        out.flush();
+        fileStream.getChannel().force(false);
+        lastSync = System.nanoTime();
+    }
+
+    /**
+     * Syncs and closes the journal. Uncommitted changes are lost.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException
+    {
+        sync();
+        out.close();
+    }
+
+    private void writeName(String name) throws IOException
+    {
+        out.writeBoolean(name != null);
+        if (name != null)
+        {
+            out.writeUTF(name);
+        }
+    }
+
+    private int typeId(Class<? extends Component> componentType) throws IOException
+    {
+        Integer id = typeIds.get(componentType);
+        if (id == null)
+        {
+            id = typeIds.size();
+            typeIds.put(componentType, id);
+
+            out.writeByte(TYPE);
+            out.writeShort(id);
+            out.writeUTF(componentType.getName());
+        }
+        return id;
+    }
+}
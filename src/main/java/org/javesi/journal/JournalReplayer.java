@@ -0,0 +1,186 @@
+package org.javesi.journal;
+
+import org.javesi.EntitySystem;
+import org.javesi.codec.CodecRegistry;
+import org.javesi.component.Component;
+import org.javesi.exception.JavesyRuntimeException;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays the changes written by a {@link FileJournal} into an entity system.
+ * <p>
+ *     Only committed changes are replayed, an incomplete tail left behind by a crash is ignored. If the entity
+ *     system was restored from a snapshot first, pass the commit sequence of the snapshot to only replay the changes
+ *     made after it.
+ * </p>
+ * <p>
+ *     Replay the journal before registering a new journal on the entity system, otherwise the replayed changes would
+ *     be journaled again.
+ * </p>
+ */
+public final class JournalReplayer
+{
+    private final CodecRegistry codecs;
+
+    public JournalReplayer(CodecRegistry codecs)
+    {
+        this.codecs = codecs;
+    }
+
+    /**
+     * Replays all changes committed after the given sequence. Must be called from within a job.
+     *
+     * @param file          journal file
+     * @param system        entity system to replay the changes into
+     * @param afterSequence commit sequence to start after
+     * @return sequence of the last commit in the journal
+     * @throws IOException
+     */
+    public long replay(File file, EntitySystem system, long afterSequence) throws IOException
+    {
+        Map<Integer, Class<? extends Component>> types = new HashMap<Integer, Class<? extends Component>>();
+        List<Change> changes = new ArrayList<Change>();
+        long lastSequence = afterSequence;
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try
+        {
+            while (true)
+            {
+                byte op = in.readByte();
+                switch (op)
+                {
+                    case FileJournal.SESSION:
+                        if (in.readInt() != FileJournal.MAGIC)
+                        {
+                            throw new JavesyRuntimeException(file + " is not a journal");
+                        }
+                        int version = in.readByte();
+                        if (version != FileJournal.VERSION)
+                        {
+                            throw new JavesyRuntimeException("Unsupported journal version " + version);
+                        }
+                        // changes of a session that crashed before committing them
+                        changes.clear();
+                        types.clear();
+                        break;
+                    case FileJournal.TYPE:
+                        types.put((int) in.readShort(), findType(in.readUTF()));
+                        break;
+                    case FileJournal.CREATE:
+                    case FileJournal.NAME:
+                        changes.add(new Change(op, in.readLong(), readName(in), null, null));
+                        break;
+                    case FileJournal.KILL:
+                        changes.add(new Change(op, in.readLong(), null, null, null));
+                        break;
+                    case FileJournal.ADD:
+                    {
+                        long id = in.readLong();
+                        Class<? extends Component> type = types.get((int) in.readShort());
+                        in.readInt();
+                        Component component = codecs.codecFor(type).read(in);
+                        changes.add(new Change(op, id, null, type, component));
+                        break;
+                    }
+                    case FileJournal.REMOVE:
+                        changes.add(new Change(op, in.readLong(), null, types.get((int) in.readShort()), null));
+                        break;
+                    case FileJournal.COMMIT:
+                        long sequence = in.readLong();
+                        if (sequence > afterSequence)
+                        {
+                            apply(system, changes);
+                        }
+                        changes.clear();
+                        lastSequence = sequence;
+                        break;
+                    default:
+                        throw new JavesyRuntimeException("Corrupt journal " + file + ": unknown record " + op);
+                }
+            }
+        }
+        catch (EOFException e)
+        {
+            // end of journal, possibly in the middle of an uncommitted record
+        }
+        finally
+        {
+            in.close();
+        }
+        return lastSequence;
+    }
+
+    private void apply(EntitySystem system, List<Change> changes)
+    {
+        for (Change change : changes)
+        {
+            switch (change.op)
+            {
+                case FileJournal.CREATE:
+                    system.restoreEntity(change.id, change.name);
+                    break;
+                case FileJournal.KILL:
+                    system.killEntity(change.id);
+                    break;
+                case FileJournal.NAME:
+                    system.setEntityName(system.getEntity(change.id), change.name);
+                    break;
+                case FileJournal.ADD:
+                    system.addComponent(change.id, change.component);
+                    break;
+                case FileJournal.REMOVE:
+                    system.removeComponent(change.id, change.type);
+                    break;
+            }
+        }
+    }
+
+    private static String readName(DataInputStream in) throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static Class<? extends Component> findType(String name)
+    {
+        try
+        {
+            return (Class<? extends Component>) Class.forName(name, true, JournalReplayer.class.getClassLoader());
+        }
+        catch (ClassNotFoundException e)
+        {
+            throw new JavesyRuntimeException("Journal contains unknown component type " + name, e);
+        }
+    }
+
+    /**
+     * A journaled change waiting for its commit.
+     */
+    private static class Change
+    {
+        final byte op;
+        final long id;
+        final String name;
+        final Class<? extends Component> type;
+        final Component component;
+
+        Change(byte op, long id, String name, Class<? extends Component> type, Component component)
+        {
+            this.op = op;
+            this.id = id;
+            this.name = name;
+            this.type = type;
+            this.component = component;
+        }
+    }
+}
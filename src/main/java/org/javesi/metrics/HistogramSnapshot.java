@@ -0,0 +1,90 @@
+package org.javesi.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable copy of the state of a {@link LatencyHistogram}. All values are in nanoseconds.
+ */
+public final class HistogramSnapshot
+{
+    private final long[] bucketCounts;
+    private final long count;
+    private final long total;
+    private final long max;
+
+    HistogramSnapshot(long[] bucketCounts, long count, long total, long max)
+    {
+        this.bucketCounts = bucketCounts;
+        this.count = count;
+        this.total = total;
+        this.max = max;
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+
+    public long getTotal()
+    {
+        return total;
+    }
+
+    public long getMax()
+    {
+        return max;
+    }
+
+    public long getMean()
+    {
+        return count == 0 ? 0 : total / count;
+    }
+
+    /**
+     * Returns the value below or at which the given percentage of all recorded values lie.
+     *
+     * @param percentile percentile between 0 and 100
+     * @return value in nanoseconds
+     */
+    public long getPercentile(double percentile)
+    {
+        long recorded = 0;
+        for (long bucketCount : bucketCounts)
+        {
+            recorded += bucketCount;
+        }
+
+        if (recorded == 0)
+        {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(recorded * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < bucketCounts.length; i++)
+        {
+            seen += bucketCounts[i];
+            if (seen >= rank)
+            {
+                return Math.min(LatencyHistogram.bucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "count = " + count +
+            ", mean = " + micros(getMean()) +
+            ", p50 = " + micros(getPercentile(50)) +
+            ", p99 = " + micros(getPercentile(99)) +
+            ", p99.9 = " + micros(getPercentile(99.9)) +
+            ", max = " + micros(max);
+    }
+
+    private static String micros(long nanos)
+    {
+        return TimeUnit.NANOSECONDS.toMicros(nanos) + "us";
+    }
+}
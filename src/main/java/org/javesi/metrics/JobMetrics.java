@@ -0,0 +1,109 @@
+package org.javesi.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long jobs waited for the world lock and how long they held it, per job class.
+ * <p>
+ *     Recording is done by the thread holding the world lock and does not allocate except for the first job of every
+ *     job class. Snapshots can be taken at any time without holding the world lock.
+ * </p>
+ */
+public final class JobMetrics
+{
+    private static Logger log = LoggerFactory.getLogger(JobMetrics.class);
+
+    private final ConcurrentMap<Class<?>, JobStats> statsByClass = new ConcurrentHashMap<Class<?>, JobStats>();
+
+    private final long slowJobThresholdNanos;
+    private final long created;
+
+    /**
+     * Creates new job metrics.
+     *
+     * @param slowJobThreshold  jobs holding the world lock longer than the given number of milliseconds are logged.
+     *                          <code>0</code> or less disables the logging.
+     */
+    public JobMetrics(int slowJobThreshold)
+    {
+        this.slowJobThresholdNanos = slowJobThreshold > 0 ? TimeUnit.MILLISECONDS.toNanos(slowJobThreshold) :
+            Long.MAX_VALUE;
+        this.created = System.nanoTime();
+    }
+
+    /**
+     * Records a job execution. Must be called while holding the world lock.
+     *
+     * @param job       executed job
+     * @param waitNanos time spent waiting for the world lock
+     * @param holdNanos time spent holding the world lock
+     */
+    public void record(Object job, long waitNanos, long holdNanos)
+    {
+        Class<?> jobClass = job.getClass();
+        JobStats stats = statsByClass.get(jobClass);
+        if (stats == null)
+        {
+            stats = new JobStats();
+            statsByClass.put(jobClass, stats);
+        }
+
+        stats.waitTimes.record(waitNanos);
+        stats.holdTimes.record(holdNanos);
+
+        if (holdNanos > slowJobThresholdNanos)
+        {
+            log.warn("Slow job {} held the world lock for {} ms after waiting {} ms", new Object[]{job,
+                TimeUnit.NANOSECONDS.toMillis(holdNanos), TimeUnit.NANOSECONDS.toMillis(waitNanos)});
+        }
+    }
+
+    public JobMetricsSnapshot snapshot()
+    {
+        Map<String, JobStatsSnapshot> jobs = new TreeMap<String, JobStatsSnapshot>();
+        for (Map.Entry<Class<?>, JobStats> e : statsByClass.entrySet())
+        {
+            JobStats stats = e.getValue();
+            jobs.put(e.getKey().getName(), new JobStatsSnapshot(stats.waitTimes.snapshot(),
+                stats.holdTimes.snapshot()));
+        }
+        return new JobMetricsSnapshot(jobs, System.nanoTime() - created);
+    }
+
+    /**
+     * Returns the wait and hold times summed up over all job classes, without taking snapshots of the histograms.
+     */
+    public LockTimes lockTimes()
+    {
+        long count = 0;
+        long totalWait = 0;
+        long maxWait = 0;
+        long totalHold = 0;
+        long maxHold = 0;
+        for (JobStats stats : statsByClass.values())
+        {
+            count += stats.holdTimes.getCount();
+            totalWait += stats.waitTimes.getTotal();
+            maxWait = Math.max(maxWait, stats.waitTimes.getMax());
+            totalHold += stats.holdTimes.getTotal();
+            maxHold = Math.max(maxHold, stats.holdTimes.getMax());
+        }
+        return new LockTimes(count, System.nanoTime() - created, totalWait, maxWait, totalHold, maxHold);
+    }
+
+    /**
+     * Histograms of one job class.
+     */
+    private static class JobStats
+    {
+        final LatencyHistogram waitTimes = new LatencyHistogram();
+        final LatencyHistogram holdTimes = new LatencyHistogram();
+    }
+}
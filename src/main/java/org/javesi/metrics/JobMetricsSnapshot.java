@@ -0,0 +1,75 @@
+package org.javesi.metrics;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable copy of the {@link JobMetrics} of an entity system interface. Pretty-prints via toString()
+ */
+public final class JobMetricsSnapshot
+{
+    private final static String SEP = System.getProperty("line.separator");
+
+    private final Map<String, JobStatsSnapshot> jobs;
+    private final long elapsedNanos;
+
+    JobMetricsSnapshot(Map<String, JobStatsSnapshot> jobs, long elapsedNanos)
+    {
+        this.jobs = jobs;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the stats by job class name.
+     */
+    public Map<String, JobStatsSnapshot> getJobs()
+    {
+        return jobs;
+    }
+
+    /**
+     * Returns the number of nanoseconds the metrics have been recorded for.
+     */
+    public long getElapsedNanos()
+    {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the total number of executed jobs.
+     */
+    public long getJobCount()
+    {
+        long count = 0;
+        for (JobStatsSnapshot stats : jobs.values())
+        {
+            count += stats.getCount();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the average number of jobs executed per second.
+     */
+    public double getThroughput()
+    {
+        return elapsedNanos == 0 ? 0 : getJobCount() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("-- Job metrics: ").append(getJobCount()).append(" jobs, ")
+            .append(String.format("%.1f", getThroughput())).append(" jobs/s").append(SEP);
+
+        for (Map.Entry<String, JobStatsSnapshot> e : jobs.entrySet())
+        {
+            JobStatsSnapshot stats = e.getValue();
+            sb.append(e.getKey()).append(SEP);
+            sb.append("    wait : ").append(stats.getWaitTimes()).append(SEP);
+            sb.append("    hold : ").append(stats.getHoldTimes()).append(SEP);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package org.javesi.metrics;
+
+/**
+ * Wait and hold times of all jobs of one job class.
+ */
+public final class JobStatsSnapshot
+{
+    private final HistogramSnapshot waitTimes;
+    private final HistogramSnapshot holdTimes;
+
+    JobStatsSnapshot(HistogramSnapshot waitTimes, HistogramSnapshot holdTimes)
+    {
+        this.waitTimes = waitTimes;
+        this.holdTimes = holdTimes;
+    }
+
+    /**
+     * Returns the number of executed jobs.
+     */
+    public long getCount()
+    {
+        return holdTimes.getCount();
+    }
+
+    /**
+     * Returns the times spent waiting for the world lock.
+     */
+    public HistogramSnapshot getWaitTimes()
+    {
+        return waitTimes;
+    }
+
+    /**
+     * Returns the times spent holding the world lock.
+     */
+    public HistogramSnapshot getHoldTimes()
+    {
+        return holdTimes;
+    }
+}
@@ -0,0 +1,102 @@
+package org.javesi.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of nanosecond durations with logarithmic buckets that are linearly divided into 16 sub buckets, which keeps
+ * the relative error of the recorded values below 6.25%.
+ * <p>
+ *     Recording does not allocate. There must only be one recording thread at a time, which is the thread holding the
+ *     world lock, while snapshots can be taken from any thread at any time.
+ * </p>
+ */
+public final class LatencyHistogram
+{
+    private final static int SUB_BUCKET_BITS = 4;
+    private final static int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** enough buckets for all positive long values */
+    final static int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records the given duration. Single writer only.
+     *
+     * @param nanos duration in nanoseconds
+     */
+    public void record(long nanos)
+    {
+        if (nanos < 0)
+        {
+            nanos = 0;
+        }
+
+        // single writer: lazySet is enough to publish the new values to readers
+        int index = bucketIndex(nanos);
+        counts.lazySet(index, counts.get(index) + 1);
+        count.lazySet(count.get() + 1);
+        total.lazySet(total.get() + nanos);
+        if (nanos > max.get())
+        {
+            max.lazySet(nanos);
+        }
+    }
+
+    long getCount()
+    {
+        return count.get();
+    }
+
+    long getTotal()
+    {
+        return total.get();
+    }
+
+    long getMax()
+    {
+        return max.get();
+    }
+
+    public HistogramSnapshot snapshot()
+    {
+        long[] bucketCounts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            bucketCounts[i] = counts.get(i);
+        }
+        return new HistogramSnapshot(bucketCounts, count.get(), total.get(), max.get());
+    }
+
+    static int bucketIndex(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the highest value that falls into the bucket with the given index.
+     */
+    static long bucketUpperBound(int index)
+    {
+        if (index < SUB_BUCKETS)
+        {
+            return index;
+        }
+
+        int magnitude = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKETS;
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return (((long) (SUB_BUCKETS | subBucket)) << shift) + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,61 @@
+package org.javesi.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wait and hold times of all jobs summed up over the job classes. Read from the counters of the {@link JobMetrics}
+ * without copying the histograms, so it is cheap enough to be polled.
+ */
+public final class LockTimes
+{
+    private final long jobCount;
+    private final long elapsedNanos;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+    private final long totalHoldNanos;
+    private final long maxHoldNanos;
+
+    LockTimes(long jobCount, long elapsedNanos, long totalWaitNanos, long maxWaitNanos, long totalHoldNanos,
+              long maxHoldNanos)
+    {
+        this.jobCount = jobCount;
+        this.elapsedNanos = elapsedNanos;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.totalHoldNanos = totalHoldNanos;
+        this.maxHoldNanos = maxHoldNanos;
+    }
+
+    public long getJobCount()
+    {
+        return jobCount;
+    }
+
+    /**
+     * Returns the average number of jobs executed per second.
+     */
+    public double getThroughput()
+    {
+        return elapsedNanos == 0 ? 0 : jobCount * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    public long getTotalWaitNanos()
+    {
+        return totalWaitNanos;
+    }
+
+    public long getMaxWaitNanos()
+    {
+        return maxWaitNanos;
+    }
+
+    public long getTotalHoldNanos()
+    {
+        return totalHoldNanos;
+    }
+
+    public long getMaxHoldNanos()
+    {
+        return maxHoldNanos;
+    }
+}
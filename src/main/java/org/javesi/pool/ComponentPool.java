@@ -0,0 +1,93 @@
+package org.javesi.pool;
+
+import org.javesi.component.Component;
+
+/**
+ * Bounded pool of component instances of one type.
+ * <p>
+ *     Pools are only used by the thread holding the world lock and are therefore not synchronized. If the pool is full,
+ *     released instances are left to the garbage collector.
+ * </p>
+ *
+ * @param <T> component type
+ */
+public final class ComponentPool<T extends Component>
+{
+    private final ComponentRecycler<T> recycler;
+    private final Component[] instances;
+    private int size;
+
+    private long created;
+    private long reused;
+
+    public ComponentPool(ComponentRecycler<T> recycler, int capacity)
+    {
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("Pool capacity must be at least 1");
+        }
+
+        this.recycler = recycler;
+        this.instances = new Component[capacity];
+    }
+
+    /**
+     * Returns a pooled instance or a new one if the pool is empty.
+     */
+    public T obtain()
+    {
+        if (size == 0)
+        {
+            created++;
+            return recycler.create();
+        }
+
+        T component = (T) instances[--size];
+        instances[size] = null;
+        reused++;
+        return component;
+    }
+
+    /**
+     * Resets the given component and returns it to the pool.
+     *
+     * @param component component no longer used by any entity
+     */
+    public void release(T component)
+    {
+        if (size < instances.length)
+        {
+            recycler.reset(component);
+            instances[size++] = component;
+        }
+    }
+
+    /**
+     * Returns the number of pooled instances.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    public int capacity()
+    {
+        return instances.length;
+    }
+
+    /**
+     * Returns the number of instances created because the pool was empty.
+     */
+    public long getCreated()
+    {
+        return created;
+    }
+
+    /**
+     * Returns the number of instances handed out from the pool.
+     */
+    public long getReused()
+    {
+        return reused;
+    }
+}
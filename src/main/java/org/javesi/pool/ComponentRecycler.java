@@ -0,0 +1,23 @@
+package org.javesi.pool;
+
+import org.javesi.component.Component;
+
+/**
+ * Creates and resets the pooled instances of one component type.
+ *
+ * @param <T> component type
+ */
+public interface ComponentRecycler<T extends Component>
+{
+    /**
+     * Creates a new component instance. Called if the pool is empty.
+     */
+    T create();
+
+    /**
+     * Resets the given component that was removed from its entity to a fresh state before it is pooled.
+     *
+     * @param component removed component
+     */
+    void reset(T component);
+}
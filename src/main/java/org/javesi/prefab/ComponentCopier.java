@@ -0,0 +1,16 @@
+package org.javesi.prefab;
+
+import org.javesi.component.Component;
+
+/**
+ * Copies the prototype component of a {@link Prefab} for every new instance.
+ *
+ * @param <T>   component type
+ */
+public interface ComponentCopier<T extends Component>
+{
+    /**
+     * Returns a new component equal to the given prototype.
+     */
+    T copy(T prototype);
+}
@@ -0,0 +1,83 @@
+package org.javesi.prefab;
+
+import org.javesi.component.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A template of component prototypes to create many similar entities with
+ * {@link org.javesi.EntitySystem#instantiate(Prefab, int)}.
+ * <p>
+ *     Prototypes added with a {@link ComponentCopier} are copied for every instance. Prototypes added without one are
+ *     shared by all instances, which is only safe for tag components, shared components and other immutable
+ *     components. Singleton components can't be part of a prefab.
+ * </p>
+ * <p>
+ *     The entity system resolves the prefab once on its first instantiation, so prefabs must not be changed after
+ *     that.
+ * </p>
+ */
+public final class Prefab
+{
+    private final String name;
+    private final List<Component> prototypes = new ArrayList<Component>();
+    private final List<ComponentCopier<?>> copiers = new ArrayList<ComponentCopier<?>>();
+
+    public Prefab(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Adds a prototype copied with the given copier for every instance.
+     */
+    public <T extends Component> Prefab with(T prototype, ComponentCopier<T> copier)
+    {
+        for (Component existing : prototypes)
+        {
+            if (existing.getClass().equals(prototype.getClass()))
+            {
+                throw new IllegalArgumentException("Prefab " + name + " already contains a " +
+                    prototype.getClass().getName());
+            }
+        }
+
+        prototypes.add(prototype);
+        copiers.add(copier);
+        return this;
+    }
+
+    /**
+     * Adds an immutable prototype shared by all instances. Pooled component types need a copier.
+     */
+    public Prefab with(Component prototype)
+    {
+        return with(prototype, null);
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public List<Component> getPrototypes()
+    {
+        return Collections.unmodifiableList(prototypes);
+    }
+
+    /**
+     * Returns the copiers of the prototypes, <code>null</code> for shared prototypes.
+     */
+    public List<ComponentCopier<?>> getCopiers()
+    {
+        return Collections.unmodifiableList(copiers);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Prefab " + name + " " + prototypes;
+    }
+}
@@ -0,0 +1,21 @@
+package org.javesi.registry;
+
+import org.javesi.component.Component;
+
+import java.util.List;
+
+/**
+ * Lists the component types of an application. Implementations are generated at compile time by the
+ * {@link ComponentRegistryProcessor} for packages annotated with {@link GenerateComponentRegistry} and replace the
+ * runtime classpath scanning of {@link org.javesi.EntitySystemBuilder#withComponentPackage(String)}.
+ *
+ * @see org.javesi.EntitySystemBuilder#withComponentRegistry(ComponentRegistry)
+ */
+public interface ComponentRegistry
+{
+    /**
+     * Returns the component types sorted by their binary class name. The position of a type in the list is its
+     * stable type index.
+     */
+    List<Class<? extends Component>> getComponentTypes();
+}
@@ -0,0 +1,209 @@
+package org.javesi.registry;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates a {@link ComponentRegistry} for every element annotated with {@link GenerateComponentRegistry}.
+ * <p>
+ *     The registry lists the non-abstract component types of the compilation in the package of the annotated element
+ *     and its sub-packages. Component types only created by other annotation processors are not included. Types in
+ *     sub-packages are only found if they are compiled together with the annotated element, so full builds are
+ *     needed after adding or removing them.
+ * </p>
+ * <p>
+ *     The processor is registered as a service, so it runs automatically when javesi is on the compile classpath.
+ * </p>
+ */
+@SupportedAnnotationTypes("org.javesi.registry.GenerateComponentRegistry")
+public final class ComponentRegistryProcessor
+    extends AbstractProcessor
+{
+    private final static String COMPONENT = "org.javesi.component.Component";
+
+    private final static Comparator<TypeElement> BINARY_NAME_ORDER = new Comparator<TypeElement>()
+    {
+        @Override
+        public int compare(TypeElement t1, TypeElement t2)
+        {
+            return binaryName(t1).compareTo(binaryName(t2));
+        }
+    };
+
+    private static String binaryName(TypeElement type)
+    {
+        Element enclosing = type.getEnclosingElement();
+        if (enclosing instanceof TypeElement)
+        {
+            return binaryName((TypeElement) enclosing) + "$" + type.getSimpleName();
+        }
+        return type.getQualifiedName().toString();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+    {
+        Set<? extends Element> annotated = roundEnv.getElementsAnnotatedWith(GenerateComponentRegistry.class);
+        if (annotated.isEmpty())
+        {
+            return false;
+        }
+
+        TypeMirror component = processingEnv.getElementUtils().getTypeElement(COMPONENT).asType();
+        for (Element element : annotated)
+        {
+            PackageElement registryPackage = processingEnv.getElementUtils().getPackageOf(element);
+
+            // incremental builds only pass the changed sources, so the annotated package is read completely
+            Set<TypeElement> componentTypes = new HashSet<TypeElement>();
+            for (Element enclosed : registryPackage.getEnclosedElements())
+            {
+                collectComponentTypes(enclosed, component, componentTypes);
+            }
+            for (Element root : roundEnv.getRootElements())
+            {
+                collectComponentTypes(root, component, componentTypes);
+            }
+
+            List<TypeElement> sorted = new ArrayList<TypeElement>(componentTypes);
+            Collections.sort(sorted, BINARY_NAME_ORDER);
+
+            String className = element.getAnnotation(GenerateComponentRegistry.class).value();
+            generate(element, registryPackage.getQualifiedName().toString(), className, sorted);
+        }
+        return true;
+    }
+
+    private void collectComponentTypes(Element element, TypeMirror component, Set<TypeElement> componentTypes)
+    {
+        if (!element.getKind().isClass() && !element.getKind().isInterface())
+        {
+            return;
+        }
+
+        TypeElement type = (TypeElement) element;
+        if (type.getKind() == ElementKind.CLASS && !type.getModifiers().contains(Modifier.ABSTRACT) &&
+            processingEnv.getTypeUtils().isAssignable(type.asType(), component))
+        {
+            componentTypes.add(type);
+        }
+
+        for (Element enclosed : type.getEnclosedElements())
+        {
+            collectComponentTypes(enclosed, component, componentTypes);
+        }
+    }
+
+    private void generate(Element annotated, String packageName, String className, List<TypeElement> componentTypes)
+    {
+        List<TypeElement> included = new ArrayList<TypeElement>();
+        for (TypeElement type : componentTypes)
+        {
+            String typePackage = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+            if (packageName.length() == 0 || typePackage.equals(packageName) ||
+                typePackage.startsWith(packageName + "."))
+            {
+                if (isAccessible(type, typePackage.equals(packageName)))
+                {
+                    included.add(type);
+                }
+                else
+                {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Component type " +
+                        type.getQualifiedName() + " is not accessible from the generated registry " + packageName +
+                        "." + className, type);
+                }
+            }
+        }
+
+        String qualifiedName = packageName.length() == 0 ? className : packageName + "." + className;
+        try
+        {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, annotated);
+            PrintWriter out = new PrintWriter(file.openWriter());
+            try
+            {
+                if (packageName.length() > 0)
+                {
+                    out.println("package " + packageName + ";");
+                    out.println();
+                }
+                out.println("/**");
+                out.println(" * Component registry generated by " + ComponentRegistryProcessor.class.getName() + ".");
+                out.println(" */");
+                out.println("@SuppressWarnings(\"unchecked\")");
+                out.println("public final class " + className);
+                out.println("    implements org.javesi.registry.ComponentRegistry");
+                out.println("{");
+                out.println("    private final static java.util.List<Class<? extends org.javesi.component.Component>> " +
+                    "TYPES = java.util.Collections.unmodifiableList(java.util.Arrays.<Class<? extends " +
+                    "org.javesi.component.Component>>asList(");
+                for (int i = 0; i < included.size(); i++)
+                {
+                    out.println("        " + included.get(i).getQualifiedName() + ".class" +
+                        (i < included.size() - 1 ? "," : ""));
+                }
+                out.println("    ));");
+                out.println();
+                out.println("    @Override");
+                out.println("    public java.util.List<Class<? extends org.javesi.component.Component>> " +
+                    "getComponentTypes()");
+                out.println("    {");
+                out.println("        return TYPES;");
+                out.println("    }");
+                out.println("}");
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        catch (IOException e)
+        {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Error generating component registry " +
+                qualifiedName + ": " + e, annotated);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the generated registry can reference the given type by its class literal.
+     */
+    private static boolean isAccessible(TypeElement type, boolean samePackage)
+    {
+        Element element = type;
+        while (element instanceof TypeElement)
+        {
+            Set<Modifier> modifiers = element.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || (!samePackage && !modifiers.contains(Modifier.PUBLIC)))
+            {
+                return false;
+            }
+            element = element.getEnclosingElement();
+        }
+        return element instanceof PackageElement;
+    }
+}
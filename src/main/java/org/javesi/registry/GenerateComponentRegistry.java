@@ -0,0 +1,24 @@
+package org.javesi.registry;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Makes the {@link ComponentRegistryProcessor} generate a {@link ComponentRegistry} listing all concrete component
+ * types within the package of the annotated element and its sub-packages. The registry is generated into that
+ * package.
+ * <p>
+ *     Usually placed on a <code>package-info.java</code>.
+ * </p>
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target({ ElementType.PACKAGE, ElementType.TYPE })
+public @interface GenerateComponentRegistry
+{
+    /**
+     * Simple name of the generated registry class.
+     */
+    String value() default "GeneratedComponentRegistry";
+}
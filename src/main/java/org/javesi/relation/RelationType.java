@@ -0,0 +1,56 @@
+package org.javesi.relation;
+
+/**
+ * A kind of relation between entities. Every entity can be related to at most one target entity per relation type,
+ * while a target can have any number of related source entities, e.g. every child has one parent and every parent any
+ * number of children.
+ * <p>
+ *     Relation types are compared by identity, so keep them in constants.
+ * </p>
+ *
+ * @see org.javesi.EntitySystem#relate(org.javesi.Entity, RelationType, org.javesi.Entity)
+ */
+public final class RelationType
+{
+    /**
+     * Relates children to their parent. Killing a parent kills its children.
+     */
+    public final static RelationType CHILD_OF = new RelationType("childOf", true);
+
+    private final String name;
+    private final boolean cascadingKill;
+
+    /**
+     * Creates a new relation type.
+     *
+     * @param name          name for logging
+     * @param cascadingKill if <code>true</code>, killing a target kills all entities related to it. Relations of
+     *                      such types must not form cycles.
+     */
+    public RelationType(String name, boolean cascadingKill)
+    {
+        if (name == null)
+        {
+            throw new IllegalArgumentException("Relation type needs a name");
+        }
+
+        this.name = name;
+        this.cascadingKill = cascadingKill;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public boolean isCascadingKill()
+    {
+        return cascadingKill;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RelationType " + name + (cascadingKill ? " (cascading kill)" : "");
+    }
+}
@@ -0,0 +1,100 @@
+package org.javesi.status;
+
+/**
+ * Statistics of a component type with cold storage. Use the hit ratio and eviction count to size the hot cache.
+ */
+public final class ColdStorageStatistics
+{
+    private final int hotSize;
+    private final int hotCapacity;
+    private final int coldSize;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long fileBytes;
+    private final long garbageBytes;
+
+    public ColdStorageStatistics(int hotSize, int hotCapacity, int coldSize, long hits, long misses, long evictions,
+                                 long fileBytes, long garbageBytes)
+    {
+        this.hotSize = hotSize;
+        this.hotCapacity = hotCapacity;
+        this.coldSize = coldSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.fileBytes = fileBytes;
+        this.garbageBytes = garbageBytes;
+    }
+
+    /**
+     * Returns the number of components held on the heap.
+     */
+    public int getHotSize()
+    {
+        return hotSize;
+    }
+
+    public int getHotCapacity()
+    {
+        return hotCapacity;
+    }
+
+    /**
+     * Returns the number of components held in the cold storage file.
+     */
+    public int getColdSize()
+    {
+        return coldSize;
+    }
+
+    /**
+     * Returns the number of component reads answered from the heap.
+     */
+    public long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Returns the number of component reads that had to hydrate the component from the cold storage file.
+     */
+    public long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Returns the number of components evicted to the cold storage file.
+     */
+    public long getEvictions()
+    {
+        return evictions;
+    }
+
+    public double getHitRatio()
+    {
+        long reads = hits + misses;
+        return reads == 0 ? 0 : (double) hits / reads;
+    }
+
+    public long getFileBytes()
+    {
+        return fileBytes;
+    }
+
+    /**
+     * Returns the number of bytes in the cold storage file no longer in use.
+     */
+    public long getGarbageBytes()
+    {
+        return garbageBytes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "hot = " + hotSize + "/" + hotCapacity + ", cold = " + coldSize + ", hits = " + hits + ", misses = " +
+            misses + ", evictions = " + evictions + ", file bytes = " + fileBytes;
+    }
+}
@@ -0,0 +1,96 @@
+package org.javesi.status;
+
+/**
+ * Estimated memory footprint of one entity system store. All byte sizes assume a 64 bit JVM with compressed oops and
+ * only count the shallow size of the stored objects.
+ */
+public final class StoreFootprint
+{
+    private final String name;
+    private final int size;
+    private final int highWaterMark;
+    private final int tableCapacity;
+    private final long overheadBytes;
+    private final int elementBytes;
+    private final long estimatedBytes;
+
+    public StoreFootprint(String name, int size, int highWaterMark, int tableCapacity, long overheadBytes,
+                          int elementBytes, long estimatedBytes)
+    {
+        this.name = name;
+        this.size = size;
+        this.highWaterMark = highWaterMark;
+        this.tableCapacity = tableCapacity;
+        this.overheadBytes = overheadBytes;
+        this.elementBytes = elementBytes;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the number of elements currently in the store.
+     */
+    public int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of elements the store ever contained.
+     */
+    public int getHighWaterMark()
+    {
+        return highWaterMark;
+    }
+
+    /**
+     * Returns the estimated capacity of the store's hash table.
+     */
+    public int getTableCapacity()
+    {
+        return tableCapacity;
+    }
+
+    /**
+     * Returns the ratio of stored elements to table capacity.
+     */
+    public float getFillRatio()
+    {
+        return tableCapacity == 0 ? 0f : (float) size / tableCapacity;
+    }
+
+    /**
+     * Returns the estimated bytes used by the store structure itself, excluding the stored elements.
+     */
+    public long getOverheadBytes()
+    {
+        return overheadBytes;
+    }
+
+    /**
+     * Returns the estimated shallow size of one stored element.
+     */
+    public int getElementBytes()
+    {
+        return elementBytes;
+    }
+
+    /**
+     * Returns the estimated total bytes of the store including the stored elements.
+     */
+    public long getEstimatedBytes()
+    {
+        return estimatedBytes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "size = " + size + ", high water mark = " + highWaterMark + ", capacity = " + tableCapacity +
+            ", fill = " + Math.round(getFillRatio() * 100) + "%, estimated bytes = " + estimatedBytes;
+    }
+}
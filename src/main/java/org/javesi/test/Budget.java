@@ -0,0 +1,30 @@
+package org.javesi.test;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the performance budget of a test method run with a {@link TestEntitySystem} rule. The test fails if the
+ * measured part of it allocates more bytes or takes longer than declared.
+ * <p>
+ *     The whole test is measured unless it calls {@link TestEntitySystem#startMeasuring()} after setting up its
+ *     entities, which restarts the measurement. Allocations are counted for the thread running the test with the
+ *     per-thread allocation counters of HotSpot JVMs. On other JVMs only the time budget is checked.
+ * </p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Budget
+{
+    /**
+     * Maximum number of bytes the test may allocate, negative for no limit.
+     */
+    long allocatedBytes() default -1;
+
+    /**
+     * Maximum wall time of the test in milliseconds, negative for no limit.
+     */
+    long millis() default -1;
+}
@@ -0,0 +1,92 @@
+package org.javesi.test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures the wall time and the bytes allocated by the current thread since it was started.
+ */
+final class Measurement
+{
+    private final static com.sun.management.ThreadMXBean THREADS = allocationCounters();
+
+    /** bytes allocated by reading the allocation counter itself */
+    private final static long OVERHEAD = calibrate();
+
+    private long startNanos;
+    private long startBytes;
+
+    Measurement()
+    {
+        start();
+    }
+
+    /**
+     * Restarts the measurement.
+     */
+    void start()
+    {
+        startBytes = allocatedBytes();
+        startNanos = System.nanoTime();
+    }
+
+    long elapsedMillis()
+    {
+        return (System.nanoTime() - startNanos) / 1000000L;
+    }
+
+    /**
+     * Returns the bytes allocated since the start or <code>-1</code> if the JVM does not count allocations.
+     */
+    long allocatedBytesSinceStart()
+    {
+        if (THREADS == null)
+        {
+            return -1;
+        }
+        return Math.max(0, allocatedBytes() - startBytes - OVERHEAD);
+    }
+
+    private static long allocatedBytes()
+    {
+        return THREADS != null ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounters()
+    {
+        try
+        {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean)
+            {
+                com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+                if (threads.isThreadAllocatedMemorySupported())
+                {
+                    threads.setThreadAllocatedMemoryEnabled(true);
+                    return threads;
+                }
+            }
+        }
+        catch (LinkageError e)
+        {
+            // not a HotSpot JVM
+        }
+        return null;
+    }
+
+    private static long calibrate()
+    {
+        if (THREADS == null)
+        {
+            return 0;
+        }
+
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++)
+        {
+            long start = allocatedBytes();
+            overhead = Math.min(overhead, allocatedBytes() - start);
+        }
+        return overhead;
+    }
+}
@@ -17,6 +17,7 @@ public class TestEntitySystem
 {
     private EntitySystemInterface entitySystemInterface;
     private EntitySystem entitySystem;
+    private Measurement measurement;
 
     public TestEntitySystem(String componentPackage)
     {
@@ -36,14 +37,15 @@ public class TestEntitySystem
     }
 
     @Override
-    public Statement apply(final Statement base, Description description)
+    public Statement apply(final Statement base, final Description description)
     {
         return new Statement()
         {
             @Override
             public void evaluate() throws Throwable
             {
-                entitySystemInterface.execute(new TestJob(TestEntitySystem.this, base));
+                entitySystemInterface.execute(new TestJob(TestEntitySystem.this, base,
+                    description.getAnnotation(Budget.class)));
             }
         };
     }
@@ -57,4 +59,23 @@ public class TestEntitySystem
     {
         return entitySystem;
     }
+
+    void setMeasurement(Measurement measurement)
+    {
+        this.measurement = measurement;
+    }
+
+    /**
+     * Restarts measuring the {@link Budget} of the current test, e.g. after setting up the entities.
+     *
+     * @throws IllegalStateException if the current test has no budget.
+     */
+    public void startMeasuring()
+    {
+        if (measurement == null)
+        {
+            throw new IllegalStateException("The current test has no budget");
+        }
+        measurement.start();
+    }
 }
@@ -10,11 +10,13 @@ class TestJob
 {
     private final Statement statement;
     private final TestEntitySystem rule;
+    private final Budget budget;
 
-    public TestJob(TestEntitySystem testEntitySystem, Statement base)
+    public TestJob(TestEntitySystem testEntitySystem, Statement base, Budget budget)
     {
         this.rule = testEntitySystem;
         this.statement = base;
+        this.budget = budget;
     }
 
     @Override
@@ -23,7 +25,17 @@ class TestJob
         try
         {
             rule.setEntitySystem(state);
-            statement.evaluate();
+            if (budget == null)
+            {
+                statement.evaluate();
+            }
+            else
+            {
+                Measurement measurement = new Measurement();
+                rule.setMeasurement(measurement);
+                statement.evaluate();
+                checkBudget(measurement);
+            }
         }
         catch (Throwable throwable)
         {
@@ -32,6 +44,22 @@ class TestJob
         finally
         {
             rule.setEntitySystem(null);
+            rule.setMeasurement(null);
+        }
+    }
+
+    private void checkBudget(Measurement measurement)
+    {
+        long bytes = measurement.allocatedBytesSinceStart();
+        long millis = measurement.elapsedMillis();
+
+        if (budget.allocatedBytes() >= 0 && bytes > budget.allocatedBytes())
+        {
+            throw new AssertionError("Test allocated " + bytes + " bytes, budget is " + budget.allocatedBytes());
+        }
+        if (budget.millis() >= 0 && millis > budget.millis())
+        {
+            throw new AssertionError("Test took " + millis + " ms, budget is " + budget.millis());
         }
     }
 }
@@ -1,6 +1,14 @@
 package org.javesi.util;
 
 import java.util.Comparator;
+
+/**
+ * Orders objects by their hash code.
+ *
+ * @deprecated The entity system no longer orders component types by their identity hash codes, which differ between
+ * runs. Component types are ordered by name now.
+ */
+@Deprecated
 public final class HashOrderComparator implements Comparator
 {
 
@@ -14,6 +22,9 @@ public final class HashOrderComparator implements Comparator
     @Override
     public int compare(Object o1, Object o2)
     {
-        return o1.hashCode() - o2.hashCode();
+        // subtracting the hash codes can overflow
+        int h1 = o1.hashCode();
+        int h2 = o2.hashCode();
+        return h1 < h2 ? -1 : (h1 == h2 ? 0 : 1);
     }
 }
@@ -0,0 +1,225 @@
+package org.javesi.util;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map with primitive <code>long</code> keys. Avoids boxing the keys and allocates no entry
+ * objects. Not thread-safe.
+ *
+ * @param <V> value type
+ */
+public final class LongHashMap<V>
+{
+    private final float loadFactor;
+    /** table size the map was created with, {@link #trim()} never shrinks below it */
+    private final int initialTableSize;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int threshold;
+
+    /**
+     * Creates a new map that can hold the given number of entries without resizing.
+     *
+     * @param capacity      expected number of entries
+     * @param loadFactor    maximum fill ratio of the table
+     */
+    public LongHashMap(int capacity, float loadFactor)
+    {
+        if (loadFactor <= 0 || loadFactor >= 1)
+        {
+            throw new IllegalArgumentException("Load factor must be between 0 and 1");
+        }
+
+        this.loadFactor = loadFactor;
+
+        initialTableSize = tableSize(capacity);
+        allocate(initialTableSize);
+    }
+
+    private int tableSize(int capacity)
+    {
+        int tableSize = 2;
+        while (tableSize * loadFactor < capacity && tableSize < (1 << 30))
+        {
+            tableSize <<= 1;
+        }
+        return tableSize;
+    }
+
+    private void allocate(int tableSize)
+    {
+        keys = new long[tableSize];
+        values = new Object[tableSize];
+        threshold = (int) (tableSize * loadFactor);
+    }
+
+    public V get(long key)
+    {
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); ; i = (i + 1) & mask)
+        {
+            Object value = values[i];
+            if (value == null)
+            {
+                return null;
+            }
+            if (keys[i] == key)
+            {
+                return (V) value;
+            }
+        }
+    }
+
+    public boolean containsKey(long key)
+    {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps the given key to the given value.
+     *
+     * @param key   key
+     * @param value value, must not be <code>null</code>
+     * @return the former value or <code>null</code>
+     */
+    public V put(long key, V value)
+    {
+        if (value == null)
+        {
+            throw new IllegalArgumentException("Value can't be null");
+        }
+
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+        for (; values[i] != null; i = (i + 1) & mask)
+        {
+            if (keys[i] == key)
+            {
+                V former = (V) values[i];
+                values[i] = value;
+                return former;
+            }
+        }
+
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold)
+        {
+            resize();
+        }
+        return null;
+    }
+
+    public V remove(long key)
+    {
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+        for (; values[i] != null; i = (i + 1) & mask)
+        {
+            if (keys[i] == key)
+            {
+                V former = (V) values[i];
+                shiftBack(i, mask);
+                size--;
+                return former;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Closes the gap at the given slot by moving back the following entries of the probe sequence.
+     */
+    private void shiftBack(int gap, int mask)
+    {
+        for (int i = (gap + 1) & mask; values[i] != null; i = (i + 1) & mask)
+        {
+            int home = index(keys[i], mask);
+            // move the entry if its home slot is not cyclically within (gap, i]
+            if (((i - home) & mask) >= ((i - gap) & mask))
+            {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = null;
+    }
+
+    private void resize()
+    {
+        rehash(keys.length * 2);
+    }
+
+    /**
+     * Returns <code>true</code> if the table has grown and is now filled less than the given ratio.
+     */
+    public boolean needsTrim(float minFillRatio)
+    {
+        return keys.length > initialTableSize && size < keys.length * loadFactor * minFillRatio;
+    }
+
+    /**
+     * Shrinks the table to the smallest size that fits the current entries, but not below the initial size.
+     */
+    public void trim()
+    {
+        int tableSize = Math.max(initialTableSize, tableSize(size + 1));
+        if (tableSize < keys.length)
+        {
+            rehash(tableSize);
+        }
+    }
+
+    private void rehash(int tableSize)
+    {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(tableSize);
+
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++)
+        {
+            if (oldValues[j] != null)
+            {
+                int i = index(oldKeys[j], mask);
+                while (values[i] != null)
+                {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    public void clear()
+    {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the size of the hash table.
+     */
+    public int capacity()
+    {
+        return keys.length;
+    }
+
+    private static int index(long key, int mask)
+    {
+        // spread the bits with the 64 bit golden ratio so that sequential ids don't cluster
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
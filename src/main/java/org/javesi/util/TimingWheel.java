@@ -0,0 +1,219 @@
+package org.javesi.util;
+
+import java.util.Collection;
+
+/**
+ * Hierarchical timing wheel scheduling items for discrete points in time. Each of the four levels has 64 slots, a slot
+ * of level <code>n</code> covers <code>64^n</code> ticks. Items are kept in the lowest level whose slot only contains
+ * times sharing all higher digits with the current time and cascade down when the wheel reaches their slot. Deadlines
+ * further away than <code>64^4</code> ticks wait in an overflow list.
+ * <p>
+ *     Advancing the wheel jumps directly between occupied slots, so it takes time proportional to the number of
+ *     expired and cascaded items, not to the number of elapsed ticks. Not thread-safe.
+ * </p>
+ *
+ * @param <T> item type
+ */
+public final class TimingWheel<T>
+{
+    private final static int LEVELS = 4;
+    private final static int SLOT_BITS = 6;
+    private final static int SLOTS = 1 << SLOT_BITS;
+
+    /** first item of every slot by level and slot index */
+    private final Node<T>[][] slots = new Node[LEVELS][SLOTS];
+    /** bit masks of the occupied slots by level */
+    private final long[] occupied = new long[LEVELS];
+
+    private Node<T> overflow;
+    /** items scheduled for the current time or earlier, expire with the next advance */
+    private Node<T> due;
+
+    private long time;
+    private int size;
+
+    public TimingWheel(long startTime)
+    {
+        this.time = startTime;
+    }
+
+    /**
+     * Returns the time the wheel has been advanced to.
+     */
+    public long getTime()
+    {
+        return time;
+    }
+
+    /**
+     * Returns the number of scheduled items.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Schedules the given item to expire once the wheel is advanced to the given deadline.
+     */
+    public void schedule(T item, long deadline)
+    {
+        insert(new Node<T>(item, deadline));
+        size++;
+    }
+
+    private void insert(Node<T> node)
+    {
+        long deadline = node.deadline;
+        if (deadline <= time)
+        {
+            node.next = due;
+            due = node;
+            return;
+        }
+
+        int level = (63 - Long.numberOfLeadingZeros(deadline ^ time)) / SLOT_BITS;
+        if (level >= LEVELS)
+        {
+            node.next = overflow;
+            overflow = node;
+            return;
+        }
+
+        int slot = (int) (deadline >>> (level * SLOT_BITS)) & (SLOTS - 1);
+        node.next = slots[level][slot];
+        slots[level][slot] = node;
+        occupied[level] |= 1L << slot;
+    }
+
+    /**
+     * Advances the wheel to the given time and adds all items whose deadline has been reached to the given collection.
+     *
+     * @param newTime   new time, must not be before the current time
+     * @param expired   collection to add the expired items to
+     * @return number of expired items
+     */
+    public int advance(long newTime, Collection<? super T> expired)
+    {
+        if (newTime < time)
+        {
+            throw new IllegalArgumentException("Cannot advance from " + time + " back to " + newTime);
+        }
+
+        int count = expire(due, expired);
+        due = null;
+
+        long next;
+        while (size > 0 && (next = nextEventTime()) <= newTime)
+        {
+            time = next;
+
+            if (overflow != null && (time & ((1L << (LEVELS * SLOT_BITS)) - 1)) == 0)
+            {
+                Node<T> node = overflow;
+                overflow = null;
+                cascade(node);
+            }
+
+            for (int level = LEVELS - 1; level > 0; level--)
+            {
+                int shift = level * SLOT_BITS;
+                int slot = (int) (time >>> shift) & (SLOTS - 1);
+                if ((time & ((1L << shift) - 1)) == 0 && (occupied[level] & (1L << slot)) != 0)
+                {
+                    Node<T> node = slots[level][slot];
+                    slots[level][slot] = null;
+                    occupied[level] &= ~(1L << slot);
+                    cascade(node);
+                }
+            }
+
+            int slot = (int) time & (SLOTS - 1);
+            if ((occupied[0] & (1L << slot)) != 0)
+            {
+                count += expire(slots[0][slot], expired);
+                slots[0][slot] = null;
+                occupied[0] &= ~(1L << slot);
+            }
+
+            count += expire(due, expired);
+            due = null;
+        }
+
+        time = newTime;
+        return count;
+    }
+
+    /**
+     * Re-inserts the given items relative to the current time.
+     */
+    private void cascade(Node<T> node)
+    {
+        while (node != null)
+        {
+            Node<T> next = node.next;
+            insert(node);
+            node = next;
+        }
+    }
+
+    private int expire(Node<T> node, Collection<? super T> expired)
+    {
+        int count = 0;
+        while (node != null)
+        {
+            expired.add(node.item);
+            count++;
+            node = node.next;
+        }
+        size -= count;
+        return count;
+    }
+
+    /**
+     * Returns the next time at which an occupied slot is reached or the overflow has to be re-inserted.
+     */
+    private long nextEventTime()
+    {
+        long next = Long.MAX_VALUE;
+        for (int level = 0; level < LEVELS; level++)
+        {
+            int shift = level * SLOT_BITS;
+            int current = (int) (time >>> shift) & (SLOTS - 1);
+            long later = current == SLOTS - 1 ? 0 : occupied[level] & (-1L << (current + 1));
+            if (later != 0)
+            {
+                long rotationStart = (time >>> (shift + SLOT_BITS)) << (shift + SLOT_BITS);
+                long candidate = rotationStart + ((long) Long.numberOfTrailingZeros(later) << shift);
+                if (candidate < next)
+                {
+                    next = candidate;
+                }
+            }
+        }
+
+        if (overflow != null)
+        {
+            int shift = LEVELS * SLOT_BITS;
+            long candidate = ((time >>> shift) + 1) << shift;
+            if (candidate < next)
+            {
+                next = candidate;
+            }
+        }
+        return next;
+    }
+
+    private static class Node<T>
+    {
+        final T item;
+        final long deadline;
+        Node<T> next;
+
+        Node(T item, long deadline)
+        {
+            this.item = item;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package org.javesi.view;
+
+import org.javesi.Entity;
+import org.javesi.EntitySystem;
+import org.javesi.change.ChangeListener;
+import org.javesi.component.Component;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The entities having a component of a given type, ordered by a key extracted from that component, e.g. depth or
+ * priority.
+ * <p>
+ *     The view registers itself as change listener and keeps its order when components are added or removed. Keys
+ *     are read once when a component is added or marked as changed and cached. Components changed in place without
+ *     being marked as changed are picked up by {@link #repair()}, which re-reads all keys and restores the order with
+ *     an insertion sort. That is linear when the order is almost unchanged, as it usually is from one frame to the
+ *     next.
+ * </p>
+ * <p>
+ *     Keys are ordered like {@link Double#compare(double, double)}, so -0.0 comes before 0.0 and NaN comes last.
+ * </p>
+ * <p>
+ *     The view must be created and used from within jobs. Iterators fail fast when the view is changed.
+ * </p>
+ *
+ * @param <T> component type
+ */
+public final class SortedView<T extends Component>
+    implements ChangeListener, Iterable<Entity>
+{
+    private final static int INITIAL_CAPACITY = 16;
+
+    private final static Comparator<Entry<?>> KEY_ORDER = new Comparator<Entry<?>>()
+    {
+        @Override
+        public int compare(Entry<?> e1, Entry<?> e2)
+        {
+            return Double.compare(e1.key, e2.key);
+        }
+    };
+
+    private final EntitySystem system;
+    private final Class<T> componentType;
+    private final ToDoubleFunction<? super T> keyExtractor;
+
+    /** entries ordered by their cached key */
+    private Entry<T>[] entries;
+    private final Map<Entity, Entry<T>> entriesByEntity = new HashMap<Entity, Entry<T>>();
+    private int size;
+    private int modCount;
+
+    /**
+     * Creates a new sorted view containing all entities that have a component of the given type and registers it
+     * with the given entity system.
+     *
+     * @param system        entity system
+     * @param componentType component type
+     * @param keyExtractor  extracts the sort key from a component
+     */
+    public SortedView(EntitySystem system, Class<T> componentType, ToDoubleFunction<? super T> keyExtractor)
+    {
+        this.system = system;
+        this.componentType = componentType;
+        this.keyExtractor = keyExtractor;
+
+        Map<Entity, T> components = system.getEntityToComponentMap(componentType);
+        entries = new Entry[Math.max(INITIAL_CAPACITY, components.size())];
+        for (Map.Entry<Entity, T> e : components.entrySet())
+        {
+            Entry<T> entry = new Entry<T>(e.getKey(), e.getValue(), keyExtractor.applyAsDouble(e.getValue()));
+            entries[size++] = entry;
+            entriesByEntity.put(entry.entity, entry);
+        }
+        Arrays.sort(entries, 0, size, KEY_ORDER);
+
+        system.addChangeListener(this);
+    }
+
+    public Class<T> getComponentType()
+    {
+        return componentType;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the entity at the given position.
+     */
+    public Entity get(int index)
+    {
+        return entry(index).entity;
+    }
+
+    /**
+     * Returns the component of the entity at the given position.
+     */
+    public T getComponent(int index)
+    {
+        return entry(index).component;
+    }
+
+    /**
+     * Returns the cached key of the entity at the given position.
+     */
+    public double getKey(int index)
+    {
+        return entry(index).key;
+    }
+
+    private Entry<T> entry(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return entries[index];
+    }
+
+    /**
+     * Re-reads the keys of all components and restores the order.
+     *
+     * @return number of positions the entries were moved by in total
+     */
+    public int repair()
+    {
+        for (int i = 0; i < size; i++)
+        {
+            Entry<T> entry = entries[i];
+            entry.key = keyExtractor.applyAsDouble(entry.component);
+        }
+
+        int moves = 0;
+        for (int i = 1; i < size; i++)
+        {
+            moves += sift(i);
+        }
+        if (moves > 0)
+        {
+            modCount++;
+        }
+        return moves;
+    }
+
+    /**
+     * Moves the entry at the given position down to its place within the entries before it.
+     */
+    private int sift(int index)
+    {
+        Entry<T> entry = entries[index];
+        int i = index;
+        while (i > 0 && Double.compare(entries[i - 1].key, entry.key) > 0)
+        {
+            entries[i] = entries[i - 1];
+            i--;
+        }
+        entries[i] = entry;
+        return index - i;
+    }
+
+    /**
+     * Iterates over the entities in ascending key order.
+     */
+    @Override
+    public Iterator<Entity> iterator()
+    {
+        return new EntryIterator(0, size);
+    }
+
+    /**
+     * Returns the entities whose key is at least <code>from</code> and less than <code>to</code>, in ascending key
+     * order. The range is looked up with a binary search for every iterator and iterated without copying.
+     *
+     * @param from  lowest key, inclusive
+     * @param to    highest key, exclusive
+     * @return entities in range
+     */
+    public Iterable<Entity> range(final double from, final double to)
+    {
+        return new Iterable<Entity>()
+        {
+            @Override
+            public Iterator<Entity> iterator()
+            {
+                int start = lowerBound(from);
+                return new EntryIterator(start, Math.max(start, lowerBound(to)));
+            }
+        };
+    }
+
+    /**
+     * Returns the position of the first entry with a key not less than the given key.
+     */
+    private int lowerBound(double key)
+    {
+        int low = 0;
+        int high = size;
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (Double.compare(entries[middle].key, key) < 0)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the position of the first entry with a key greater than the given key.
+     */
+    private int upperBound(double key)
+    {
+        int low = 0;
+        int high = size;
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (Double.compare(entries[middle].key, key) <= 0)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Stops maintaining the view.
+     */
+    public void close()
+    {
+        system.removeChangeListener(this);
+    }
+
+    //// CHANGE TRACKING /////////////////////////////////////////////////
+
+    @Override
+    public void entityCreated(Entity entity, String name)
+    {
+    }
+
+    @Override
+    public void entityKilled(Entity entity)
+    {
+        remove(entity);
+    }
+
+    @Override
+    public void entityNameChanged(Entity entity, String name)
+    {
+    }
+
+    @Override
+    public void componentAdded(Entity entity, Component component)
+    {
+        if (component.getClass() == componentType)
+        {
+            remove(entity);
+            insert(new Entry<T>(entity, (T) component, keyExtractor.applyAsDouble((T) component)));
+        }
+    }
+
+    @Override
+    public void componentChanged(Entity entity, Component component)
+    {
+        componentAdded(entity, component);
+    }
+
+    @Override
+    public void componentRemoved(Entity entity, Class<? extends Component> componentType)
+    {
+        if (componentType == this.componentType)
+        {
+            remove(entity);
+        }
+    }
+
+    @Override
+    public void changesCommitted()
+    {
+    }
+
+    private void insert(Entry<T> entry)
+    {
+        if (size == entries.length)
+        {
+            entries = Arrays.copyOf(entries, size * 2);
+        }
+
+        // after entries with equal keys, so that equal keys stay in insertion order
+        int index = upperBound(entry.key);
+        System.arraycopy(entries, index, entries, index + 1, size - index);
+        entries[index] = entry;
+        entriesByEntity.put(entry.entity, entry);
+        size++;
+        modCount++;
+    }
+
+    private void remove(Entity entity)
+    {
+        Entry<T> entry = entriesByEntity.remove(entity);
+        if (entry != null)
+        {
+            // the entries are ordered by the cached keys, so the entry is found among those with an equal key
+            int index = lowerBound(entry.key);
+            while (entries[index] != entry)
+            {
+                index++;
+            }
+            System.arraycopy(entries, index + 1, entries, index, size - index - 1);
+            entries[--size] = null;
+            modCount++;
+        }
+    }
+
+    private static class Entry<T>
+    {
+        final Entity entity;
+        final T component;
+        double key;
+
+        Entry(Entity entity, T component, double key)
+        {
+            this.entity = entity;
+            this.component = component;
+            this.key = key;
+        }
+    }
+
+    private class EntryIterator
+        implements Iterator<Entity>
+    {
+        private final int end;
+        private final int expectedModCount = modCount;
+        private int index;
+
+        EntryIterator(int start, int end)
+        {
+            this.index = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return index < end;
+        }
+
+        @Override
+        public Entity next()
+        {
+            if (modCount != expectedModCount)
+            {
+                throw new ConcurrentModificationException();
+            }
+            if (index >= end)
+            {
+                throw new NoSuchElementException();
+            }
+            return entries[index++].entity;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
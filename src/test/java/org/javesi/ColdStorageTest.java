@@ -0,0 +1,133 @@
+package org.javesi;
+
+import org.javesi.status.ColdStorageStatistics;
+import org.javesi.test.TestEntitySystem;
+import org.javesi.testcomponents.ComponentA;
+import org.javesi.testcomponents.ComponentC;
+import org.javesi.testcomponents.TestCodecs;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class ColdStorageTest
+{
+    @Rule
+    public TestEntitySystem testSystem = new TestEntitySystem(ComponentA.class, ComponentC.class);
+
+    @Test
+    public void thatColdComponentsAreHydrated()
+    {
+        EntitySystem system = testSystem.getEntitySystem();
+
+        List<Entity> entities = new ArrayList<Entity>();
+        for (int i = 0; i < 10; i++)
+        {
+            Entity entity = system.createEntity();
+            ComponentA component = new ComponentA();
+            component.value = "value " + i;
+            system.addComponent(entity, component);
+            entities.add(entity);
+        }
+
+        system.enableColdStorage(ComponentA.class, TestCodecs.create().codecFor(ComponentA.class), null, 4);
+
+        ColdStorageStatistics statistics = system.getStatus().getColdStorage().get(ComponentA.class.getName());
+        assertThat(statistics.getHotSize(), is(4));
+        assertThat(statistics.getColdSize(), is(6));
+        assertThat(statistics.getEvictions(), is(6L));
+
+        // the oldest ones are cold by now
+        assertThat(system.hasComponent(entities.get(0), ComponentA.class), is(true));
+        assertThat(system.getComponent(entities.get(0), ComponentA.class).value, is("value 0"));
+        assertThat(system.getComponent(entities.get(9), ComponentA.class).value, is("value 9"));
+        assertThat(system.findEntitiesWithComponent(ComponentA.class).size(), is(10));
+
+        system.removeComponent(entities.get(1), ComponentA.class);
+        system.killEntity(entities.get(2));
+        assertThat(system.getAllComponentsOfType(ComponentA.class).size(), is(8));
+        assertThat(system.getEntityToComponentMap(ComponentA.class).size(), is(8));
+
+        statistics = system.getStatus().getColdStorage().get(ComponentA.class.getName());
+        assertThat(statistics.getHits(), is(1L));
+        assertThat(statistics.getMisses(), is(1L));
+        assertThat(statistics.getHotSize() + statistics.getColdSize(), is(8));
+        assertThat(statistics.getHotSize(), is(lessThanOrEqualTo(4)));
+
+        // iterating reads the cold components without hydrating them
+        Set<String> values = new HashSet<String>();
+        for (ComponentA component : system.getAllComponentsOfType(ComponentA.class))
+        {
+            values.add(component.value);
+        }
+        assertThat(values.size(), is(8));
+        assertThat(values.contains("value 0"), is(true));
+        assertThat(values.contains("value 1"), is(false));
+        assertThat(system.streamComponents(ComponentA.class).count(), is(8L));
+
+        ColdStorageStatistics afterIteration = system.getStatus().getColdStorage().get(ComponentA.class.getName());
+        assertThat(afterIteration.getColdSize(), is(statistics.getColdSize()));
+        assertThat(afterIteration.getMisses(), is(statistics.getMisses()));
+
+        // the entity to component map hydrates like getComponent
+        assertThat(system.getEntityToComponentMap(ComponentA.class).get(entities.get(3)).value, is("value 3"));
+        assertThat(system.getEntityToComponentMap(ComponentA.class).containsKey(entities.get(1)), is(false));
+    }
+
+    @Test
+    public void thatColdComponentsCanBeReadAndRemovedWhileIterating()
+    {
+        EntitySystem system = testSystem.getEntitySystem();
+        for (int i = 0; i < 10; i++)
+        {
+            ComponentA component = new ComponentA();
+            component.value = "value " + i;
+            system.addComponent(system.createEntity(), component);
+        }
+        system.enableColdStorage(ComponentA.class, TestCodecs.create().codecFor(ComponentA.class), null, 4);
+
+        int read = 0;
+        for (Entity entity : system.findEntitiesWithComponent(ComponentA.class))
+        {
+            ComponentA component = system.getComponent(entity, ComponentA.class);
+            assertThat(component.value, startsWith("value "));
+            read++;
+            if (read % 2 == 0)
+            {
+                system.removeComponent(entity, ComponentA.class);
+            }
+        }
+
+        assertThat(read, is(10));
+        assertThat(system.findEntitiesWithComponent(ComponentA.class).size(), is(5));
+    }
+
+    @Test
+    public void thatParallelStreamsReadColdComponents()
+    {
+        final EntitySystem system = testSystem.getEntitySystem();
+        for (int i = 0; i < 2000; i++)
+        {
+            ComponentA component = new ComponentA();
+            component.value = "value " + i;
+            system.addComponent(system.createEntity(), component);
+        }
+        system.enableColdStorage(ComponentA.class, TestCodecs.create().codecFor(ComponentA.class), null, 16);
+
+        Set<String> values = system.stream(ComponentA.class).parallel()
+            .map(entity -> system.getComponent(entity, ComponentA.class).value)
+            .collect(Collectors.toSet());
+
+        assertThat(values.size(), is(2000));
+        ColdStorageStatistics statistics = system.getStatus().getColdStorage().get(ComponentA.class.getName());
+        assertThat(statistics.getHotSize(), is(16));
+        assertThat(statistics.getHotSize() + statistics.getColdSize(), is(2000));
+    }
+}
@@ -0,0 +1,114 @@
+package org.javesi;
+
+import org.javesi.test.TestEntitySystem;
+import org.javesi.testcomponents.ComponentC;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class CompactionTest
+{
+    @Rule
+    public TestEntitySystem testSystem = new TestEntitySystem(TagComponentTest.Selected.class,
+        SharedComponentTest.Faction.class, ComponentC.class);
+
+    @Test
+    public void thatStoresShrinkAfterMassDeath()
+    {
+        EntitySystem system = testSystem.getEntitySystem();
+
+        List<Entity> entities = new ArrayList<Entity>();
+        for (int i = 0; i < 20000; i++)
+        {
+            Entity entity = system.createEntity();
+            ComponentC componentC = new ComponentC();
+            componentC.value = i;
+            system.addComponent(entity, componentC);
+            system.addComponent(entity, new SharedComponentTest.Faction(i % 2 == 0 ? "red" : "blue"));
+            if (i % 3 == 0)
+            {
+                system.addComponent(entity, new TagComponentTest.Selected());
+            }
+            entities.add(entity);
+        }
+
+        // keep every 100th entity
+        Set<Entity> survivors = new HashSet<Entity>();
+        for (int i = 0; i < entities.size(); i++)
+        {
+            Entity entity = entities.get(i);
+            if (i % 100 == 0)
+            {
+                survivors.add(entity);
+            }
+            else
+            {
+                system.killEntity(entity);
+            }
+        }
+
+        int capacityBefore = system.getStatus().getStoreFootprints().get(ComponentC.class.getName())
+            .getTableCapacity();
+        long bytesBefore = system.getStatus().getEstimatedBytes();
+        Set<Entity> withC = system.findEntitiesWithComponent(ComponentC.class);
+        Collection<ComponentC> componentsC = system.getAllComponentsOfType(ComponentC.class);
+        Map<Entity, ComponentC> mapC = system.getEntityToComponentMap(ComponentC.class);
+
+        system.compact();
+
+        assertThat(system.getStatus().getStoreFootprints().get(ComponentC.class.getName()).getTableCapacity(),
+            is(lessThan(capacityBefore)));
+        assertThat(system.getStatus().getEstimatedBytes(), is(lessThan(bytesBefore)));
+
+        assertThat(system.entities().size(), is(200));
+        assertThat(new HashSet<Entity>(system.entities()), is(survivors));
+
+        int selected = 0;
+        int red = 0;
+        for (int i = 0; i < entities.size(); i += 100)
+        {
+            Entity entity = entities.get(i);
+            assertThat(system.getEntity(entity.getId()), is(sameInstance(entity)));
+            assertThat(system.getComponent(entity, ComponentC.class).value, is(i));
+            assertThat(system.hasComponent(entity, TagComponentTest.Selected.class), is(i % 3 == 0));
+            if (i % 3 == 0)
+            {
+                selected++;
+            }
+            if (i % 2 == 0)
+            {
+                red++;
+            }
+        }
+
+        assertThat(system.findEntitiesWithComponent(TagComponentTest.Selected.class).size(), is(selected));
+        assertThat(system.findEntitiesWithComponents(TagComponentTest.Selected.class, ComponentC.class).size(),
+            is(selected));
+        assertThat(system.findEntitiesWithSharedComponent(new SharedComponentTest.Faction("red")).size(), is(red));
+
+        // the compacted stores keep working
+        Entity entity = system.createEntity();
+        system.addComponent(entity, new TagComponentTest.Selected());
+        system.addComponent(entity, new SharedComponentTest.Faction("red"));
+        assertThat(system.findEntitiesWithComponent(TagComponentTest.Selected.class).size(), is(selected + 1));
+        assertThat(system.findEntitiesWithSharedComponent(new SharedComponentTest.Faction("red")).size(),
+            is(red + 1));
+
+        // views taken before the compaction see later changes
+        system.addComponent(entity, new ComponentC());
+        assertThat(withC.size(), is(201));
+        assertThat(withC.contains(entity), is(true));
+        assertThat(componentsC.size(), is(201));
+        assertThat(mapC.get(entity), is(sameInstance(system.getComponent(entity, ComponentC.class))));
+        assertThat(new HashSet<Entity>(mapC.keySet()), is(new HashSet<Entity>(withC)));
+    }
+}
@@ -1,6 +1,8 @@
 package org.javesi;
 
+import org.javesi.component.Component;
 import org.javesi.exception.InvalidComponentTypeException;
+import org.javesi.status.StoreFootprint;
 import org.javesi.test.TestEntitySystem;
 import org.javesi.testcomponents.ComponentA;
 import org.javesi.testcomponents.SingleB;
@@ -16,7 +18,9 @@ import static org.hamcrest.Matchers.*;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.Spliterator;
 
 public class EntitySystemTest
 {
@@ -137,6 +141,71 @@ public class EntitySystemTest
 
     }
 
+    @Test
+    public void thatStatusTracksStoreSizes()
+    {
+        EntitySystem system = mainSystem.getEntitySystem();
+
+        Entity a = system.createEntity();
+        Entity b = system.createEntity();
+        system.addComponent(a, createA("a"));
+        system.addComponent(b, createA("b"));
+        system.addComponent(b, createB(1));
+        system.killEntity(a);
+
+        EntitySystem.Status status = system.getStatus();
+        assertThat(status.getEntityMapSize(), is(1));
+        assertThat(status.getEntityRegistryFootprint().getHighWaterMark(), is(2));
+
+        StoreFootprint footprint = status.getStoreFootprints().get(ComponentA.class.getName());
+        assertThat(footprint.getSize(), is(1));
+        assertThat(footprint.getHighWaterMark(), is(2));
+        assertThat(footprint.getTableCapacity(), greaterThanOrEqualTo(2));
+        assertThat(footprint.getEstimatedBytes(), greaterThan(footprint.getOverheadBytes()));
+        assertThat(status.getComponentMapSizes().get(SingleB.class.getName()), is(1));
+        assertThat(status.getEstimatedBytes(), greaterThan(footprint.getEstimatedBytes()));
+    }
+
+    @Test
+    public void thatEntitiesCanBeAccessedById()
+    {
+        EntitySystem system = mainSystem.getEntitySystem();
+
+        Entity a = system.createNamedEntity("Entity A");
+        Entity b = system.createEntity();
+        long id = a.getId();
+
+        assertThat(system.getEntity(id), is(sameInstance(a)));
+        assertThat(system.getEntity(-1L), is(nullValue()));
+
+        system.addComponent(id, createA("by id"));
+        system.addComponent(b.getId(), createA("b"));
+        assertThat(system.getComponent(id, ComponentA.class).value, is("by id"));
+        assertThat(system.hasComponent(id, ComponentC.class), is(false));
+
+        final Set<Long> ids = new HashSet<Long>();
+        system.visitEntityIds(new EntityIdVisitor()
+        {
+            @Override
+            public void visit(long id)
+            {
+                ids.add(id);
+            }
+        }, ComponentA.class);
+        assertThat(ids.size(), is(2));
+        assertThat(ids.contains(id), is(true));
+        assertThat(ids.contains(b.getId()), is(true));
+
+        system.removeComponent(id, ComponentA.class);
+        assertThat(system.hasComponent(id, ComponentA.class), is(false));
+
+        system.killEntity(id);
+        assertThat(system.getEntity(id), is(nullValue()));
+        assertThat(a.isAlive(), is(false));
+        assertThat(system.entities().size(), is(1));
+        assertThat(system.entities().iterator().next(), is(b));
+    }
+
     private ComponentA createA(String value)
     {
         ComponentA componentA = new ComponentA();
@@ -249,4 +318,61 @@ public class EntitySystemTest
         EntitySystem state = unknownTestSystem.getEntitySystem();
         state.addComponent(state.createEntity(), new ComponentC());
     }
+
+    @Test
+    public void thatTypeIndexesFollowNameOrder()
+    {
+        EntitySystem state = mainSystem.getEntitySystem();
+
+        // ComponentA, ComponentC, SingleB, UnusedSingle
+        assertThat(state.getTypeIndex(ComponentA.class), is(0));
+        assertThat(state.getTypeIndex(ComponentC.class), is(1));
+        assertThat(state.getTypeIndex(SingleB.class), is(2));
+        assertThat(state.getTypeIndex(UnusedSingle.class), is(3));
+
+        // the same in a system configured in another order
+        Set<Class<? extends Component>> classes = new LinkedHashSet<Class<? extends Component>>();
+        classes.add(UnusedSingle.class);
+        classes.add(SingleB.class);
+        classes.add(ComponentC.class);
+        classes.add(ComponentA.class);
+        EntitySystem other = new EntitySystem(new EntitySystemBuilder().withComponentClasses(classes));
+        for (Class<? extends Component> componentType : classes)
+        {
+            assertThat(other.getTypeIndex(componentType), is(state.getTypeIndex(componentType)));
+        }
+    }
+
+    @Test
+    public void thatStreamsAreSizedAndSplitEvenly()
+    {
+        EntitySystem state = mainSystem.getEntitySystem();
+
+        for (int i = 0; i < 1000; i++)
+        {
+            Entity entity = state.createEntity();
+            ComponentC c = new ComponentC();
+            c.value = i;
+            state.addComponent(entity, c);
+            if (i % 2 == 0)
+            {
+                state.addComponent(entity, createA("even"));
+            }
+        }
+
+        Spliterator<Entity> spliterator = state.stream(ComponentA.class, ComponentC.class).spliterator();
+        assertThat(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.DISTINCT |
+            Spliterator.NONNULL), is(true));
+        assertThat(spliterator.getExactSizeIfKnown(), is(500L));
+        Spliterator<Entity> prefix = spliterator.trySplit();
+        assertThat(prefix.getExactSizeIfKnown(), is(250L));
+        assertThat(spliterator.getExactSizeIfKnown(), is(250L));
+
+        assertThat(state.stream().count(), is(1000L));
+        assertThat(state.entities().spliterator().getExactSizeIfKnown(), is(1000L));
+        assertThat(state.stream(ComponentA.class).parallel()
+            .filter(entity -> state.getComponent(entity, ComponentC.class).value % 4 == 0)
+            .count(), is(250L));
+        assertThat(state.streamComponents(ComponentC.class).parallel().mapToLong(c -> c.value).sum(), is(499500L));
+    }
 }
@@ -0,0 +1,95 @@
+package org.javesi;
+
+import org.javesi.test.TestEntitySystem;
+import org.javesi.testcomponents.ComponentA;
+import org.javesi.testcomponents.ComponentC;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class ExpiryTest
+{
+    @Rule
+    public TestEntitySystem testSystem = new TestEntitySystem(ComponentA.class, ComponentC.class);
+
+    @Test
+    public void thatComponentsExpire()
+    {
+        EntitySystem system = testSystem.getEntitySystem();
+
+        Entity entity = system.createEntity();
+        system.addComponent(entity, new ComponentA(), 10);
+        system.addComponent(entity, new ComponentC(), 100);
+
+        assertThat(system.advanceClock(9), is(0));
+        assertThat(system.hasComponent(entity, ComponentA.class), is(true));
+
+        assertThat(system.advanceClock(10), is(1));
+        assertThat(system.hasComponent(entity, ComponentA.class), is(false));
+        assertThat(system.hasComponent(entity, ComponentC.class), is(true));
+
+        assertThat(system.advanceClock(5000), is(1));
+        assertThat(system.hasComponent(entity, ComponentC.class), is(false));
+        assertThat(entity.isAlive(), is(true));
+        assertThat(system.getClock(), is(5000L));
+    }
+
+    @Test
+    public void thatEntitiesAreKilledInOneBatch()
+    {
+        EntitySystem system = testSystem.getEntitySystem();
+
+        for (int i = 0; i < 1000; i++)
+        {
+            Entity entity = system.createEntity();
+            system.addComponent(entity, new ComponentA());
+            system.killEntityAfter(entity, 50 + i % 10);
+        }
+        Entity survivor = system.createEntity();
+
+        assertThat(system.advanceClock(100), is(1000));
+        assertThat(system.entities().size(), is(1));
+        assertThat(system.entities(), hasItem(survivor));
+        assertThat(system.findEntitiesWithComponent(ComponentA.class).size(), is(0));
+    }
+
+    @Test
+    public void thatExpiriesAreCancelled()
+    {
+        EntitySystem system = testSystem.getEntitySystem();
+
+        Entity removed = system.createEntity();
+        system.addComponent(removed, new ComponentA(), 10);
+        system.removeComponent(removed, ComponentA.class);
+
+        Entity readded = system.createEntity();
+        system.addComponent(readded, new ComponentA(), 10);
+        system.addComponent(readded, new ComponentA());
+
+        Entity extended = system.createEntity();
+        system.addComponent(extended, new ComponentA(), 10);
+        system.addComponent(extended, new ComponentA(), 20);
+
+        Entity killed = system.createEntity();
+        system.killEntityAfter(killed, 10);
+        system.killEntity(killed);
+
+        assertThat(system.advanceClock(10), is(0));
+        assertThat(system.hasComponent(readded, ComponentA.class), is(true));
+        assertThat(system.hasComponent(extended, ComponentA.class), is(true));
+
+        assertThat(system.advanceClock(20), is(1));
+        assertThat(system.hasComponent(extended, ComponentA.class), is(false));
+        assertThat(system.hasComponent(readded, ComponentA.class), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void thatTheClockCannotGoBack()
+    {
+        EntitySystem system = testSystem.getEntitySystem();
+        system.advanceClock(10);
+        system.advanceClock(9);
+    }
+}
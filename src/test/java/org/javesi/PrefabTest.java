@@ -0,0 +1,131 @@
+package org.javesi;
+
+import org.javesi.component.Component;
+import org.javesi.exception.InvalidComponentTypeException;
+import org.javesi.id.EntityIdGenerator;
+import org.javesi.pool.ComponentRecycler;
+import org.javesi.prefab.ComponentCopier;
+import org.javesi.prefab.Prefab;
+import org.javesi.test.TestEntitySystem;
+import org.javesi.testcomponents.ComponentA;
+import org.javesi.testcomponents.SingleB;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class PrefabTest
+{
+    private final static ComponentCopier<ComponentA> COPY_A = new ComponentCopier<ComponentA>()
+    {
+        @Override
+        public ComponentA copy(ComponentA prototype)
+        {
+            ComponentA copy = new ComponentA();
+            copy.value = prototype.value;
+            return copy;
+        }
+    };
+
+    @Rule
+    public TestEntitySystem testSystem = new TestEntitySystem(ComponentA.class, SingleB.class,
+        TagComponentTest.Selected.class, SharedComponentTest.Faction.class);
+
+    @Test
+    public void thatPrefabsAreInstantiatedInBulk()
+    {
+        EntitySystem system = testSystem.getEntitySystem();
+
+        ComponentA prototype = new ComponentA();
+        prototype.value = "orc";
+        Prefab orc = new Prefab("orc")
+            .with(prototype, COPY_A)
+            .with(new TagComponentTest.Selected())
+            .with(new SharedComponentTest.Faction("red"));
+
+        system.createEntity();
+        Entity[] orcs = system.instantiate(orc, 1000);
+        Entity single = system.instantiate(orc);
+
+        assertThat(system.entities().size(), is(1002));
+        assertThat(system.findEntitiesWithComponents(ComponentA.class, TagComponentTest.Selected.class).size(),
+            is(1001));
+        assertThat(system.findEntitiesWithSharedComponent(new SharedComponentTest.Faction("red")).size(), is(1001));
+        assertThat(system.getStatus().getComponentsAdded(), is(3003L));
+
+        // ids are reserved as one block
+        for (int i = 1; i < orcs.length; i++)
+        {
+            assertThat(orcs[i].getId(), is(orcs[i - 1].getId() + 1));
+        }
+        assertThat(system.getEntity(orcs[500].getId()), is(sameInstance(orcs[500])));
+
+        // copied components are not shared
+        ComponentA a = system.getComponent(orcs[0], ComponentA.class);
+        assertThat(a.value, is("orc"));
+        assertThat(a, is(not(sameInstance(prototype))));
+        assertThat(a, is(not(sameInstance(system.getComponent(single, ComponentA.class)))));
+    }
+
+    @Test
+    public void thatIdGeneratorsWithoutReservationAreSupported()
+    {
+        EntitySystem system = new EntitySystem(new EntitySystemBuilder()
+            .withComponentClasses(Collections.<Class<? extends Component>>singleton(ComponentA.class))
+            .withIdGenerator(new EntityIdGenerator()
+            {
+                private long nextId = 100;
+
+                @Override
+                public long getNextEntityId()
+                {
+                    return nextId += 10;
+                }
+            }));
+
+        Entity[] entities = system.instantiate(new Prefab("a").with(new ComponentA(), COPY_A), 3);
+
+        assertThat(entities[0].getId(), is(110L));
+        assertThat(entities[2].getId(), is(130L));
+        assertThat(system.findEntitiesWithComponent(ComponentA.class).size(), is(3));
+    }
+
+    @Test(expected = InvalidComponentTypeException.class)
+    public void thatSharedPrototypesOfPooledTypesAreRejected()
+    {
+        EntitySystem system = testSystem.getEntitySystem();
+        Prefab shared = new Prefab("shared").with(new ComponentA());
+        system.instantiate(shared);
+
+        // pools registered after the first instantiation are detected as well
+        system.registerComponentPool(ComponentA.class, new ComponentRecycler<ComponentA>()
+        {
+            @Override
+            public ComponentA create()
+            {
+                return new ComponentA();
+            }
+
+            @Override
+            public void reset(ComponentA component)
+            {
+                component.value = null;
+            }
+        }, 10);
+
+        Entity[] entities = system.instantiate(new Prefab("copied").with(new ComponentA(), COPY_A), 2);
+        system.killEntity(entities[0]);
+        assertThat(system.getComponent(entities[1], ComponentA.class), is(notNullValue()));
+
+        system.instantiate(shared);
+    }
+
+    @Test(expected = InvalidComponentTypeException.class)
+    public void thatSingletonsAreRejected()
+    {
+        testSystem.getEntitySystem().instantiate(new Prefab("invalid").with(new SingleB()));
+    }
+}
@@ -0,0 +1,111 @@
+package org.javesi;
+
+import org.javesi.relation.RelationType;
+import org.javesi.test.TestEntitySystem;
+import org.javesi.testcomponents.ComponentA;
+import org.javesi.testcomponents.ComponentC;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class RelationTest
+{
+    private final static RelationType MEMBER_OF = new RelationType("memberOf", false);
+
+    @Rule
+    public TestEntitySystem testSystem = new TestEntitySystem(ComponentA.class, ComponentC.class);
+
+    @Test
+    public void thatChildrenAreIndexedAndKilledWithTheirParent()
+    {
+        EntitySystem system = testSystem.getEntitySystem();
+
+        Entity player = system.createEntity();
+        Entity weapon = system.createEntity();
+        Entity scope = system.createEntity();
+        Entity other = system.createEntity();
+        system.setParent(weapon, player);
+        system.setParent(scope, weapon);
+        system.setParent(other, player);
+
+        assertThat(system.getParent(weapon), is(player));
+        assertThat(system.getChildren(player).size(), is(2));
+        assertThat(system.getChildren(player), hasItem(weapon));
+        assertThat(system.getChildren(weapon), hasItem(scope));
+
+        // moving a child updates both directions
+        system.setParent(other, weapon);
+        assertThat(system.getChildren(player).size(), is(1));
+        assertThat(system.getChildren(weapon).size(), is(2));
+        system.setParent(other, null);
+        assertThat(system.getParent(other), is(nullValue()));
+
+        system.killEntity(player);
+        assertThat(weapon.isAlive(), is(false));
+        assertThat(scope.isAlive(), is(false));
+        assertThat(other.isAlive(), is(true));
+        assertThat(system.entities().size(), is(1));
+    }
+
+    @Test
+    public void thatNonCascadingRelationsAreRemoved()
+    {
+        EntitySystem system = testSystem.getEntitySystem();
+
+        Entity squad = system.createEntity();
+        Entity member = system.createEntity();
+        system.relate(member, MEMBER_OF, squad);
+        assertThat(system.getRelationSources(squad, MEMBER_OF), hasItem(member));
+
+        system.killEntity(squad);
+        assertThat(member.isAlive(), is(true));
+        assertThat(system.getRelationTarget(member, MEMBER_OF), is(nullValue()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void thatCyclesAreRejected()
+    {
+        EntitySystem system = testSystem.getEntitySystem();
+
+        Entity a = system.createEntity();
+        Entity b = system.createEntity();
+        system.setParent(a, b);
+        system.setParent(b, a);
+    }
+
+    @Test
+    public void thatRelatedEntitiesCanBeQueried()
+    {
+        EntitySystem system = testSystem.getEntitySystem();
+
+        // ComponentC marks players, ComponentA weapons
+        Entity player = system.createEntity();
+        system.addComponent(player, new ComponentC());
+        Entity chest = system.createEntity();
+
+        Entity carried = system.createEntity();
+        system.addComponent(carried, new ComponentA());
+        system.setParent(carried, player);
+
+        Entity stored = system.createEntity();
+        system.addComponent(stored, new ComponentA());
+        system.setParent(stored, chest);
+
+        Set<Entity> weapons = system.findRelatedEntities(ComponentA.class, RelationType.CHILD_OF, ComponentC.class);
+        assertThat(weapons.size(), is(1));
+        assertThat(weapons, hasItem(carried));
+
+        // the other direction is used when there are fewer relations than candidates
+        for (int i = 0; i < 10; i++)
+        {
+            system.addComponent(system.createEntity(), new ComponentA());
+        }
+        weapons = system.findRelatedEntities(ComponentA.class, RelationType.CHILD_OF, ComponentC.class);
+        assertThat(weapons.size(), is(1));
+        assertThat(weapons, hasItem(carried));
+    }
+}
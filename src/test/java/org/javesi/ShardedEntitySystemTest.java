@@ -0,0 +1,138 @@
+package org.javesi;
+
+import org.javesi.component.Component;
+import org.javesi.id.ShardIdGenerator;
+import org.javesi.job.Job;
+import org.javesi.job.ShardedJob;
+import org.javesi.testcomponents.ComponentA;
+import org.javesi.testcomponents.ComponentC;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class ShardedEntitySystemTest
+{
+    private ShardedEntitySystem createWorld(int shardCount)
+    {
+        Set<Class<? extends Component>> classes = new HashSet<Class<? extends Component>>();
+        classes.add(ComponentA.class);
+        classes.add(ComponentC.class);
+        return new EntitySystemBuilder().withComponentClasses(classes).buildSharded(shardCount);
+    }
+
+    @Test
+    public void thatShardsAreIndependent() throws Exception
+    {
+        final ShardedEntitySystem world = createWorld(4);
+
+        // every shard is mutated by its own thread
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[world.getShardCount()];
+        for (int i = 0; i < threads.length; i++)
+        {
+            final int shard = i;
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for (int j = 0; j < 100; j++)
+                        {
+                            world.execute(shard, new Job()
+                            {
+                                @Override
+                                public void execute(EntitySystem state) throws Exception
+                                {
+                                    Entity entity = state.createEntity();
+                                    assertThat(world.shardOf(entity), is(shard));
+                                    state.addComponent(entity, new ComponentC());
+                                }
+                            });
+                        }
+                    }
+                    catch (Throwable t)
+                    {
+                        error.set(t);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        assertThat(error.get(), is(nullValue()));
+
+        assertThat(world.getEntityCount(), is(400));
+        assertThat(world.getStatus().size(), is(4));
+        assertThat(world.findEntitiesWithComponents(ComponentC.class).size(), is(400));
+        for (int i = 0; i < world.getShardCount(); i++)
+        {
+            // plus the query job
+            assertThat(world.getShard(i).getJobMetrics().getJobCount(), is(101L));
+        }
+    }
+
+    @Test
+    public void thatCrossShardJobsSeeAllRequestedShards() throws Exception
+    {
+        final ShardedEntitySystem world = createWorld(3);
+
+        final long[] source = new long[1];
+        world.execute(2, new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                ComponentA componentA = new ComponentA();
+                componentA.value = "moved";
+                source[0] = state.createEntity().getId();
+                state.addComponent(source[0], componentA);
+            }
+        });
+        assertThat(ShardIdGenerator.shardOf(source[0]), is(2));
+
+        // move the component to a new entity in shard 0, requesting the shards in descending order
+        world.execute(new int[]{ 2, 0 }, new ShardedJob()
+        {
+            @Override
+            public void execute(EntitySystem[] shards) throws Exception
+            {
+                assertThat(shards[1], is(nullValue()));
+
+                ComponentA copy = new ComponentA();
+                copy.value = shards[2].getComponent(source[0], ComponentA.class).value;
+                shards[0].addComponent(shards[0].createEntity(), copy);
+                shards[2].killEntity(source[0]);
+            }
+        });
+
+        List<Entity> entities = world.findEntitiesWithComponents(ComponentA.class);
+        assertThat(entities.size(), is(1));
+        assertThat(world.shardOf(entities.get(0)), is(0));
+        assertThat(world.getEntityCount(), is(1));
+
+        assertThat(world.shardForKey("some key"), is(world.shardForKey("some key")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void thatDuplicateShardsAreRejected() throws Exception
+    {
+        createWorld(2).execute(new int[]{ 1, 1 }, new ShardedJob()
+        {
+            @Override
+            public void execute(EntitySystem[] shards) throws Exception
+            {
+            }
+        });
+    }
+}
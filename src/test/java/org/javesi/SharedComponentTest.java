@@ -0,0 +1,94 @@
+package org.javesi;
+
+import org.javesi.component.SharedComponent;
+import org.javesi.test.TestEntitySystem;
+import org.javesi.testcomponents.ComponentC;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class SharedComponentTest
+{
+    public static class Faction
+        implements SharedComponent
+    {
+        private final String name;
+
+        public Faction(String name)
+        {
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof Faction && ((Faction) obj).name.equals(name);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return name.hashCode();
+        }
+    }
+
+    @Rule
+    public TestEntitySystem testSystem = new TestEntitySystem(Faction.class, ComponentC.class);
+
+    @Test
+    public void thatValuesAreSharedAndIndexed()
+    {
+        EntitySystem system = testSystem.getEntitySystem();
+
+        Set<Entity> red = new HashSet<Entity>();
+        for (int i = 0; i < 100; i++)
+        {
+            Entity entity = system.createEntity();
+            if (i % 4 == 0)
+            {
+                system.addComponent(entity, new Faction("red"));
+                red.add(entity);
+            }
+            else
+            {
+                system.addComponent(entity, new Faction("blue"));
+            }
+        }
+
+        assertThat(system.getSharedComponentValues(Faction.class).size(), is(2));
+        assertThat(system.findEntitiesWithSharedComponent(new Faction("red")), is(red));
+        assertThat(system.findEntitiesWithComponent(Faction.class).size(), is(100));
+        assertThat(system.getAllComponentsOfType(Faction.class).size(), is(100));
+        Map<Entity, Faction> factions = system.getEntityToComponentMap(Faction.class);
+        assertThat(factions.size(), is(100));
+        assertThat(factions.get(red.iterator().next()), is(new Faction("red")));
+
+        // all entities share one instance per value
+        Entity first = red.iterator().next();
+        Entity second = system.findEntitiesWithSharedComponent(new Faction("red")).iterator().next();
+        assertThat(system.getComponent(first, Faction.class), is(sameInstance(system.getComponent(second,
+            Faction.class))));
+
+        // moving entities between values and killing them updates the reverse index
+        system.addComponent(first, new Faction("blue"));
+        red.remove(first);
+        Entity killed = red.iterator().next();
+        system.killEntity(killed);
+        red.remove(killed);
+        assertThat(system.findEntitiesWithSharedComponent(new Faction("red")), is(red));
+
+        for (Entity entity : red)
+        {
+            system.removeComponent(entity, Faction.class);
+        }
+        assertThat(system.findEntitiesWithSharedComponent(new Faction("red")).isEmpty(), is(true));
+        assertThat(system.getSharedComponentValues(Faction.class).size(), is(1));
+        assertThat(system.getStatus().getComponentMapSizes().get(Faction.class.getName()), is(99 - 23));
+    }
+}
@@ -5,6 +5,7 @@ import org.javesi.id.ConstantIdGenerator;
 import org.javesi.id.EntityIdGenerator;
 import org.javesi.testcomponents.ComponentA;
 import org.javesi.testcomponents.SingleB;
+import org.javesi.testcomponents.TestComponentRegistry;
 import org.javesi.testcomponents.ComponentC;
 import org.javesi.testcomponents.UnusedSingle;
 import org.junit.Test;
@@ -18,6 +19,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
 
@@ -38,6 +40,120 @@ public class SystemBuilderTest
         assertThat(componentClasses.contains(UnusedSingle.class), is(true));
     }
     
+    @Test
+    public void thatConfigsWithoutNewerOptionsWork()
+    {
+        final Set<Class<? extends Component>> componentClasses = new HashSet<Class<? extends Component>>();
+        componentClasses.add(ComponentA.class);
+
+        // implements only the options of the first releases
+        EntitySystem system = new EntitySystem(new EntitySystemConfig()
+        {
+            private final EntityIdGenerator idGenerator = new EntitySystemBuilder().getIdGenerator();
+
+            @Override
+            public Set<Class<? extends Component>> getComponentClasses()
+            {
+                return componentClasses;
+            }
+
+            @Override
+            public EntityIdGenerator getIdGenerator()
+            {
+                return idGenerator;
+            }
+
+            @Override
+            public int getEntityMapCapacity()
+            {
+                return 16;
+            }
+
+            @Override
+            public float getEntityMapLoadFactor()
+            {
+                return 0.75f;
+            }
+
+            @Override
+            public int getEntityMapConcurrencyLevel()
+            {
+                return 1;
+            }
+
+            @Override
+            public int getComponentMapCapacity()
+            {
+                return 16;
+            }
+
+            @Override
+            public float getComponentMapLoadFactor()
+            {
+                return 0.75f;
+            }
+
+            @Override
+            public int getComponentMapConcurrencyLevel()
+            {
+                return 1;
+            }
+        });
+
+        system.addComponent(system.createEntity(), new ComponentA());
+        assertThat(system.findEntitiesWithComponent(ComponentA.class).size(), is(1));
+    }
+
+    @Test
+    public void thatGeneratedRegistryMatchesPackageScanning()
+    {
+        List<Class<? extends Component>> componentTypes = new TestComponentRegistry().getComponentTypes();
+
+        assertThat(new HashSet<Class<? extends Component>>(componentTypes),
+            is(new EntitySystemBuilder().findComponentClasses("org.javesi.testcomponents")));
+
+        // sorted by name for stable type indices
+        for (int i = 1; i < componentTypes.size(); i++)
+        {
+            assertThat(componentTypes.get(i - 1).getName().compareTo(componentTypes.get(i).getName()),
+                is(lessThan(0)));
+        }
+
+        EntitySystemBuilder builder = new EntitySystemBuilder().withComponentRegistry(new TestComponentRegistry());
+        assertThat(builder.getComponentClasses().size(), is(4));
+        builder.build();
+    }
+
+    @Test
+    public void thatIdleWorldsAreSmall()
+    {
+        Set<Class<? extends Component>> classes = new HashSet<Class<? extends Component>>();
+        classes.add(ComponentA.class);
+        classes.add(ComponentC.class);
+        classes.add(SingleB.class);
+        EntitySystemBuilder builder = new EntitySystemBuilder().withComponentTypeIndex(new ComponentTypeIndex(classes));
+
+        long start = System.nanoTime();
+        EntitySystem[] worlds = new EntitySystem[1000];
+        for (int i = 0; i < worlds.length; i++)
+        {
+            worlds[i] = new EntitySystem(builder);
+        }
+        log.info("Created {} worlds in {} ms", worlds.length, (System.nanoTime() - start) / 1000000);
+
+        EntitySystem.Status status = worlds[0].getStatus();
+        assertThat(status.getEstimatedBytes(), is(lessThan(8192L)));
+        assertThat(status.getComponentMapSizes().get(ComponentA.class.getName()), is(0));
+
+        // stores are created on first use
+        Entity entity = worlds[0].createEntity();
+        assertThat(worlds[0].getComponent(entity, ComponentA.class), is(nullValue()));
+        worlds[0].addComponent(entity, new ComponentA());
+        assertThat(worlds[0].hasComponent(entity, ComponentA.class), is(true));
+        assertThat(worlds[0].findEntitiesWithComponents(ComponentA.class, ComponentC.class).size(), is(0));
+        assertThat(worlds[1].findEntitiesWithComponent(ComponentA.class).size(), is(0));
+    }
+
     @Test
     public void checkBuilderContract() throws NoSuchMethodException, InvocationTargetException, IllegalAccessException
     {
@@ -79,10 +195,20 @@ public class SystemBuilderTest
         {
             return random.nextInt();
         }
+        else if (propertyType.equals(String.class))
+        {
+            return "name-" + random.nextInt();
+        }
         else if (propertyType.equals(EntityIdGenerator.class))
         {
             return new ConstantIdGenerator(random.nextLong());
         }
+        else if (propertyType.equals(ComponentTypeIndex.class))
+        {
+            Set<Class<? extends Component>> classes = new HashSet<Class<? extends Component>>();
+            classes.add(ComponentA.class);
+            return new ComponentTypeIndex(classes);
+        }
         else if (propertyType.equals(Set.class))
         {
             Set<Integer> set = new HashSet<Integer>();
@@ -0,0 +1,102 @@
+package org.javesi;
+
+import org.javesi.component.TagComponent;
+import org.javesi.exception.InvalidComponentTypeException;
+import org.javesi.test.TestEntitySystem;
+import org.javesi.testcomponents.ComponentC;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class TagComponentTest
+{
+    public static class Dead
+        implements TagComponent
+    {
+    }
+
+    public static class Selected
+        implements TagComponent
+    {
+    }
+
+    public static class InvalidTag
+        implements TagComponent
+    {
+        public int value;
+    }
+
+    @Rule
+    public TestEntitySystem testSystem = new TestEntitySystem(Dead.class, Selected.class, ComponentC.class);
+
+    @Test
+    public void thatTagsAreStoredAsBits()
+    {
+        EntitySystem system = testSystem.getEntitySystem();
+
+        Set<Entity> selected = new HashSet<Entity>();
+        Set<Entity> deadAndSelected = new HashSet<Entity>();
+        Set<Entity> selectedWithC = new HashSet<Entity>();
+        for (int i = 0; i < 200; i++)
+        {
+            Entity entity = system.createEntity();
+            if (i % 2 == 0)
+            {
+                system.addComponent(entity, new Selected());
+                selected.add(entity);
+            }
+            if (i % 3 == 0)
+            {
+                system.addComponent(entity, new Dead());
+                if (i % 2 == 0)
+                {
+                    deadAndSelected.add(entity);
+                }
+            }
+            if (i % 5 == 0)
+            {
+                system.addComponent(entity, new ComponentC());
+                if (i % 2 == 0)
+                {
+                    selectedWithC.add(entity);
+                }
+            }
+        }
+
+        assertThat(system.findEntitiesWithComponent(Selected.class), is(selected));
+        assertThat(system.getAllComponentsOfType(Selected.class).size(), is(100));
+        Map<Entity, Selected> selectedMap = system.getEntityToComponentMap(Selected.class);
+        assertThat(selectedMap.keySet(), is(selected));
+        assertThat(selectedMap.get(selected.iterator().next()), is(instanceOf(Selected.class)));
+        assertThat(system.findEntitiesWithComponents(Dead.class, Selected.class), is(deadAndSelected));
+        assertThat(system.findEntitiesWithComponents(Selected.class, ComponentC.class), is(selectedWithC));
+
+        Entity entity = selected.iterator().next();
+        assertThat(system.hasComponent(entity, Selected.class), is(true));
+        system.removeComponent(entity, Selected.class);
+        assertThat(system.hasComponent(entity, Selected.class), is(false));
+        assertThat(system.findEntitiesWithComponent(Selected.class).size(), is(99));
+
+        // indexes of killed entities are reused without inheriting their tags
+        Entity other = system.findEntitiesWithComponent(Selected.class).iterator().next();
+        int index = other.getIndex();
+        system.killEntity(other);
+        Entity reused = system.createEntity();
+        assertThat(reused.getIndex(), is(index));
+        assertThat(system.hasComponent(reused, Selected.class), is(false));
+        assertThat(system.findEntitiesWithComponent(Selected.class).size(), is(98));
+        assertThat(system.getStatus().getComponentMapSizes().get(Selected.class.getName()), is(98));
+    }
+
+    @Test(expected = InvalidComponentTypeException.class)
+    public void thatTagsWithFieldsAreRejected()
+    {
+        new TestEntitySystem(InvalidTag.class);
+    }
+}
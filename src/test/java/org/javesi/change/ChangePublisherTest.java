@@ -0,0 +1,264 @@
+package org.javesi.change;
+
+import org.javesi.Entity;
+import org.javesi.EntitySystem;
+import org.javesi.EntitySystemBuilder;
+import org.javesi.EntitySystemInterface;
+import org.javesi.component.Component;
+import org.javesi.exception.ChangeBufferOverflowException;
+import org.javesi.job.Job;
+import org.javesi.testcomponents.ComponentA;
+import org.javesi.testcomponents.ComponentC;
+import org.javesi.testcomponents.TestCodecs;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class ChangePublisherTest
+{
+    /** delivers on the calling thread, which is fine for tests */
+    private final static Executor DIRECT = new Executor()
+    {
+        @Override
+        public void execute(Runnable command)
+        {
+            command.run();
+        }
+    };
+
+    private final EntitySystemInterface world = createInterface();
+
+    private ChangePublisher publisher;
+
+    @Test
+    public void thatBatchesAreDeliveredOnDemand() throws Exception
+    {
+        createPublisher(4, OverflowPolicy.DROP_OLDEST);
+        RecordingSubscriber all = new RecordingSubscriber();
+        RecordingSubscriber onlyC = new RecordingSubscriber();
+        publisher.subscribe(all);
+        publisher.subscribe(onlyC, ComponentC.class);
+
+        createEntities(3);
+        assertThat(all.batches.size(), is(0));
+
+        all.subscription.request(2);
+        onlyC.subscription.request(10);
+        assertThat(all.batches.size(), is(2));
+        assertThat(onlyC.batches.size(), is(3));
+
+        // entity creation and the C component, but not the A component
+        ChangeBatch batch = onlyC.batches.get(0);
+        assertThat(batch.getFirstCommit(), is(2L));
+        assertThat(batch.getChanges().size(), is(2));
+        assertThat(batch.getChanges().get(0).getKind(), is(Change.Kind.ENTITY_CREATED));
+        assertThat(batch.getChanges().get(1).getComponentType(), is((Object) ComponentC.class));
+        assertThat(all.batches.get(0).getChanges().size(), is(3));
+
+        world.execute(new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                publisher.close();
+            }
+        });
+        assertThat(all.completed, is(false));
+        all.subscription.request(1);
+        assertThat(all.batches.size(), is(3));
+        assertThat(all.completed, is(true));
+        assertThat(onlyC.completed, is(true));
+    }
+
+    @Test
+    public void thatSlowSubscribersLoseTheOldestBatches() throws Exception
+    {
+        createPublisher(2, OverflowPolicy.DROP_OLDEST);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        createEntities(5);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertThat(subscriber.batches.size(), is(2));
+        assertThat(subscriber.batches.get(0).getFirstCommit(), is(5L));
+        assertThat(subscriber.batches.get(0).getDroppedBatches(), is(3L));
+        assertThat(subscriber.batches.get(1).getDroppedBatches(), is(0L));
+    }
+
+    @Test
+    public void thatSlowSubscribersCanCoalesce() throws Exception
+    {
+        createPublisher(2, OverflowPolicy.COALESCE);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        createEntities(5);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertThat(subscriber.batches.size(), is(2));
+        ChangeBatch coalesced = subscriber.batches.get(1);
+        assertThat(coalesced.getFirstCommit(), is(3L));
+        assertThat(coalesced.getLastCommit(), is(6L));
+        assertThat(coalesced.getChanges().size(), is(12));
+        assertThat(coalesced.getDroppedBatches(), is(0L));
+    }
+
+    @Test
+    public void thatOverflowsCanFail() throws Exception
+    {
+        createPublisher(1, OverflowPolicy.FAIL);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        createEntities(2);
+        assertThat(subscriber.error, is(instanceOf(ChangeBufferOverflowException.class)));
+        assertThat(publisher.getSubscriptionCount(), is(0));
+    }
+
+    @Test
+    public void thatComponentsArePublishedAsCopies() throws Exception
+    {
+        world.execute(new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                publisher = new ChangePublisher(state, TestCodecs.create(), DIRECT, 4, OverflowPolicy.FAIL);
+            }
+        });
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        final ComponentC[] live = new ComponentC[1];
+        world.execute(new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                Entity entity = state.createEntity();
+                live[0] = new ComponentC();
+                live[0].value = 1;
+                state.addComponent(entity, live[0]);
+                // changed in place within the job, published as committed
+                live[0].value = 2;
+
+                ComponentA removed = new ComponentA();
+                removed.value = "removed";
+                state.addComponent(entity, removed);
+                state.removeComponent(entity, ComponentA.class);
+
+                Entity killed = state.createEntity();
+                state.addComponent(killed, new ComponentC());
+                state.killEntity(killed);
+            }
+        });
+        live[0].value = 3;
+
+        List<Change> changes = subscriber.batches.get(0).getChanges();
+        assertThat(changes.size(), is(7));
+        ComponentC published = (ComponentC) changes.get(1).getComponent();
+        assertThat(published, is(not(sameInstance(live[0]))));
+        assertThat(published.value, is(2));
+        assertThat(changes.get(2).getKind(), is(Change.Kind.COMPONENT_ADDED));
+        assertThat(changes.get(2).getComponent(), is(nullValue()));
+        assertThat(changes.get(5).getKind(), is(Change.Kind.COMPONENT_ADDED));
+        assertThat(changes.get(5).getComponent(), is(nullValue()));
+    }
+
+    @Test
+    public void thatComponentsAreNotPublishedWithoutCodecs() throws Exception
+    {
+        createPublisher(4, OverflowPolicy.FAIL);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        createEntities(1);
+
+        Change change = subscriber.batches.get(0).getChanges().get(2);
+        assertThat(change.getComponentType(), is((Object) ComponentC.class));
+        assertThat(change.getComponent(), is(nullValue()));
+    }
+
+    private void createPublisher(final int bufferSize, final OverflowPolicy policy) throws Exception
+    {
+        world.execute(new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                publisher = new ChangePublisher(state, DIRECT, bufferSize, policy);
+            }
+        });
+    }
+
+    /**
+     * Creates the given number of entities with one job each.
+     */
+    private void createEntities(int count) throws Exception
+    {
+        for (int i = 0; i < count; i++)
+        {
+            world.execute(new Job()
+            {
+                @Override
+                public void execute(EntitySystem state) throws Exception
+                {
+                    Entity entity = state.createEntity();
+                    state.addComponent(entity, new ComponentA());
+                    state.addComponent(entity, new ComponentC());
+                }
+            });
+        }
+    }
+
+    private static EntitySystemInterface createInterface()
+    {
+        Set<Class<? extends Component>> classes = new HashSet<Class<? extends Component>>();
+        classes.add(ComponentA.class);
+        classes.add(ComponentC.class);
+        return new EntitySystemBuilder().withComponentClasses(classes).build();
+    }
+
+    private static class RecordingSubscriber
+        implements ChangeSubscriber
+    {
+        ChangeSubscription subscription;
+        final List<ChangeBatch> batches = new ArrayList<ChangeBatch>();
+        Throwable error;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(ChangeSubscription subscription)
+        {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(ChangeBatch batch)
+        {
+            batches.add(batch);
+        }
+
+        @Override
+        public void onError(Throwable t)
+        {
+            error = t;
+        }
+
+        @Override
+        public void onComplete()
+        {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package org.javesi.delta;
+
+import org.javesi.Entity;
+import org.javesi.EntitySystem;
+import org.javesi.EntitySystemBuilder;
+import org.javesi.EntitySystemInterface;
+import org.javesi.codec.CodecRegistry;
+import org.javesi.component.Component;
+import org.javesi.job.Job;
+import org.javesi.testcomponents.ComponentA;
+import org.javesi.testcomponents.ComponentC;
+import org.javesi.testcomponents.SingleB;
+import org.javesi.testcomponents.TestCodecs;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class DeltaReplicationTest
+{
+    private final CodecRegistry codecs = TestCodecs.create();
+
+    private DeltaProducer producer;
+    private DeltaApplier applier;
+
+    @Test
+    public void thatDeltasAreReplicated() throws Exception
+    {
+        EntitySystemInterface original = createInterface();
+        final EntitySystemInterface replica = createInterface();
+
+        original.execute(new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                producer = new DeltaProducer(state, codecs, 10);
+
+                Entity a = state.createNamedEntity("Entity A");
+                Entity b = state.createEntity();
+                state.addComponent(a, createA("foo"));
+                state.addComponent(b, createC(1));
+                state.addComponent(b, createB(2));
+
+                // never visible to the replica
+                Entity temp = state.createEntity();
+                state.addComponent(temp, createC(3));
+                state.killEntity(temp);
+
+                producer.endTick();
+            }
+        });
+
+        replicate(original, replica, 0, 1);
+
+        original.execute(new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                for (Entity entity : state.findEntitiesWithComponent(ComponentA.class))
+                {
+                    state.getComponent(entity, ComponentA.class).value = "bar";
+                    state.markChanged(entity, ComponentA.class);
+                    state.setEntityName(entity, "Renamed A");
+                }
+                producer.endTick();
+
+                for (Entity entity : state.findEntitiesWithComponent(ComponentC.class))
+                {
+                    state.removeComponent(entity, ComponentC.class);
+                }
+                Entity c = state.createNamedEntity("Entity C");
+                state.addComponent(c, createB(5));
+                producer.endTick();
+            }
+        });
+
+        // two ticks in one delta
+        replicate(original, replica, 1, 3);
+    }
+
+    @Test
+    public void thatSnapshotsAreReplicated() throws Exception
+    {
+        EntitySystemInterface original = createInterface();
+        final EntitySystemInterface replica = createInterface();
+
+        original.execute(new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                Entity a = state.createNamedEntity("Entity A");
+                state.addComponent(a, createA("foo"));
+                state.addComponent(a, createB(1));
+                state.addComponent(state.createEntity(), createC(2));
+
+                producer = new DeltaProducer(state, codecs, 1);
+                producer.endTick();
+                producer.endTick();
+            }
+        });
+
+        original.execute(new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                final ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+                producer.writeSnapshot(snapshot);
+
+                replica.execute(new Job()
+                {
+                    @Override
+                    public void execute(EntitySystem replicaState) throws Exception
+                    {
+                        applier = new DeltaApplier(replicaState, codecs);
+                        assertThat(applier.apply(snapshot.toByteArray()), is(2L));
+                    }
+                });
+                assertSameState(state, replica);
+            }
+        });
+    }
+
+    private void replicate(EntitySystemInterface original, final EntitySystemInterface replica, final long fromTick,
+                           final long toTick) throws Exception
+    {
+        original.execute(new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                final byte[] delta = producer.getDelta(fromTick, toTick);
+                replica.execute(new Job()
+                {
+                    @Override
+                    public void execute(EntitySystem replicaState) throws Exception
+                    {
+                        if (applier == null)
+                        {
+                            applier = new DeltaApplier(replicaState, codecs);
+                        }
+                        assertThat(applier.apply(delta), is(toTick));
+                    }
+                });
+                assertSameState(state, replica);
+            }
+        });
+    }
+
+    private void assertSameState(EntitySystem original, EntitySystemInterface replica) throws Exception
+    {
+        final Set<String> expected = describe(original);
+        replica.execute(new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                assertThat(describe(state), is(expected));
+            }
+        });
+    }
+
+    private static Set<String> describe(EntitySystem state)
+    {
+        Set<String> description = new HashSet<String>();
+        for (Entity entity : state.entities())
+        {
+            description.add(entity.getId() + ":" + state.nameFor(entity));
+            for (Component component : state.getAllComponentsOnEntity(entity))
+            {
+                String value;
+                if (component instanceof ComponentA)
+                {
+                    value = ((ComponentA) component).value;
+                }
+                else if (component instanceof ComponentC)
+                {
+                    value = String.valueOf(((ComponentC) component).value);
+                }
+                else
+                {
+                    value = String.valueOf(((SingleB) component).value);
+                }
+                description.add(entity.getId() + ":" + component.getClass().getSimpleName() + "=" + value);
+            }
+        }
+        return description;
+    }
+
+    private static ComponentA createA(String value)
+    {
+        ComponentA componentA = new ComponentA();
+        componentA.value = value;
+        return componentA;
+    }
+
+    private static SingleB createB(int value)
+    {
+        SingleB singleB = new SingleB();
+        singleB.value = value;
+        return singleB;
+    }
+
+    private static ComponentC createC(int value)
+    {
+        ComponentC componentC = new ComponentC();
+        componentC.value = value;
+        return componentC;
+    }
+
+    private EntitySystemInterface createInterface()
+    {
+        Set<Class<? extends Component>> classes = new HashSet<Class<? extends Component>>();
+        classes.add(ComponentA.class);
+        classes.add(ComponentC.class);
+        classes.add(SingleB.class);
+        return new EntitySystemBuilder().withComponentClasses(classes).build();
+    }
+}
@@ -16,6 +16,12 @@ public class ConstantIdGenerator
         return constantValue;
     }
 
+    @Override
+    public void ensureAbove(long id)
+    {
+        // we don't care
+    }
+
     @Override
     public int hashCode()
     {
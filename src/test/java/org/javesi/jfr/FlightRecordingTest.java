@@ -0,0 +1,88 @@
+package org.javesi.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.javesi.Entity;
+import org.javesi.EntitySystem;
+import org.javesi.EntitySystemBuilder;
+import org.javesi.EntitySystemInterface;
+import org.javesi.component.Component;
+import org.javesi.job.Job;
+import org.javesi.testcomponents.ComponentA;
+import org.javesi.testcomponents.ComponentC;
+import org.junit.Test;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class FlightRecordingTest
+{
+    @Test
+    public void thatJobsAndQueriesAreRecorded() throws Exception
+    {
+        Set<Class<? extends Component>> classes = new HashSet<Class<? extends Component>>();
+        classes.add(ComponentA.class);
+        classes.add(ComponentC.class);
+        EntitySystemInterface systemInterface = new EntitySystemBuilder().withComponentClasses(classes).build();
+
+        File file = File.createTempFile("javesi", ".jfr");
+        file.deleteOnExit();
+
+        Recording recording = new Recording();
+        recording.enable(JobEvent.class);
+        recording.enable(StructuralChangesEvent.class).withThreshold(Duration.ZERO);
+        recording.enable(QueryEvent.class).withThreshold(Duration.ZERO);
+        recording.start();
+
+        systemInterface.execute(new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                for (int i = 0; i < 10; i++)
+                {
+                    Entity entity = state.createEntity();
+                    state.addComponent(entity, new ComponentC());
+                    if (i % 2 == 0)
+                    {
+                        state.addComponent(entity, new ComponentA());
+                    }
+                }
+                state.findEntitiesWithComponents(ComponentA.class, ComponentC.class);
+            }
+        });
+
+        recording.stop();
+        recording.dump(file.toPath());
+        recording.close();
+
+        Map<String, RecordedEvent> events = new HashMap<String, RecordedEvent>();
+        List<RecordedEvent> recorded = RecordingFile.readAllEvents(file.toPath());
+        for (RecordedEvent event : recorded)
+        {
+            events.put(event.getEventType().getName(), event);
+        }
+
+        RecordedEvent jobEvent = events.get("org.javesi.Job");
+        assertThat(jobEvent, is(notNullValue()));
+        assertThat(jobEvent.getClass("jobClass").getName(), containsString(FlightRecordingTest.class.getName()));
+
+        RecordedEvent changesEvent = events.get("org.javesi.StructuralChanges");
+        assertThat(changesEvent, is(notNullValue()));
+        assertThat(changesEvent.getLong("structuralChanges"), is(25L));
+        assertThat(changesEvent.getInt("entityCount"), is(10));
+
+        RecordedEvent queryEvent = events.get("org.javesi.Query");
+        assertThat(queryEvent, is(notNullValue()));
+        assertThat(queryEvent.getInt("resultSize"), is(5));
+    }
+}
@@ -0,0 +1,87 @@
+package org.javesi.jmx;
+
+import org.javesi.EntitySystem;
+import org.javesi.EntitySystemBuilder;
+import org.javesi.EntitySystemInterface;
+import org.javesi.component.Component;
+import org.javesi.job.Job;
+import org.javesi.testcomponents.ComponentA;
+import org.javesi.testcomponents.ComponentC;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class EntitySystemMonitorTest
+{
+    @Test
+    public void thatStatisticsAreExposedViaJmx() throws Exception
+    {
+        Set<Class<? extends Component>> classes = new HashSet<Class<? extends Component>>();
+        classes.add(ComponentA.class);
+        classes.add(ComponentC.class);
+        EntitySystemInterface systemInterface = new EntitySystemBuilder().withComponentClasses(classes)
+            .withJmxName("monitor-test").build();
+
+        try
+        {
+            systemInterface.execute(new Job()
+            {
+                @Override
+                public void execute(EntitySystem state) throws Exception
+                {
+                    for (int i = 0; i < 3; i++)
+                    {
+                        state.addComponent(state.createEntity(), new ComponentC());
+                    }
+                    state.killEntity(state.findEntitiesWithComponent(ComponentC.class).iterator().next());
+                }
+            });
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = systemInterface.getMonitor().getObjectName();
+            assertThat(server.isRegistered(name), is(true));
+
+            assertThat((Integer) server.getAttribute(name, "EntityCount"), is(2));
+            assertThat((Long) server.getAttribute(name, "EntitiesCreated"), is(3L));
+            assertThat((Long) server.getAttribute(name, "EntitiesKilled"), is(1L));
+            assertThat((Long) server.getAttribute(name, "JobCount"), is(1L));
+            assertThat((Integer) server.getAttribute(name, "EntityHighWaterMark"), is(3));
+            assertThat((Double) server.getAttribute(name, "MaxLockHoldMillis"), is(greaterThan(0.0)));
+            assertThat((Long) server.getAttribute(name, "EstimatedBytes"), is(statusBytes(systemInterface)));
+
+            TabularData componentCounts = (TabularData) server.getAttribute(name, "ComponentCounts");
+            CompositeData row = componentCounts.get(new Object[]{ ComponentC.class.getName() });
+            assertThat((Integer) row.get("value"), is(2));
+
+            systemInterface.getMonitor().unregister();
+            assertThat(server.isRegistered(name), is(false));
+        }
+        finally
+        {
+            systemInterface.getMonitor().unregister();
+        }
+    }
+
+    private static long statusBytes(EntitySystemInterface systemInterface) throws Exception
+    {
+        final long[] bytes = new long[1];
+        systemInterface.execute(new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                bytes[0] = state.getStatus().getEstimatedBytes();
+            }
+        });
+        return bytes[0];
+    }
+}
@@ -0,0 +1,163 @@
+package org.javesi.journal;
+
+import org.javesi.Entity;
+import org.javesi.EntitySystem;
+import org.javesi.EntitySystemBuilder;
+import org.javesi.EntitySystemInterface;
+import org.javesi.codec.CodecRegistry;
+import org.javesi.component.Component;
+import org.javesi.job.Job;
+import org.javesi.testcomponents.ComponentA;
+import org.javesi.testcomponents.ComponentC;
+import org.javesi.testcomponents.SingleB;
+import org.javesi.testcomponents.TestCodecs;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class FileJournalTest
+{
+    private final CodecRegistry codecs = TestCodecs.create();
+
+    @Test
+    public void thatJournalIsReplayed() throws Exception
+    {
+        final File file = File.createTempFile("javesi", ".journal");
+        file.deleteOnExit();
+
+        EntitySystemInterface original = createInterface();
+        original.execute(new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                state.addChangeListener(new FileJournal(file, codecs, 0));
+            }
+        });
+
+        original.execute(new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                Entity a = state.createNamedEntity("Entity A");
+                Entity b = state.createEntity();
+                Entity c = state.createEntity();
+
+                ComponentA componentA = new ComponentA();
+                componentA.value = "foo";
+                state.addComponent(a, componentA);
+
+                ComponentC componentC = new ComponentC();
+                componentC.value = 42;
+                state.addComponent(b, componentC);
+                state.addComponent(c, new ComponentC());
+
+                SingleB singleB = new SingleB();
+                singleB.value = 7;
+                state.addComponent(c, singleB);
+            }
+        });
+
+        original.execute(new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                for (Entity entity : state.findEntitiesWithComponent(SingleB.class))
+                {
+                    state.removeComponent(entity, ComponentC.class);
+                    state.setEntityName(entity, "Entity C");
+                }
+            }
+        });
+
+        EntitySystemInterface recovered = createInterface();
+        recovered.execute(new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                long sequence = new JournalReplayer(codecs).replay(file, state, 0);
+                assertThat(sequence, is(2L));
+
+                assertThat(state.entities().size(), is(3));
+
+                Set<String> names = new HashSet<String>();
+                for (Entity entity : state.entities())
+                {
+                    names.add(state.nameFor(entity));
+                }
+                assertThat(names, hasItem("Entity A"));
+                assertThat(names, hasItem("Entity C"));
+
+                assertThat(state.getAllComponentsOfType(ComponentA.class).iterator().next().value, is("foo"));
+                assertThat(state.getAllComponentsOfType(ComponentC.class).size(), is(1));
+                assertThat(state.getAllComponentsOfType(ComponentC.class).iterator().next().value, is(42));
+
+                Entity c = state.getEntityWithSingleton(SingleB.class);
+                assertThat(state.nameFor(c), is("Entity C"));
+                assertThat(state.getSingletonComponent(SingleB.class).value, is(7));
+
+                // new ids must not clash with restored ones
+                state.createEntity();
+                assertThat(state.entities().size(), is(4));
+            }
+        });
+    }
+
+    @Test
+    public void thatOnlyTheTailIsReplayed() throws Exception
+    {
+        final File file = File.createTempFile("javesi", ".journal");
+        file.deleteOnExit();
+
+        EntitySystemInterface original = createInterface();
+        original.execute(new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                state.addChangeListener(new FileJournal(file, codecs, 0, 1000));
+            }
+        });
+
+        for (int i = 0; i < 5; i++)
+        {
+            original.execute(new Job()
+            {
+                @Override
+                public void execute(EntitySystem state) throws Exception
+                {
+                    state.createEntity();
+                }
+            });
+        }
+
+        EntitySystemInterface recovered = createInterface();
+        recovered.execute(new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                long sequence = new JournalReplayer(codecs).replay(file, state, 3);
+                assertThat(sequence, is(5L));
+                assertThat(state.entities().size(), is(2));
+            }
+        });
+    }
+
+    private EntitySystemInterface createInterface()
+    {
+        Set<Class<? extends Component>> classes = new HashSet<Class<? extends Component>>();
+        classes.add(ComponentA.class);
+        classes.add(ComponentC.class);
+        classes.add(SingleB.class);
+        return new EntitySystemBuilder().withComponentClasses(classes).build();
+    }
+}
@@ -0,0 +1,77 @@
+package org.javesi.metrics;
+
+import org.javesi.EntitySystem;
+import org.javesi.EntitySystemBuilder;
+import org.javesi.EntitySystemInterface;
+import org.javesi.component.Component;
+import org.javesi.job.Job;
+import org.javesi.testcomponents.ComponentA;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class LatencyHistogramTest
+{
+    @Test
+    public void thatBucketsCoverAllValues()
+    {
+        long[] values = new long[]{0, 1, 15, 16, 17, 31, 32, 33, 1000, 123456789, Long.MAX_VALUE};
+        for (long value : values)
+        {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertThat(index, is(lessThan(LatencyHistogram.BUCKETS)));
+            assertThat(LatencyHistogram.bucketUpperBound(index), is(greaterThanOrEqualTo(value)));
+            if (index > 0)
+            {
+                assertThat(LatencyHistogram.bucketUpperBound(index - 1), is(lessThan(value)));
+            }
+        }
+    }
+
+    @Test
+    public void thatPercentilesAreAccurate()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++)
+        {
+            histogram.record(i * 1000L);
+        }
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getCount(), is(1000L));
+        assertThat(snapshot.getMax(), is(1000000L));
+        assertThat((double) snapshot.getPercentile(50), is(closeTo(500000, 500000 * 0.0625)));
+        assertThat((double) snapshot.getPercentile(99), is(closeTo(990000, 990000 * 0.0625)));
+        assertThat(snapshot.getPercentile(100), is(1000000L));
+    }
+
+    @Test
+    public void thatJobsAreRecorded() throws Exception
+    {
+        Set<Class<? extends Component>> classes = new HashSet<Class<? extends Component>>();
+        classes.add(ComponentA.class);
+        EntitySystemInterface entitySystemInterface = new EntitySystemBuilder().withComponentClasses(classes).build();
+
+        Job job = new Job()
+        {
+            @Override
+            public void execute(EntitySystem state) throws Exception
+            {
+                state.createEntity();
+            }
+        };
+
+        for (int i = 0; i < 10; i++)
+        {
+            entitySystemInterface.execute(job);
+        }
+
+        JobMetricsSnapshot metrics = entitySystemInterface.getJobMetrics();
+        assertThat(metrics.getJobCount(), is(10L));
+        assertThat(metrics.getJobs().get(job.getClass().getName()).getHoldTimes().getCount(), is(10L));
+    }
+}
@@ -0,0 +1,75 @@
+package org.javesi.pool;
+
+import org.javesi.Entity;
+import org.javesi.EntitySystem;
+import org.javesi.exception.InvalidComponentTypeException;
+import org.javesi.test.TestEntitySystem;
+import org.javesi.testcomponents.ComponentA;
+import org.javesi.testcomponents.ComponentC;
+import org.javesi.testcomponents.SingleB;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class ComponentPoolTest
+{
+    @Rule
+    public TestEntitySystem testSystem = new TestEntitySystem(ComponentA.class, ComponentC.class, SingleB.class);
+
+    private final ComponentRecycler<ComponentC> recycler = new ComponentRecycler<ComponentC>()
+    {
+        @Override
+        public ComponentC create()
+        {
+            return new ComponentC();
+        }
+
+        @Override
+        public void reset(ComponentC component)
+        {
+            component.value = 0;
+        }
+    };
+
+    @Test
+    public void thatRemovedComponentsAreReused()
+    {
+        EntitySystem system = testSystem.getEntitySystem();
+        ComponentPool<ComponentC> pool = system.registerComponentPool(ComponentC.class, recycler, 2);
+
+        Entity a = system.createEntity();
+        Entity b = system.createEntity();
+
+        ComponentC first = system.obtainComponent(ComponentC.class);
+        first.value = 42;
+        system.addComponent(a, first);
+        system.addComponent(b, system.obtainComponent(ComponentC.class));
+        assertThat(pool.getCreated(), is(2L));
+
+        system.removeComponent(a, ComponentC.class);
+        assertThat(pool.size(), is(1));
+        assertThat(first.value, is(0));
+
+        system.killEntity(b);
+        assertThat(pool.size(), is(2));
+
+        // full pools leave instances to the garbage collector
+        Entity c = system.createEntity();
+        system.addComponent(c, new ComponentC());
+        system.killEntity(c);
+        assertThat(pool.size(), is(2));
+
+        ComponentC reused = system.obtainComponent(ComponentC.class);
+        assertThat(reused, is(notNullValue()));
+        assertThat(pool.getReused(), is(1L));
+        assertThat(pool.getCreated(), is(2L));
+    }
+
+    @Test(expected = InvalidComponentTypeException.class)
+    public void thatUnpooledTypesAreRejected()
+    {
+        testSystem.getEntitySystem().obtainComponent(ComponentA.class);
+    }
+}
@@ -0,0 +1,71 @@
+package org.javesi.test;
+
+import org.javesi.Entity;
+import org.javesi.EntitySystem;
+import org.javesi.testcomponents.ComponentC;
+import org.javesi.view.SortedView;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class BudgetTest
+{
+    @Rule
+    public TestEntitySystem testSystem = new TestEntitySystem(ComponentC.class);
+
+    @Test
+    @Budget(allocatedBytes = 0, millis = 1000)
+    public void thatIteratingTheSortedViewDoesNotAllocate()
+    {
+        EntitySystem system = testSystem.getEntitySystem();
+        for (int i = 0; i < 10000; i++)
+        {
+            Entity entity = system.createEntity();
+            ComponentC c = new ComponentC();
+            c.value = 10000 - i;
+            system.addComponent(entity, c);
+        }
+        SortedView<ComponentC> view = new SortedView<ComponentC>(system, ComponentC.class, c -> c.value);
+
+        testSystem.startMeasuring();
+        long sum = 0;
+        for (int i = 0; i < view.size(); i++)
+        {
+            sum += view.getComponent(i).value;
+        }
+        if (sum != 50005000L)
+        {
+            throw new AssertionError("Wrong sum " + sum);
+        }
+    }
+
+    @Test
+    public void thatExceededBudgetsFail()
+    {
+        Result result = JUnitCore.runClasses(OverBudget.class);
+        assertThat(result.getRunCount(), is(1));
+        assertThat(result.getFailureCount(), is(1));
+        assertThat(result.getFailures().get(0).getMessage(), containsString("budget is 1024"));
+    }
+
+    public static class OverBudget
+    {
+        @Rule
+        public TestEntitySystem testSystem = new TestEntitySystem(ComponentC.class);
+
+        @Test
+        @Budget(allocatedBytes = 1024)
+        public void allocating()
+        {
+            EntitySystem system = testSystem.getEntitySystem();
+            for (int i = 0; i < 1000; i++)
+            {
+                system.addComponent(system.createEntity(), new ComponentC());
+            }
+        }
+    }
+}
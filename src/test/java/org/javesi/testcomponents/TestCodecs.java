@@ -0,0 +1,64 @@
+package org.javesi.testcomponents;
+
+import org.javesi.codec.CodecRegistry;
+import org.javesi.codec.ComponentCodec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class TestCodecs
+{
+    public static CodecRegistry create()
+    {
+        return new CodecRegistry()
+            .register(ComponentA.class, new ComponentCodec<ComponentA>()
+            {
+                @Override
+                public void write(ComponentA component, DataOutput out) throws IOException
+                {
+                    out.writeUTF(component.value);
+                }
+
+                @Override
+                public ComponentA read(DataInput in) throws IOException
+                {
+                    ComponentA componentA = new ComponentA();
+                    componentA.value = in.readUTF();
+                    return componentA;
+                }
+            })
+            .register(ComponentC.class, new ComponentCodec<ComponentC>()
+            {
+                @Override
+                public void write(ComponentC component, DataOutput out) throws IOException
+                {
+                    out.writeInt(component.value);
+                }
+
+                @Override
+                public ComponentC read(DataInput in) throws IOException
+                {
+                    ComponentC componentC = new ComponentC();
+                    componentC.value = in.readInt();
+                    return componentC;
+                }
+            })
+            .register(SingleB.class, new ComponentCodec<SingleB>()
+            {
+                @Override
+                public void write(SingleB component, DataOutput out) throws IOException
+                {
+                    out.writeInt(component.value);
+                }
+
+                @Override
+                public SingleB read(DataInput in) throws IOException
+                {
+                    SingleB singleB = new SingleB();
+                    singleB.value = in.readInt();
+                    return singleB;
+                }
+            });
+    }
+}
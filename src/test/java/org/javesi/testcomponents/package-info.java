@@ -0,0 +1,7 @@
+/**
+ * Component types used by the tests.
+ */
+@GenerateComponentRegistry("TestComponentRegistry")
+package org.javesi.testcomponents;
+
+import org.javesi.registry.GenerateComponentRegistry;
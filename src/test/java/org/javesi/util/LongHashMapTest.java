@@ -0,0 +1,42 @@
+package org.javesi.util;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class LongHashMapTest
+{
+    @Test
+    public void thatMapBehavesLikeHashMap()
+    {
+        LongHashMap<String> map = new LongHashMap<String>(4, 0.75f);
+        Map<Long, String> expected = new HashMap<Long, String>();
+
+        Random random = new Random(4711);
+        for (int i = 0; i < 20000; i++)
+        {
+            // small key range to provoke collisions, updates and removals
+            long key = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0)
+            {
+                assertThat(map.remove(key), is(expected.remove(key)));
+            }
+            else
+            {
+                String value = "v" + i;
+                assertThat(map.put(key, value), is(expected.put(key, value)));
+            }
+        }
+
+        assertThat(map.size(), is(expected.size()));
+        for (long key = -1000; key < 1000; key++)
+        {
+            assertThat(map.get(key), is(expected.get(key)));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.javesi.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class TimingWheelTest
+{
+    @Test
+    public void thatItemsExpireAtTheirDeadline()
+    {
+        Random random = new Random(42);
+        TimingWheel<Long> wheel = new TimingWheel<Long>(1000);
+
+        List<Long> deadlines = new ArrayList<Long>();
+        for (int i = 0; i < 5000; i++)
+        {
+            // spread over all levels and the overflow
+            long deadline = 1000 + (long) Math.pow(2, random.nextDouble() * 30);
+            deadlines.add(deadline);
+            wheel.schedule(deadline, deadline);
+        }
+        wheel.schedule(500L, 500);
+        deadlines.add(1000L);
+        assertThat(wheel.size(), is(5001));
+
+        Collections.sort(deadlines);
+
+        List<Long> expired = new ArrayList<Long>();
+        long time = 1000;
+        int index = 0;
+        while (index < deadlines.size())
+        {
+            time += 1 + random.nextInt(1 << random.nextInt(26));
+            expired.clear();
+            int count = wheel.advance(time, expired);
+            assertThat(count, is(expired.size()));
+
+            int expected = 0;
+            while (index < deadlines.size() && deadlines.get(index) <= time)
+            {
+                index++;
+                expected++;
+            }
+            assertThat(expired.size(), is(expected));
+            for (Long deadline : expired)
+            {
+                assertThat(deadline, is(lessThanOrEqualTo(time)));
+            }
+        }
+        assertThat(wheel.size(), is(0));
+        assertThat(wheel.getTime(), is(time));
+    }
+
+    @Test
+    public void thatTicksExpireOneByOne()
+    {
+        TimingWheel<Integer> wheel = new TimingWheel<Integer>(0);
+        for (int i = 1; i <= 300; i++)
+        {
+            wheel.schedule(i, i);
+        }
+
+        List<Integer> expired = new ArrayList<Integer>();
+        for (int i = 1; i <= 300; i++)
+        {
+            expired.clear();
+            wheel.advance(i, expired);
+            assertThat(expired.size(), is(1));
+            assertThat(expired.get(0), is(i));
+        }
+    }
+}
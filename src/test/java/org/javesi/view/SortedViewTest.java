@@ -0,0 +1,154 @@
+package org.javesi.view;
+
+import org.javesi.Entity;
+import org.javesi.EntitySystem;
+import org.javesi.test.TestEntitySystem;
+import org.javesi.testcomponents.ComponentA;
+import org.javesi.testcomponents.ComponentC;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class SortedViewTest
+{
+    @Rule
+    public TestEntitySystem testSystem = new TestEntitySystem(ComponentA.class, ComponentC.class);
+
+    @Test
+    public void thatTheOrderIsMaintained()
+    {
+        EntitySystem system = testSystem.getEntitySystem();
+
+        Entity e30 = createWithDepth(system, 30);
+        Entity e10 = createWithDepth(system, 10);
+        SortedView<ComponentC> view = new SortedView<ComponentC>(system, ComponentC.class, c -> c.value);
+        Entity e20 = createWithDepth(system, 20);
+        Entity e40 = createWithDepth(system, 40);
+        system.addComponent(system.createEntity(), new ComponentA());
+
+        assertThat(depths(view), is(list(10, 20, 30, 40)));
+        assertThat(view.get(1), is(e20));
+
+        system.removeComponent(e20, ComponentC.class);
+        system.killEntity(e40);
+        assertThat(depths(view), is(list(10, 30)));
+
+        // marked changes are applied immediately
+        system.getComponent(e10, ComponentC.class).value = 50;
+        system.markChanged(e10, ComponentC.class);
+        assertThat(depths(view), is(list(30, 50)));
+        assertThat(view.get(0), is(e30));
+    }
+
+    @Test
+    public void thatChangedKeysAreRepaired()
+    {
+        EntitySystem system = testSystem.getEntitySystem();
+        SortedView<ComponentC> view = new SortedView<ComponentC>(system, ComponentC.class, c -> c.value);
+
+        List<Entity> entities = new ArrayList<Entity>();
+        for (int i = 0; i < 100; i++)
+        {
+            entities.add(createWithDepth(system, i * 10));
+        }
+
+        // two neighbours swap places
+        system.getComponent(entities.get(50), ComponentC.class).value = 515;
+        assertThat(view.repair(), is(1));
+        assertThat(view.get(50), is(entities.get(51)));
+        assertThat(view.get(51), is(entities.get(50)));
+        assertThat(view.repair(), is(0));
+
+        List<Double> range = new ArrayList<Double>();
+        for (Entity entity : view.range(495, 530))
+        {
+            range.add((double) system.getComponent(entity, ComponentC.class).value);
+        }
+        assertThat(range, is(list(510, 515, 520)));
+        assertThat(view.range(2000, 3000).iterator().hasNext(), is(false));
+    }
+
+    @Test
+    public void thatRangesAreLookedUpPerIterator()
+    {
+        EntitySystem system = testSystem.getEntitySystem();
+        SortedView<ComponentC> view = new SortedView<ComponentC>(system, ComponentC.class, c -> c.value);
+        createWithDepth(system, 10);
+        createWithDepth(system, 30);
+
+        Iterable<Entity> range = view.range(20, 40);
+        Entity e5 = createWithDepth(system, 5);
+        Entity e25 = createWithDepth(system, 25);
+
+        List<Entity> entities = new ArrayList<Entity>();
+        for (Entity entity : range)
+        {
+            entities.add(entity);
+        }
+        assertThat(entities.size(), is(2));
+        assertThat(entities.get(0), is(e25));
+        assertThat(entities.contains(e5), is(false));
+    }
+
+    @Test
+    public void thatNaNKeysComeLast()
+    {
+        EntitySystem system = testSystem.getEntitySystem();
+        SortedView<ComponentC> view = new SortedView<ComponentC>(system, ComponentC.class,
+            c -> c.value < 0 ? Double.NaN : c.value);
+        Entity nan = createWithDepth(system, -1);
+        createWithDepth(system, 20);
+        createWithDepth(system, 10);
+
+        assertThat(view.size(), is(3));
+        assertThat(view.get(2), is(nan));
+        assertThat(Double.isNaN(view.getKey(2)), is(true));
+        assertThat(view.range(0, Double.POSITIVE_INFINITY).iterator().next(), is(view.get(0)));
+
+        int inRange = 0;
+        for (Entity entity : view.range(0, Double.POSITIVE_INFINITY))
+        {
+            inRange++;
+        }
+        assertThat(inRange, is(2));
+
+        // NaN entries are found again for removal and repair
+        system.killEntity(nan);
+        assertThat(view.size(), is(2));
+        assertThat(view.repair(), is(0));
+    }
+
+    private static Entity createWithDepth(EntitySystem system, int depth)
+    {
+        Entity entity = system.createEntity();
+        ComponentC c = new ComponentC();
+        c.value = depth;
+        system.addComponent(entity, c);
+        return entity;
+    }
+
+    private static List<Double> depths(SortedView<?> view)
+    {
+        List<Double> depths = new ArrayList<Double>();
+        for (int i = 0; i < view.size(); i++)
+        {
+            depths.add(view.getKey(i));
+        }
+        return depths;
+    }
+
+    private static List<Double> list(double... values)
+    {
+        List<Double> list = new ArrayList<Double>();
+        for (double value : values)
+        {
+            list.add(value);
+        }
+        return list;
+    }
+}